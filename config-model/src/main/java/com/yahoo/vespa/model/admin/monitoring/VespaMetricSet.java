@@ -62,6 +62,12 @@ public class VespaMetricSet {
         metrics.add(new Metric("jrt.transport.server.unencrypted-connections-established"));
         metrics.add(new Metric("jrt.transport.client.unencrypted-connections-established"));
 
+        // Java (JRT) transport thread load, set once per transport thread
+        metrics.add(new Metric("jrt.transport.thread.connections.max"));
+        metrics.add(new Metric("jrt.transport.thread.connections.average"));
+        metrics.add(new Metric("jrt.transport.thread.recent-io-events.max"));
+        metrics.add(new Metric("jrt.transport.thread.recent-io-events.average"));
+
         // C++ TLS metrics
         metrics.add(new Metric("vds.server.network.tls-handshakes-failed"));
         metrics.add(new Metric("vds.server.network.peer-authorization-failures"));
@@ -249,6 +255,17 @@ public class VespaMetricSet {
         metrics.add(new Metric("documents_total.count"));
         metrics.add(new Metric("dispatch_internal.rate"));
         metrics.add(new Metric("dispatch_fdispatch.rate"));
+        metrics.add(new Metric("dispatch_result_cache_hit.rate"));
+        metrics.add(new Metric("dispatch_docsum_cache_hits.rate"));
+        metrics.add(new Metric("dispatch_docsum_cache_misses.rate"));
+        metrics.add(new Metric("dispatch_group_latency_p50.max"));
+        metrics.add(new Metric("dispatch_group_latency_p50.average"));
+        metrics.add(new Metric("dispatch_group_latency_p99.max"));
+        metrics.add(new Metric("dispatch_group_latency_p99.average"));
+        metrics.add(new Metric("dispatch_node_latency_p50.max"));
+        metrics.add(new Metric("dispatch_node_latency_p50.average"));
+        metrics.add(new Metric("dispatch_node_latency_p99.max"));
+        metrics.add(new Metric("dispatch_node_latency_p99.average"));
 
         metrics.add(new Metric("totalhits_per_query.max"));
         metrics.add(new Metric("totalhits_per_query.sum"));
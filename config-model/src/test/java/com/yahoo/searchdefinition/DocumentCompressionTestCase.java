@@ -0,0 +1,56 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchdefinition;
+
+import com.yahoo.compress.CompressionType;
+import com.yahoo.document.CompressionConfig;
+import com.yahoo.searchdefinition.parser.ParseException;
+import org.junit.Test;
+
+import static com.yahoo.config.model.test.TestUtil.joinLines;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class DocumentCompressionTestCase {
+
+    @Test
+    public void lz4_compression_can_be_configured() throws ParseException {
+        CompressionConfig compression = compressionOf("lz4", 9);
+        assertEquals(CompressionType.LZ4, compression.type);
+        assertEquals(9, compression.compressionLevel);
+    }
+
+    @Test
+    public void zstd_compression_can_be_configured() throws ParseException {
+        CompressionConfig compression = compressionOf("zstd", 3);
+        assertEquals(CompressionType.ZSTD, compression.type);
+        assertEquals(3, compression.compressionLevel);
+    }
+
+    @Test
+    public void zstd_can_be_used_as_a_field_name() throws ParseException {
+        Search search = SearchBuilder.createFromString(joinLines(
+                "search test {",
+                "  document test {",
+                "    field zstd type string { indexing: summary }",
+                "  }",
+                "}")).getSearch();
+        assertEquals("zstd", search.getDocument().getField("zstd").getName());
+    }
+
+    private static CompressionConfig compressionOf(String type, int level) throws ParseException {
+        Search search = SearchBuilder.createFromString(joinLines(
+                "search test {",
+                "  document test {",
+                "    compression {",
+                "      type: " + type,
+                "      level: " + level,
+                "    }",
+                "    field title type string { indexing: summary }",
+                "  }",
+                "}")).getSearch();
+        return search.getDocument().getDocumentType().contentStruct().getCompressionConfig();
+    }
+
+}
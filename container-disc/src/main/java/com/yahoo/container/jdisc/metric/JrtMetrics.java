@@ -5,6 +5,7 @@ import com.yahoo.jdisc.Metric;
 import com.yahoo.jrt.TransportMetrics;
 
 import static com.yahoo.jrt.TransportMetrics.Snapshot;
+import static com.yahoo.jrt.TransportMetrics.TransportThreadLoad;
 
 /**
  * Emits jrt metrics
@@ -31,6 +32,10 @@ class JrtMetrics {
         increment("jrt.transport.server.unencrypted-connections-established", changesSincePrevious.serverUnencryptedConnectionsEstablished());
         increment("jrt.transport.client.unencrypted-connections-established", changesSincePrevious.clientUnencryptedConnectionsEstablished());
         previousSnapshot = snapshot;
+        for (TransportThreadLoad load : transportMetrics.transportThreadLoads()) {
+            metric.set("jrt.transport.thread.connections", load.connections(), null);
+            metric.set("jrt.transport.thread.recent-io-events", load.recentIoEvents(), null);
+        }
     }
 
     private void increment(String metricName, long countIncrement) {
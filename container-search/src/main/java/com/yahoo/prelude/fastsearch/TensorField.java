@@ -27,11 +27,15 @@ public class TensorField extends DocsumField {
         return "field " + getName() + " type tensor";
     }
 
+    /**
+     * Returns the tensor in the given value. Dense tensors read their cells from the summary data
+     * instead of copying them, which is safe as summary data is never modified.
+     */
     @Override
     public Object convert(Inspector value) {
         byte[] content = value.asData(Value.empty().asData());
         if (content.length == 0) return null;
-        return TypedBinaryFormat.decode(Optional.empty(), GrowableByteBuffer.wrap(content));
+        return TypedBinaryFormat.decodeWithoutCopying(Optional.empty(), GrowableByteBuffer.wrap(content));
     }
 
 }
@@ -0,0 +1,39 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+
+import java.util.Optional;
+
+/**
+ * A search invoker which produces a result from a result cache instead of searching the content nodes.
+ *
+ * @author agent
+ */
+class CachedSearchInvoker extends SearchInvoker {
+
+    private final ResultCache.Entry cachedResult;
+    private Query query;
+
+    CachedSearchInvoker(ResultCache.Entry cachedResult) {
+        super(Optional.empty());
+        this.cachedResult = cachedResult;
+    }
+
+    @Override
+    protected void sendSearchRequest(Query query) {
+        this.query = query;
+    }
+
+    @Override
+    protected InvokerResult getSearchResult(Execution execution) {
+        return cachedResult.toInvokerResult(query);
+    }
+
+    @Override
+    protected void release() {
+        // nothing to do
+    }
+
+}
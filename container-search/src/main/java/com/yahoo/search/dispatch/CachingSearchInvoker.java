@@ -0,0 +1,55 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.google.protobuf.ByteString;
+import com.yahoo.search.Query;
+import com.yahoo.search.searchchain.Execution;
+
+import java.io.IOException;
+
+/**
+ * A search invoker which adds the result of the search invoker it wraps to a result cache.
+ *
+ * @author agent
+ */
+class CachingSearchInvoker extends SearchInvoker {
+
+    private final SearchInvoker invoker;
+    private final ResultCache cache;
+    private final ByteString key;
+    private final long contentGeneration;
+    private Query query;
+
+    CachingSearchInvoker(SearchInvoker invoker, ResultCache cache, ByteString key, long contentGeneration) {
+        super(invoker.node());
+        this.invoker = invoker;
+        this.cache = cache;
+        this.key = key;
+        this.contentGeneration = contentGeneration;
+    }
+
+    @Override
+    protected void sendSearchRequest(Query query) throws IOException {
+        this.query = query;
+        invoker.sendSearchRequest(query);
+    }
+
+    @Override
+    protected InvokerResult getSearchResult(Execution execution) throws IOException {
+        InvokerResult result = invoker.getSearchResult(execution);
+        cache.put(key, contentGeneration, result, query.getOffset());
+        return result;
+    }
+
+    @Override
+    protected void setFinalStatus(boolean success) {
+        super.setFinalStatus(success);
+        invoker.setFinalStatus(success);
+    }
+
+    @Override
+    protected void release() {
+        invoker.close();
+    }
+
+}
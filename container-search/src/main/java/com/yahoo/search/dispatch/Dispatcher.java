@@ -2,6 +2,7 @@
 package com.yahoo.search.dispatch;
 
 import com.google.inject.Inject;
+import com.google.protobuf.ByteString;
 import com.yahoo.cloud.config.ClusterInfoConfig;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.ComponentId;
@@ -13,6 +14,7 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.SearchPath.InvalidSearchPathException;
 import com.yahoo.search.dispatch.rpc.RpcInvokerFactory;
+import com.yahoo.search.dispatch.rpc.ProtobufSerialization;
 import com.yahoo.search.dispatch.rpc.RpcResourcePool;
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.Node;
@@ -20,16 +22,22 @@ import com.yahoo.search.dispatch.searchcluster.PingFactory;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 import com.yahoo.search.query.profile.types.FieldDescription;
 import com.yahoo.search.query.profile.types.FieldType;
+import com.yahoo.search.query.Model;
 import com.yahoo.search.query.profile.types.QueryProfileType;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A dispatcher communicates with search nodes to perform queries and fill hits.
@@ -51,6 +59,14 @@ public class Dispatcher extends AbstractComponent {
 
     private static final String FDISPATCH_METRIC = "dispatch_fdispatch";
     private static final String INTERNAL_METRIC = "dispatch_internal";
+    private static final String RESULT_CACHE_HIT_METRIC = "dispatch_result_cache_hit";
+    private static final String GROUP_LATENCY_P50_METRIC = "dispatch_group_latency_p50";
+    private static final String GROUP_LATENCY_P99_METRIC = "dispatch_group_latency_p99";
+    private static final String NODE_LATENCY_P50_METRIC = "dispatch_node_latency_p50";
+    private static final String NODE_LATENCY_P99_METRIC = "dispatch_node_latency_p99";
+
+    /** The minimum interval in ms between each time latency metrics are emitted */
+    private static final long LATENCY_METRICS_INTERVAL = 10_000;
 
     private static final int MAX_GROUP_SELECTION_ATTEMPTS = 3;
 
@@ -65,8 +81,14 @@ public class Dispatcher extends AbstractComponent {
 
     private final InvokerFactory invokerFactory;
 
+    /** The cache of search results, or null if results should not be cached */
+    private final ResultCache resultCache;
+
     private final Metric metric;
     private final Metric.Context metricContext;
+    private final Map<Group, Metric.Context> groupMetricContexts = new HashMap<>();
+    private final Map<Node, Metric.Context> nodeMetricContexts = new HashMap<>();
+    private final AtomicLong nextLatencyMetricsTime = new AtomicLong(0);
 
     private static final QueryProfileType argumentType;
 
@@ -97,7 +119,7 @@ public class Dispatcher extends AbstractComponent {
                       Metric metric) {
         this(searchCluster,
              dispatchConfig,
-             new RpcInvokerFactory(new RpcResourcePool(dispatchConfig), searchCluster),
+             new RpcInvokerFactory(new RpcResourcePool(dispatchConfig, metric), searchCluster),
              metric);
     }
 
@@ -118,8 +140,18 @@ public class Dispatcher extends AbstractComponent {
                                   dispatchConfig.distributionPolicy() == DispatchConfig.DistributionPolicy.ROUNDROBIN);
         this.invokerFactory = invokerFactory;
         this.multilevelDispatch = dispatchConfig.useMultilevelDispatch();
+        this.resultCache = dispatchConfig.resultCacheSize() > 0
+                           ? new ResultCache(dispatchConfig.resultCacheSize(),
+                                             Duration.ofMillis((long)(dispatchConfig.resultCacheTtl() * 1000)),
+                                             Clock.systemUTC())
+                           : null;
         this.metric = metric;
         this.metricContext = metric.createContext(null);
+        for (Group group : searchCluster.orderedGroups()) {
+            groupMetricContexts.put(group, metric.createContext(Map.of("groupId", group.id())));
+            for (Node node : group.nodes())
+                nodeMetricContexts.put(node, metric.createContext(Map.of("groupId", group.id(), "distributionKey", node.key())));
+        }
 
         searchCluster.startClusterMonitoring(pingFactory);
     }
@@ -144,11 +176,27 @@ public class Dispatcher extends AbstractComponent {
             return Optional.empty();
         }
 
+        Optional<ByteString> cacheKey = isCacheable(query)
+                                        ? Optional.of(ProtobufSerialization.serializeResultCacheKey(query))
+                                        : Optional.empty();
+        // An approximation: Changes which do not add or remove documents are not detected, see ResultCache
+        long contentGeneration = searchCluster.activeDocuments();
+        if (cacheKey.isPresent()) {
+            Optional<ResultCache.Entry> cachedResult = resultCache.get(cacheKey.get(), contentGeneration);
+            if (cachedResult.isPresent()) {
+                metric.add(RESULT_CACHE_HIT_METRIC, 1, metricContext);
+                return Optional.of(new CachedSearchInvoker(cachedResult.get()));
+            }
+        }
+
         Optional<SearchInvoker> invoker = getSearchPathInvoker(query, searcher);
 
         if (invoker.isEmpty()) {
             invoker = getInternalInvoker(query, searcher);
         }
+        if (invoker.isPresent() && cacheKey.isPresent()) {
+            invoker = Optional.of(new CachingSearchInvoker(invoker.get(), resultCache, cacheKey.get(), contentGeneration));
+        }
         if (invoker.isPresent() && query.properties().getBoolean(com.yahoo.search.query.Model.ESTIMATE)) {
             query.setHits(0);
             query.setOffset(0);
@@ -158,6 +206,19 @@ public class Dispatcher extends AbstractComponent {
         return invoker;
     }
 
+    /**
+     * Returns whether the result of this query may be cached: Queries which rely on the backend query cache
+     * when filling, request backend traces or are directed to specific nodes are not cached.
+     */
+    private boolean isCacheable(Query query) {
+        return resultCache != null
+               && ! query.getNoCache()
+               && query.getModel().getSearchPath() == null
+               && ! query.getRanking().getQueryCache()
+               && ! query.properties().getBoolean(Model.ESTIMATE)
+               && ProtobufSerialization.getTraceLevelForBackend(query) == 0;
+    }
+
     /** Builds an invoker based on searchpath */
     private Optional<SearchInvoker> getSearchPathInvoker(Query query, VespaBackEndSearcher searcher) {
         String searchPath = query.getModel().getSearchPath();
@@ -200,7 +261,10 @@ public class Dispatcher extends AbstractComponent {
             if (invoker.isPresent()) {
                 query.trace(false, 2, "Dispatching internally to search group ", group.id());
                 query.getModel().setSearchPath("/" + group.id());
-                invoker.get().teardown((success, time) -> loadBalancer.releaseGroup(group, success, time));
+                invoker.get().teardown((success, time) -> {
+                    loadBalancer.releaseGroup(group, success, time);
+                    emitLatencyMetrics();
+                });
                 return invoker;
             } else {
                 loadBalancer.releaseGroup(group, false, 0);
@@ -218,6 +282,24 @@ public class Dispatcher extends AbstractComponent {
         searchCluster.shutDown();
     }
 
+    /** Emits the median and 99th percentile latencies of each group and node, unless this was done recently */
+    private void emitLatencyMetrics() {
+        long now = System.currentTimeMillis();
+        long next = nextLatencyMetricsTime.get();
+        if (now < next || ! nextLatencyMetricsTime.compareAndSet(next, now + LATENCY_METRICS_INTERVAL)) return;
+
+        groupMetricContexts.forEach((group, context) -> {
+            if (group.latencies().count() == 0) return;
+            metric.set(GROUP_LATENCY_P50_METRIC, group.latencies().percentile(50), context);
+            metric.set(GROUP_LATENCY_P99_METRIC, group.latencies().percentile(99), context);
+        });
+        nodeMetricContexts.forEach((node, context) -> {
+            if (node.latencies().count() == 0) return;
+            metric.set(NODE_LATENCY_P50_METRIC, node.latencies().percentile(50), context);
+            metric.set(NODE_LATENCY_P99_METRIC, node.latencies().percentile(99), context);
+        });
+    }
+
     private void emitDispatchMetric(Optional<SearchInvoker> invoker) {
         if (invoker.isEmpty()) {
             metric.add(FDISPATCH_METRIC, 1, metricContext);
@@ -3,6 +3,9 @@ package com.yahoo.search.dispatch;
 
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.searchcluster.Group;
+import com.yahoo.search.dispatch.searchcluster.LatencyHistogram;
+import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 import com.yahoo.search.result.Coverage;
 import com.yahoo.search.result.ErrorMessage;
@@ -12,15 +15,17 @@ import com.yahoo.vespa.config.search.DispatchConfig;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.IdentityHashMap;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -33,17 +38,32 @@ import static com.yahoo.container.handler.Coverage.DEGRADED_BY_TIMEOUT;
  * nodes in parallel. Operationally it first sends requests to all contained invokers and then
  * collects the results. The user of this class is responsible for merging the results if needed.
  *
+ * If hedging is enabled by {@link DispatchConfig#hedgeLatencyPercentile()}, the request to a node which has not
+ * answered within the configured percentile of its latencies is also sent to the node of another group,
+ * and the first of the two responses is used. This is only done when each group consists of a single node.
+ *
  * @author ollivir
  */
 public class InterleavedSearchInvoker extends SearchInvoker implements ResponseMonitor<SearchInvoker> {
     private static final Logger log = Logger.getLogger(InterleavedSearchInvoker.class.getName());
 
+    /** The number of latency samples required for a node before requests to it are hedged */
+    private static final long minimumHedgingSamples = 100;
+
     private final Set<SearchInvoker> invokers;
     private final SearchCluster searchCluster;
     private final LinkedBlockingQueue<SearchInvoker> availableForProcessing;
     private final Set<Integer> alreadyFailedNodes;
+    private final Function<Node, Optional<SearchInvoker>> hedgeInvokerFactory;
     private Query query;
 
+    /** The time each request was sent */
+    private final Map<SearchInvoker, Long> sendTimes = new IdentityHashMap<>();
+    /** The requests which have been hedged, or are hedges */
+    private final Set<SearchInvoker> hedged = Collections.newSetFromMap(new IdentityHashMap<>());
+    /** The hedge of each hedged request, and the reverse */
+    private final Map<SearchInvoker, SearchInvoker> hedgePartners = new IdentityHashMap<>();
+
     private boolean adaptiveTimeoutCalculated = false;
     private long adaptiveTimeoutMin = 0;
     private long adaptiveTimeoutMax = 0;
@@ -59,12 +79,26 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private boolean degradedByMatchPhase = false;
 
     public InterleavedSearchInvoker(Collection<SearchInvoker> invokers, SearchCluster searchCluster, Set<Integer> alreadyFailedNodes) {
+        this(invokers, searchCluster, alreadyFailedNodes, node -> Optional.empty());
+    }
+
+    /**
+     * Creates an invoker which may hedge requests to slow nodes.
+     *
+     * @param hedgeInvokerFactory creates an invoker of the node to send a hedged request to, or returns empty
+     *                            if no request can be sent to this node
+     */
+    public InterleavedSearchInvoker(Collection<SearchInvoker> invokers,
+                                    SearchCluster searchCluster,
+                                    Set<Integer> alreadyFailedNodes,
+                                    Function<Node, Optional<SearchInvoker>> hedgeInvokerFactory) {
         super(Optional.empty());
         this.invokers = Collections.newSetFromMap(new IdentityHashMap<>());
         this.invokers.addAll(invokers);
         this.searchCluster = searchCluster;
         this.availableForProcessing = newQueue();
         this.alreadyFailedNodes = alreadyFailedNodes;
+        this.hedgeInvokerFactory = hedgeInvokerFactory;
     }
 
     /**
@@ -84,6 +118,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         query.setOffset(0);
 
         for (SearchInvoker invoker : invokers) {
+            sendTimes.put(invoker, currentTime());
             invoker.sendSearchRequest(query);
             askedNodes++;
         }
@@ -95,19 +130,28 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     @Override
     protected InvokerResult getSearchResult(Execution execution) throws IOException {
         InvokerResult result = new InvokerResult(query, query.getHits());
-        List<LeanHit> merged = Collections.emptyList();
+        int needed = query.getOffset() + query.getHits();
+        MergedHits merged = new MergedHits(needed);
         long nextTimeout = query.getTimeLeft();
         try {
             while (!invokers.isEmpty() && nextTimeout >= 0) {
-                SearchInvoker invoker = availableForProcessing.poll(nextTimeout, TimeUnit.MILLISECONDS);
-                if (invoker == null) {
+                long waitStart = currentTime();
+                long nextHedge = timeUntilNextHedge(waitStart);
+                SearchInvoker invoker = availableForProcessing.poll(Math.min(nextTimeout, nextHedge), TimeUnit.MILLISECONDS);
+                if (invoker == null && nextHedge < nextTimeout) {
+                    hedgeSlowRequests();
+                    nextTimeout -= currentTime() - waitStart;
+                } else if (invoker == null) {
                     log.fine(() -> "Search timed out with " + askedNodes + " requests made, " + answeredNodes + " responses received");
                     break;
+                } else if ( ! invokers.contains(invoker)) { // The response to a hedged request which lost
+                    nextTimeout -= currentTime() - waitStart;
                 } else {
-                    merged = mergeResult(result.getResult(), invoker.getSearchResult(execution), merged);
+                    ejectHedgePartnerOf(invoker);
+                    mergeResult(result.getResult(), invoker.getSearchResult(execution), merged, needed);
                     ejectInvoker(invoker);
+                    nextTimeout = nextTimeout();
                 }
-                nextTimeout = nextTimeout();
             }
         } catch (InterruptedException e) {
             throw new RuntimeException("Interrupted while waiting for search results", e);
@@ -115,10 +159,7 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
 
         insertNetworkErrors(result.getResult());
         result.getResult().setCoverage(createCoverage());
-        int needed = query.getOffset() + query.getHits();
-        for (int index = query.getOffset(); (index < merged.size()) && (index < needed); index++) {
-            result.getLeanHits().add(merged.get(index));
-        }
+        merged.addTo(result.getLeanHits(), query.getOffset());
         query.setOffset(0);  // Now we are all trimmed down
         return result;
     }
@@ -153,6 +194,76 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         }
     }
 
+    /** Returns the time in ms until the next request should be hedged, or Long.MAX_VALUE if none should */
+    private long timeUntilNextHedge(long now) {
+        if ( ! searchCluster.hedgingEnabled()) return Long.MAX_VALUE;
+
+        long nextHedge = Long.MAX_VALUE;
+        for (SearchInvoker invoker : invokers)
+            nextHedge = Math.min(nextHedge, timeUntilHedge(invoker, now));
+        return Math.max(0, nextHedge);
+    }
+
+    /** Sends a hedged request for each request which has been waiting longer than the hedging percentile latency */
+    private void hedgeSlowRequests() throws IOException {
+        long now = currentTime();
+        for (SearchInvoker invoker : new ArrayList<>(invokers)) {
+            if (timeUntilHedge(invoker, now) > 0) continue;
+            hedged.add(invoker);
+            Node node = invoker.node().get();
+            Optional<SearchInvoker> hedge = counterpartOf(node).flatMap(hedgeInvokerFactory);
+            if (hedge.isEmpty()) continue;
+
+            query.trace(false, 3, "Hedging search request to node ", node.key(), " by node ", hedge.get().distributionKey().get());
+            hedged.add(hedge.get());
+            hedgePartners.put(invoker, hedge.get());
+            hedgePartners.put(hedge.get(), invoker);
+            invokers.add(hedge.get());
+            hedge.get().setMonitor(this);
+            int originalHits = query.getHits();
+            int originalOffset = query.getOffset();
+            query.setHits(query.getHits() + query.getOffset());
+            query.setOffset(0);
+            sendTimes.put(hedge.get(), currentTime());
+            hedge.get().sendSearchRequest(query);
+            query.setHits(originalHits);
+            query.setOffset(originalOffset);
+        }
+    }
+
+    /** Returns the time in ms until the given request should be hedged, or Long.MAX_VALUE if it should not */
+    private long timeUntilHedge(SearchInvoker invoker, long now) {
+        if (hedged.contains(invoker) || invoker.node().isEmpty()) return Long.MAX_VALUE;
+        LatencyHistogram latencies = invoker.node().get().latencies();
+        if (latencies.count() < minimumHedgingSamples) return Long.MAX_VALUE;
+        return sendTimes.get(invoker) + latencies.percentile(searchCluster.dispatchConfig().hedgeLatencyPercentile()) - now;
+    }
+
+    /**
+     * Returns the working node of another group with sufficient coverage, preferring the one with the lowest
+     * median latency. As hedging is only enabled when each group has a single node, it holds the same documents.
+     */
+    private Optional<Node> counterpartOf(Node node) {
+        Node counterpart = null;
+        for (Group group : searchCluster.orderedGroups()) {
+            if (group.id() == node.group() || ! group.hasSufficientCoverage()) continue;
+            if (group.nodes().size() != 1) return Optional.empty();
+            Node candidate = group.nodes().get(0);
+            if (candidate.isWorking() != Boolean.TRUE) continue;
+            if (counterpart == null || candidate.latencies().percentile(50) < counterpart.latencies().percentile(50))
+                counterpart = candidate;
+        }
+        return Optional.ofNullable(counterpart);
+    }
+
+    /** Ejects the other request of a hedged pair when one of them has answered */
+    private void ejectHedgePartnerOf(SearchInvoker invoker) {
+        SearchInvoker partner = hedgePartners.remove(invoker);
+        if (partner == null) return;
+        hedgePartners.remove(partner);
+        ejectInvoker(partner);
+    }
+
     private long nextTimeout() {
         DispatchConfig config = searchCluster.dispatchConfig();
         double minimumCoverage = config.minSearchCoverage();
@@ -189,7 +300,10 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         return nextAdaptive;
     }
 
-    private List<LeanHit> mergeResult(Result result, InvokerResult partialResult, List<LeanHit> current) {
+    /**
+     * Merges a partial result into the result, and its lean hits into the given best hits so far.
+     */
+    private void mergeResult(Result result, InvokerResult partialResult, MergedHits merged, int needed) {
         collectCoverage(partialResult.getResult().getCoverage(true));
 
         result.mergeWith(partialResult.getResult());
@@ -199,42 +313,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                 result.hits().add(hit);
             }
         }
-        if (current.isEmpty() ) {
-            return partialResult.getLeanHits();
-        }
-        List<LeanHit> partial = partialResult.getLeanHits();
-        if (partial.isEmpty()) {
-            return current;
-        }
+        if (needed <= 0) return;
 
-        int needed = query.getOffset() + query.getHits();
-        List<LeanHit> merged = new ArrayList<>(needed);
-        int indexCurrent = 0;
-        int indexPartial = 0;
-        while (indexCurrent < current.size() && indexPartial < partial.size() && merged.size() < needed) {
-            LeanHit incommingHit = partial.get(indexPartial);
-            LeanHit currentHit = current.get(indexCurrent);
-
-            int cmpRes = currentHit.compareTo(incommingHit);
-            if (cmpRes < 0) {
-                merged.add(currentHit);
-                indexCurrent++;
-            } else if (cmpRes > 0) {
-                merged.add(incommingHit);
-                indexPartial++;
-            } else { // Duplicates
-                merged.add(currentHit);
-                indexCurrent++;
-                indexPartial++;
-            }
-        }
-        while ((indexCurrent < current.size()) && (merged.size() < needed)) {
-            merged.add(current.get(indexCurrent++));
-        }
-        while ((indexPartial < partial.size()) && (merged.size() < needed)) {
-            merged.add(partial.get(indexPartial++));
-        }
-        return merged;
+        merged.merge(partialResult.getLeanHits());
     }
 
     private void collectCoverage(Coverage source) {
@@ -320,4 +401,66 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     protected LinkedBlockingQueue<SearchInvoker> newQueue() {
         return new LinkedBlockingQueue<>();
     }
+
+    /**
+     * The best hits so far, as references to the hits in the lean hits of each partial result, in order.
+     * The hits are bounded to the needed number, and as the hits from each node are sorted, merging
+     * a partial result is a single pass over it which stops when no more of its hits can be included.
+     * Duplicate hits (comparing as equal) are only included once.
+     */
+    private static class MergedHits {
+
+        private final int needed;
+        private final List<LeanHits> sources = new ArrayList<>();
+
+        /** The merged hits, each as the index of its source in the high 32 bits and its index in the source in the low */
+        private long[] hits = new long[0];
+
+        MergedHits(int needed) {
+            this.needed = needed;
+        }
+
+        void merge(LeanHits partial) {
+            if (partial.isEmpty()) return;
+            int source = sources.size();
+            sources.add(partial);
+
+            long[] merged = new long[Math.min(needed, hits.length + partial.size())];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (count < merged.length && (i < hits.length || j < partial.size())) {
+                long next;
+                if (j == partial.size() || (i < hits.length && compare(hits[i], partial, j) <= 0))
+                    next = hits[i++];
+                else
+                    next = reference(source, j++);
+                if (count == 0 || compare(merged[count - 1], next) != 0)
+                    merged[count++] = next;
+            }
+            hits = count == merged.length ? merged : Arrays.copyOf(merged, count);
+        }
+
+        /** Adds the merged hits, starting at the given offset, to the given hits */
+        void addTo(LeanHits target, int offset) {
+            for (int i = offset; i < hits.length; i++)
+                target.add(sources.get(source(hits[i])), index(hits[i]));
+        }
+
+        private int compare(long hit, LeanHits other, int otherIndex) {
+            return sources.get(source(hit)).compare(index(hit), other, otherIndex);
+        }
+
+        private int compare(long hit, long other) {
+            return compare(hit, sources.get(source(other)), index(other));
+        }
+
+        private static long reference(int source, int index) { return ((long)source << 32) | index; }
+
+        private static int source(long reference) { return (int)(reference >>> 32); }
+
+        private static int index(long reference) { return (int)reference; }
+
+    }
+
 }
@@ -88,10 +88,12 @@ public abstract class InvokerFactory {
             }
         }
 
-        if (invokers.size() == 1 && failed == null) {
+        boolean hedging = searchCluster.hedgingEnabled();
+        if (invokers.size() == 1 && failed == null && ! hedging) {
             return Optional.of(invokers.get(0));
         } else {
-            return Optional.of(new InterleavedSearchInvoker(invokers, searchCluster, failed));
+            return Optional.of(new InterleavedSearchInvoker(invokers, searchCluster, failed,
+                                                            node -> createNodeSearchInvoker(searcher, query, node)));
         }
     }
 
@@ -5,43 +5,46 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.query.Sorting;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 /**
  * Wraps a Result and a flat, skinny hit list
  */
 public class InvokerResult {
     private final Result result;
-    private final List<LeanHit> leanHits;
+    private final LeanHits leanHits;
+    private boolean cached = false;
     public InvokerResult(Result result) {
         this.result = result;
-        this.leanHits = Collections.emptyList();
+        this.leanHits = new LeanHits(0);
     }
     public InvokerResult(Query query, int expectedHits) {
         result = new Result(query);
-        leanHits = new ArrayList<>(expectedHits);
+        leanHits = new LeanHits(expectedHits);
     }
 
     public Result getResult() {
         return result;
     }
 
-    public List<LeanHit> getLeanHits() {
+    public LeanHits getLeanHits() {
         return leanHits;
     }
+
+    /** Sets whether the hits of this are retrieved from a cache */
+    void setCached(boolean cached) {
+        this.cached = cached;
+    }
+
     void complete() {
         Query query = result.getQuery();
         Sorting sorting = query.getRanking().getSorting();
-        for (LeanHit hit : leanHits) {
-            FastHit fh = new FastHit(hit.getGid(), hit.getRelevance(), hit.getPartId(), hit.getDistributionKey());
-            if (hit.hasSortData()) {
-                fh.setSortData(hit.getSortData(), sorting);
+        for (int i = 0; i < leanHits.size(); i++) {
+            FastHit fh = new FastHit(leanHits.gid(i), leanHits.relevance(i), leanHits.partId(i), leanHits.distributionKey(i));
+            if (leanHits.hasSortData(i)) {
+                fh.setSortData(leanHits.sortData(i), sorting);
             }
             fh.setQuery(query);
             fh.setFillable();
-            fh.setCached(false);
+            fh.setCached(cached);
             result.hits().add(fh);
         }
         leanHits.clear();
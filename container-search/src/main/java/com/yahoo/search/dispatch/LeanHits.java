@@ -0,0 +1,176 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.google.protobuf.ByteString;
+import com.yahoo.document.GlobalId;
+
+import java.util.Arrays;
+
+/**
+ * A list of lean hits stored in columns of primitive values: The global ids and sort data of all the hits
+ * are each stored in a single byte array, and the other values in an array each. This avoids allocating
+ * objects per hit when hits are decoded from content nodes and merged, such that objects only need
+ * to be created for the hits which are returned.
+ *
+ * Hits are compared as by {@link LeanHit#compareTo}.
+ *
+ * This is not multithread safe.
+ *
+ * @author agent
+ */
+public class LeanHits {
+
+    private int size = 0;
+
+    private byte[] gids;
+    /** The start of the gid of hit i in gids, where the end is the start of hit i + 1 */
+    private int[] gidOffsets;
+
+    private byte[] sortData;
+    /** The start of the sort data of hit i in sortData, where the end is the start of hit i + 1 */
+    private int[] sortDataOffsets;
+    private boolean[] hasSortData;
+
+    private double[] relevance;
+    private int[] partIds;
+    private int[] distributionKeys;
+
+    public LeanHits(int expectedHits) {
+        int capacity = Math.max(1, expectedHits);
+        gids = new byte[capacity * GlobalId.LENGTH];
+        gidOffsets = new int[capacity + 1];
+        sortData = new byte[0];
+        sortDataOffsets = new int[capacity + 1];
+        hasSortData = new boolean[capacity];
+        relevance = new double[capacity];
+        partIds = new int[capacity];
+        distributionKeys = new int[capacity];
+    }
+
+    /** Returns the number of hits in this */
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /** Removes all the hits of this */
+    public void clear() { size = 0; }
+
+    /** Adds a hit ordered by relevance */
+    public void add(byte[] gid, int partId, int distributionKey, double relevance) {
+        add(gid, 0, gid.length, partId, distributionKey, relevance, null, 0, 0);
+    }
+
+    /** Adds a hit ordered by sort data */
+    public void add(byte[] gid, int partId, int distributionKey, byte[] sortData) {
+        add(gid, 0, gid.length, partId, distributionKey, 0.0, sortData, 0, sortData.length);
+    }
+
+    /**
+     * Adds a hit, copying the given gid and sort data directly into this.
+     *
+     * @param sortData the sort data of the hit, or empty if it is ordered by relevance
+     */
+    public void add(ByteString gid, int partId, int distributionKey, double relevance, ByteString sortData) {
+        ensureCapacity(gid.size(), sortData.size());
+        gid.copyTo(gids, gidOffsets[size]);
+        gidOffsets[size + 1] = gidOffsets[size] + gid.size();
+        sortData.copyTo(this.sortData, sortDataOffsets[size]);
+        sortDataOffsets[size + 1] = sortDataOffsets[size] + sortData.size();
+        set(partId, distributionKey, relevance, ! sortData.isEmpty());
+    }
+
+    public void add(LeanHit hit) {
+        if (hit.hasSortData())
+            add(hit.getGid(), hit.getPartId(), hit.getDistributionKey(), hit.getSortData());
+        else
+            add(hit.getGid(), hit.getPartId(), hit.getDistributionKey(), hit.getRelevance());
+    }
+
+    /** Adds the hit at the given index in the given hits to this */
+    public void add(LeanHits hits, int index) {
+        add(hits.gids, hits.gidOffsets[index], hits.gidOffsets[index + 1],
+            hits.partIds[index], hits.distributionKeys[index], hits.relevance[index],
+            hits.hasSortData[index] ? hits.sortData : null, hits.sortDataOffsets[index], hits.sortDataOffsets[index + 1]);
+    }
+
+    /** Adds all the given hits to this */
+    public void addAll(LeanHits hits) {
+        for (int i = 0; i < hits.size(); i++)
+            add(hits, i);
+    }
+
+    private void add(byte[] gid, int gidStart, int gidEnd, int partId, int distributionKey, double relevance,
+                     byte[] sortData, int sortDataStart, int sortDataEnd) {
+        ensureCapacity(gidEnd - gidStart, sortDataEnd - sortDataStart);
+        System.arraycopy(gid, gidStart, gids, gidOffsets[size], gidEnd - gidStart);
+        gidOffsets[size + 1] = gidOffsets[size] + gidEnd - gidStart;
+        if (sortData != null)
+            System.arraycopy(sortData, sortDataStart, this.sortData, sortDataOffsets[size], sortDataEnd - sortDataStart);
+        sortDataOffsets[size + 1] = sortDataOffsets[size] + sortDataEnd - sortDataStart;
+        set(partId, distributionKey, relevance, sortData != null);
+    }
+
+    private void set(int partId, int distributionKey, double relevance, boolean hasSortData) {
+        this.relevance[size] = hasSortData ? 0.0 : (Double.isNaN(relevance) ? Double.NEGATIVE_INFINITY : relevance);
+        this.hasSortData[size] = hasSortData;
+        partIds[size] = partId;
+        distributionKeys[size] = distributionKey;
+        size++;
+    }
+
+    private void ensureCapacity(int gidLength, int sortDataLength) {
+        if (size == relevance.length) {
+            int capacity = size * 2;
+            gidOffsets = Arrays.copyOf(gidOffsets, capacity + 1);
+            sortDataOffsets = Arrays.copyOf(sortDataOffsets, capacity + 1);
+            hasSortData = Arrays.copyOf(hasSortData, capacity);
+            relevance = Arrays.copyOf(relevance, capacity);
+            partIds = Arrays.copyOf(partIds, capacity);
+            distributionKeys = Arrays.copyOf(distributionKeys, capacity);
+        }
+        if (gidOffsets[size] + gidLength > gids.length)
+            gids = Arrays.copyOf(gids, Math.max(gids.length * 2, gidOffsets[size] + gidLength));
+        if (sortDataOffsets[size] + sortDataLength > sortData.length)
+            sortData = Arrays.copyOf(sortData, Math.max(sortData.length * 2, sortDataOffsets[size] + sortDataLength));
+    }
+
+    /** Returns a copy of the global id of the hit at the given index */
+    public byte[] gid(int index) {
+        return Arrays.copyOfRange(gids, gidOffsets[index], gidOffsets[index + 1]);
+    }
+
+    public double relevance(int index) { return relevance[index]; }
+
+    public boolean hasSortData(int index) { return hasSortData[index]; }
+
+    /** Returns a copy of the sort data of the hit at the given index, or null if it has none */
+    public byte[] sortData(int index) {
+        if ( ! hasSortData[index]) return null;
+        return Arrays.copyOfRange(sortData, sortDataOffsets[index], sortDataOffsets[index + 1]);
+    }
+
+    public int partId(int index) { return partIds[index]; }
+
+    public int distributionKey(int index) { return distributionKeys[index]; }
+
+    /** Returns the hit at the given index as a new lean hit instance */
+    public LeanHit get(int index) {
+        return hasSortData[index] ? new LeanHit(gid(index), partIds[index], distributionKeys[index], sortData(index))
+                                  : new LeanHit(gid(index), partIds[index], distributionKeys[index], relevance[index]);
+    }
+
+    /**
+     * Compares the hit at the given index in this to the hit at the given index in the given hits,
+     * as done by {@link LeanHit#compareTo}.
+     */
+    public int compare(int index, LeanHits other, int otherIndex) {
+        int result = hasSortData[index]
+                     ? Arrays.compareUnsigned(sortData, sortDataOffsets[index], sortDataOffsets[index + 1],
+                                              other.sortData, other.sortDataOffsets[otherIndex], other.sortDataOffsets[otherIndex + 1])
+                     : Double.compare(other.relevance[otherIndex], relevance[index]);
+        if (result != 0) return result;
+        return Arrays.compareUnsigned(gids, gidOffsets[index], gidOffsets[index + 1],
+                                      other.gids, other.gidOffsets[otherIndex], other.gidOffsets[otherIndex + 1]);
+    }
+
+}
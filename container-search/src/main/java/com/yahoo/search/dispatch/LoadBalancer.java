@@ -9,16 +9,21 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
  * LoadBalancer determines which group of content nodes should be accessed next for each search query when the internal java dispatcher is
- * used.
+ * used. This class is multithread safe, and lock-free when the adaptive scheduler is used.
  *
  * @author ollivir
  */
 public class LoadBalancer {
-    // The implementation here is a simplistic least queries in flight + round-robin load balancer
+    // The implementation here is either a round-robin load balancer, or a power-of-two-choices load balancer
+    // choosing the group with the least queries in flight weighted by latency
 
     private static final Logger log = Logger.getLogger(LoadBalancer.class.getName());
 
@@ -26,6 +31,10 @@ public class LoadBalancer {
     private static final long MIN_LATENCY_DECAY_RATE = 42;
     private static final double INITIAL_QUERY_TIME = 0.001;
     private static final double MIN_QUERY_TIME = 0.001;
+    /** The number of latency samples of a group required before its tail latency is used in scheduling */
+    private static final long MIN_TAIL_LATENCY_SAMPLES = 100;
+    /** The number of successful queries to a group between each recomputation of its tail latency */
+    private static final long TAIL_LATENCY_REFRESH_INTERVAL = 100;
 
     private final List<GroupStatus> scoreboard;
     private final GroupScheduler scheduler;
@@ -38,7 +47,7 @@ public class LoadBalancer {
         if (roundRobin || scoreboard.size() == 1) {
             this.scheduler = new RoundRobinScheduler(scoreboard);
         } else {
-            this.scheduler = new AdaptiveScheduler(new Random(), scoreboard);
+            this.scheduler = new AdaptiveScheduler(ThreadLocalRandom::current, scoreboard);
         }
     }
 
@@ -50,18 +59,16 @@ public class LoadBalancer {
      * @return The node group to target, or <i>empty</i> if the internal dispatch logic cannot be used
      */
     public Optional<Group> takeGroup(Set<Integer> rejectedGroups) {
-        synchronized (this) {
-            Optional<GroupStatus> best = scheduler.takeNextGroup(rejectedGroups);
-
-            if (best.isPresent()) {
-                GroupStatus gs = best.get();
-                gs.allocate();
-                Group ret = gs.group;
-                log.fine(() -> "Offering <" + ret + "> for query connection");
-                return Optional.of(ret);
-            } else {
-                return Optional.empty();
-            }
+        Optional<GroupStatus> best = scheduler.takeNextGroup(rejectedGroups);
+
+        if (best.isPresent()) {
+            GroupStatus gs = best.get();
+            gs.allocate();
+            Group ret = gs.group;
+            log.fine(() -> "Offering <" + ret + "> for query connection");
+            return Optional.of(ret);
+        } else {
+            return Optional.empty();
         }
     }
 
@@ -76,50 +83,61 @@ public class LoadBalancer {
      *            query execution time in milliseconds, used for adaptive load balancing
      */
     public void releaseGroup(Group group, boolean success, double searchTimeMs) {
-        synchronized (this) {
-            for (GroupStatus sched : scoreboard) {
-                if (sched.group.id() == group.id()) {
-                    sched.release(success, (double) searchTimeMs / 1000.0);
-                    break;
-                }
+        for (GroupStatus sched : scoreboard) {
+            if (sched.group.id() == group.id()) {
+                sched.release(success, searchTimeMs / 1000.0);
+                break;
             }
         }
     }
 
     static class GroupStatus {
         private final Group group;
-        private int allocations = 0;
-        private long queries = 0;
-        private double averageSearchTime = INITIAL_QUERY_TIME;
+        private final AtomicInteger allocations = new AtomicInteger(0);
+        private final AtomicLong queries = new AtomicLong(0);
+        /** The bits of the exponentially decaying average search time in seconds */
+        private final AtomicLong averageSearchTime = new AtomicLong(Double.doubleToLongBits(INITIAL_QUERY_TIME));
+        /** The 99th percentile search time in seconds, or 0 if not known. Refreshed periodically as this is used for every query */
+        private volatile double tailSearchTime = 0;
 
         GroupStatus(Group group) {
             this.group = group;
         }
 
         void allocate() {
-            allocations++;
+            allocations.incrementAndGet();
         }
 
         void release(boolean success, double searchTime) {
-            allocations--;
-            if (allocations < 0) {
+            if (allocations.getAndUpdate(allocations -> Math.max(0, allocations - 1)) <= 0) {
                 log.warning("Double free of query target group detected");
-                allocations = 0;
             }
             if (success) {
-                searchTime = Math.max(searchTime, MIN_QUERY_TIME);
-                double decayRate = Math.min(queries + MIN_LATENCY_DECAY_RATE, DEFAULT_LATENCY_DECAY_RATE);
-                averageSearchTime = (searchTime + (decayRate - 1) * averageSearchTime) / decayRate;
-                queries++;
+                double time = Math.max(searchTime, MIN_QUERY_TIME);
+                long previousQueries = queries.getAndIncrement();
+                double decayRate = Math.min(previousQueries + MIN_LATENCY_DECAY_RATE, DEFAULT_LATENCY_DECAY_RATE);
+                averageSearchTime.getAndUpdate(bits -> Double.doubleToLongBits((time + (decayRate - 1) * Double.longBitsToDouble(bits)) / decayRate));
+                group.latencies().record(Math.round(searchTime * 1000));
+                if ((previousQueries + 1) % TAIL_LATENCY_REFRESH_INTERVAL == 0)
+                    refreshTailSearchTime();
             }
         }
 
+        private void refreshTailSearchTime() {
+            if (group.latencies().count() >= MIN_TAIL_LATENCY_SAMPLES)
+                tailSearchTime = group.latencies().percentile(99) / 1000.0;
+        }
+
         double averageSearchTime() {
-            return averageSearchTime;
+            return Double.longBitsToDouble(averageSearchTime.get());
         }
 
-        double averageSearchTimeInverse() {
-            return 1.0 / averageSearchTime;
+        /**
+         * Returns the expected cost of sending a query to this group: The average search time weighted by
+         * the queries in flight including the new one, plus the 99th percentile search time if known.
+         */
+        double cost() {
+            return (allocations.get() + 1) * averageSearchTime() + tailSearchTime;
         }
 
         int groupId() {
@@ -127,8 +145,8 @@ public class LoadBalancer {
         }
 
         void setQueryStatistics(long queries, double averageSearchTime) {
-            this.queries = queries;
-            this.averageSearchTime = averageSearchTime;
+            this.queries.set(queries);
+            this.averageSearchTime.set(Double.doubleToLongBits(averageSearchTime));
         }
     }
 
@@ -145,7 +163,7 @@ public class LoadBalancer {
         }
 
         @Override
-        public Optional<GroupStatus> takeNextGroup(Set<Integer> rejectedGroups) {
+        public synchronized Optional<GroupStatus> takeNextGroup(Set<Integer> rejectedGroups) {
             GroupStatus bestCandidate = null;
             int bestIndex = needle;
 
@@ -206,52 +224,66 @@ public class LoadBalancer {
         }
     }
 
+    /**
+     * Chooses the group with the lowest cost of two randomly chosen groups. This avoids both the contention of
+     * keeping a global order of the groups, and the herding of always choosing the group which currently looks best.
+     */
     static class AdaptiveScheduler implements GroupScheduler {
-        private final Random random;
+        private final Supplier<Random> random;
         private final List<GroupStatus> scoreboard;
 
-        public AdaptiveScheduler(Random random, List<GroupStatus> scoreboard) {
+        public AdaptiveScheduler(Supplier<Random> random, List<GroupStatus> scoreboard) {
             this.random = random;
             this.scoreboard = scoreboard;
         }
 
-        private Optional<GroupStatus> selectGroup(double needle, boolean requireCoverage, Set<Integer> rejected) {
-            double sum = 0;
-            int n = 0;
+        private Optional<GroupStatus> selectGroup(boolean requireCoverage, Set<Integer> rejected) {
+            int candidates = 0;
             for (GroupStatus gs : scoreboard) {
-                if (rejected == null || !rejected.contains(gs.group.id())) {
-                    if (!requireCoverage || gs.group.hasSufficientCoverage()) {
-                        sum += gs.averageSearchTimeInverse();
-                        n++;
-                    }
+                if (isCandidate(gs, requireCoverage, rejected)) {
+                    candidates++;
                 }
             }
-            if (n == 0) {
+            if (candidates == 0) {
                 return Optional.empty();
             }
-            double accum = 0;
+            if (candidates == 1) {
+                return Optional.of(candidate(0, requireCoverage, rejected));
+            }
+            Random random = this.random.get();
+            int first = random.nextInt(candidates);
+            int second = random.nextInt(candidates - 1);
+            if (second >= first) {
+                second++;
+            }
+            GroupStatus firstCandidate = candidate(first, requireCoverage, rejected);
+            GroupStatus secondCandidate = candidate(second, requireCoverage, rejected);
+            return Optional.of(firstCandidate.cost() <= secondCandidate.cost() ? firstCandidate : secondCandidate);
+        }
+
+        private boolean isCandidate(GroupStatus gs, boolean requireCoverage, Set<Integer> rejected) {
+            if (rejected != null && rejected.contains(gs.group.id())) return false;
+            return !requireCoverage || gs.group.hasSufficientCoverage();
+        }
+
+        /** Returns the candidate at the given index among the candidates in the scoreboard */
+        private GroupStatus candidate(int index, boolean requireCoverage, Set<Integer> rejected) {
             for (GroupStatus gs : scoreboard) {
-                if (rejected == null || !rejected.contains(gs.group.id())) {
-                    if (!requireCoverage || gs.group.hasSufficientCoverage()) {
-                        accum += gs.averageSearchTimeInverse();
-                        if (needle < accum / sum) {
-                            return Optional.of(gs);
-                        }
-                    }
+                if (isCandidate(gs, requireCoverage, rejected) && index-- == 0) {
+                    return gs;
                 }
             }
-            return Optional.empty(); // should not happen here
+            throw new IllegalStateException("No candidate group at index " + index); // should not happen here
         }
 
         @Override
         public Optional<GroupStatus> takeNextGroup(Set<Integer> rejectedGroups) {
-            double needle = random.nextDouble();
-            Optional<GroupStatus> gs = selectGroup(needle, true, rejectedGroups);
+            Optional<GroupStatus> gs = selectGroup(true, rejectedGroups);
             if (gs.isPresent()) {
                 return gs;
             }
             // fallback - any coverage better than none
-            return selectGroup(needle, false, rejectedGroups);
+            return selectGroup(false, rejectedGroups);
         }
     }
 }
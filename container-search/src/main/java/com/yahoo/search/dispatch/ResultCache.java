@@ -0,0 +1,302 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.google.protobuf.ByteString;
+import com.yahoo.prelude.fastsearch.GroupingListHit;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.Hit;
+import com.yahoo.searchlib.aggregation.Grouping;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A size bounded cache of the results of search requests, keyed on the canonical serialization of the request.
+ *
+ * Eviction follows W-TinyLFU: New entries enter a small LRU window. An entry leaving the window only replaces
+ * the least recently used entry of the main area if its key has been requested more often, as estimated by a
+ * frequency sketch which is halved periodically to follow changes in popularity. This keeps the popular queries
+ * cached while a stream of one-off queries passes through the window.
+ *
+ * Entries expire after a fixed time to live, and are all dropped when the content generation changes.
+ * The dispatcher uses the number of active documents in the cluster as content generation, as the content
+ * nodes expose nothing better. This means that updates which do not add or remove documents are only visible
+ * once the cached results expire, and that caching is of little use while documents are being added or removed
+ * continuously, as the generation then changes with almost every ping. As the cache is owned by a dispatcher
+ * it is also dropped on reconfiguration.
+ *
+ * This class is multithread safe. To avoid contention between queries, large caches are split into stripes
+ * selected by the hash of the key, each with its own lock and eviction state.
+ *
+ * @author agent
+ */
+class ResultCache {
+
+    /** The least number of entries in each stripe when a cache is split into multiple stripes */
+    private static final int minStripeCapacity = 1024;
+    private static final int maxStripes = 16;
+
+    private final long timeToLive;
+    private final Clock clock;
+    private final Stripe[] stripes;
+
+    ResultCache(int maxEntries, Duration timeToLive, Clock clock) {
+        if (maxEntries < 1) throw new IllegalArgumentException("A result cache must have room for at least one entry");
+        this.timeToLive = timeToLive.toMillis();
+        this.clock = clock;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(maxStripes, maxEntries / minStripeCapacity)));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new Stripe(maxEntries / stripeCount + (i < maxEntries % stripeCount ? 1 : 0));
+    }
+
+    /**
+     * Returns the cached result of the request having the given key, or empty if it is not cached
+     * or has expired. If the given content generation differs from that of the cached results, they are dropped.
+     */
+    Optional<Entry> get(ByteString key, long contentGeneration) {
+        return stripeOf(key).get(key, contentGeneration);
+    }
+
+    /**
+     * Caches the given invoker result of the request having the given key, if it is complete and was produced
+     * from the current content generation. This must be called before the invoker result is completed.
+     */
+    void put(ByteString key, long contentGeneration, InvokerResult result, int offset) {
+        Optional<Entry> entry = Entry.from(result, offset, clock.millis() + timeToLive);
+        if (entry.isEmpty()) return;
+        stripeOf(key).put(key, contentGeneration, entry.get());
+    }
+
+    /**
+     * Returns the number of results in this, including expired ones not yet dropped,
+     * and those of a previous content generation in stripes not accessed since it changed
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    /** Returns the number of independently locked stripes of this */
+    int stripeCount() { return stripes.length; }
+
+    private Stripe stripeOf(ByteString key) {
+        return stripes[spread(key.hashCode()) & (stripes.length - 1)];
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+
+    /** The part of this cache holding the results of the keys hashing to it. Access is synchronized on this. */
+    private class Stripe {
+
+        private final int windowCapacity;
+        private final int mainCapacity;
+
+        private final Map<ByteString, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<ByteString, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch frequencies;
+
+        private long contentGeneration = 0;
+
+        Stripe(int maxEntries) {
+            this.windowCapacity = Math.max(1, maxEntries / 100);
+            this.mainCapacity = maxEntries - windowCapacity;
+            this.frequencies = new FrequencySketch(maxEntries);
+        }
+
+        synchronized Optional<Entry> get(ByteString key, long contentGeneration) {
+            if (contentGeneration != this.contentGeneration) {
+                window.clear();
+                main.clear();
+                this.contentGeneration = contentGeneration;
+            }
+            frequencies.increment(key);
+
+            Entry entry = window.get(key);
+            if (entry == null)
+                entry = main.get(key);
+            if (entry == null) return Optional.empty();
+
+            if (entry.expiry <= clock.millis()) {
+                window.remove(key);
+                main.remove(key);
+                return Optional.empty();
+            }
+            return Optional.of(entry);
+        }
+
+        synchronized void put(ByteString key, long contentGeneration, Entry entry) {
+            if (contentGeneration != this.contentGeneration) return;
+
+            if (main.containsKey(key)) {
+                main.put(key, entry);
+                return;
+            }
+            window.put(key, entry);
+            if (window.size() <= windowCapacity) return;
+
+            Iterator<Map.Entry<ByteString, Entry>> windowEntries = window.entrySet().iterator();
+            Map.Entry<ByteString, Entry> candidate = windowEntries.next();
+            windowEntries.remove();
+            if (main.size() < mainCapacity) {
+                main.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+            if (mainCapacity == 0) return;
+
+            Iterator<Map.Entry<ByteString, Entry>> mainEntries = main.entrySet().iterator();
+            ByteString victim = mainEntries.next().getKey();
+            if (frequencies.frequency(candidate.getKey()) > frequencies.frequency(victim)) {
+                mainEntries.remove();
+                main.put(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        synchronized int size() { return window.size() + main.size(); }
+
+    }
+
+    /** A cached result. This is immutable. */
+    static class Entry {
+
+        private final LeanHits hits;
+        private final long totalHitCount;
+        private final Coverage coverage;
+        private final List<GroupingListHit> groupingHits;
+        private final int offset;
+        private final long expiry;
+
+        private Entry(LeanHits hits, long totalHitCount, Coverage coverage, List<GroupingListHit> groupingHits,
+                      int offset, long expiry) {
+            this.hits = hits;
+            this.totalHitCount = totalHitCount;
+            this.coverage = coverage;
+            this.groupingHits = groupingHits;
+            this.offset = offset;
+            this.expiry = expiry;
+        }
+
+        /** Returns a new invoker result for the given query containing the cached result, and updates the query offset */
+        InvokerResult toInvokerResult(Query query) {
+            query.setOffset(offset);
+            InvokerResult result = new InvokerResult(query, hits.size());
+            result.setCached(true);
+            result.getLeanHits().addAll(hits);
+            result.getResult().setTotalHitCount(totalHitCount);
+            result.getResult().setCoverage(copyOf(coverage));
+            for (GroupingListHit hit : groupingHits)
+                result.getResult().hits().add(copyOf(hit));
+            return result;
+        }
+
+        /**
+         * Returns an entry holding the given result, or empty if it should not be cached because it is
+         * incomplete or contains data which cannot be recreated from the lean hits and grouping lists.
+         */
+        static Optional<Entry> from(InvokerResult invokerResult, int offset, long expiry) {
+            Result result = invokerResult.getResult();
+            if (result.hits().getErrorHit() != null) return Optional.empty();
+            Coverage coverage = result.getCoverage(false);
+            if (coverage == null || ! coverage.getFull() || coverage.isDegraded()) return Optional.empty();
+
+            List<GroupingListHit> groupingHits = new ArrayList<>();
+            for (Hit hit : result.hits().asUnorderedHits()) {
+                if ( ! (hit instanceof GroupingListHit)) return Optional.empty();
+                groupingHits.add(copyOf((GroupingListHit)hit));
+            }
+            LeanHits hits = new LeanHits(invokerResult.getLeanHits().size());
+            hits.addAll(invokerResult.getLeanHits());
+            return Optional.of(new Entry(hits, result.getTotalHitCount(),
+                                         copyOf(coverage), groupingHits, offset, expiry));
+        }
+
+        private static Coverage copyOf(Coverage coverage) {
+            return new Coverage(coverage.getDocs(), coverage.getActive(), coverage.getNodes(), coverage.getResultSets())
+                    .setSoonActive(coverage.getSoonActive())
+                    .setNodesTried(coverage.getNodesTried());
+        }
+
+        private static GroupingListHit copyOf(GroupingListHit hit) {
+            List<Grouping> groupingList = new ArrayList<>(hit.getGroupingList().size());
+            for (Grouping grouping : hit.getGroupingList())
+                groupingList.add(grouping.clone());
+            return new GroupingListHit(groupingList, hit.getDocsumDefinitionSet());
+        }
+
+    }
+
+    /**
+     * Estimates how often keys are requested, using a count-min sketch of 4 rows of counters saturating at 15.
+     * All counters are halved after a sample of 10 requests per cache entry, so old popularity ages out.
+     */
+    private static class FrequencySketch {
+
+        private static final int rows = 4;
+        private static final int maxCount = 15;
+        private static final int[] seeds = { 0x97cb3127, 0x9e3779b9, 0x7feb352d, 0x27d4eb2f };
+
+        private final byte[][] counters;
+        private final int shift;
+        private final int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch(int maxEntries) {
+            int width = Integer.highestOneBit(Math.max(16, Math.min(maxEntries, 1 << 24)) * 4 - 1);
+            this.counters = new byte[rows][width];
+            this.shift = Integer.numberOfLeadingZeros(width) + 1;
+            this.sampleSize = 10 * Math.max(16, maxEntries);
+        }
+
+        /** Increments the smallest counters of the given key, which reduces the overestimation from collisions */
+        void increment(ByteString key) {
+            int hash = spread(key.hashCode());
+            int frequency = frequency(key);
+            if (frequency == maxCount) return;
+
+            for (int row = 0; row < rows; row++) {
+                int index = indexOf(hash, row);
+                if (counters[row][index] == frequency)
+                    counters[row][index]++;
+            }
+            if (++additions >= sampleSize)
+                halve();
+        }
+
+        int frequency(ByteString key) {
+            int hash = spread(key.hashCode());
+            int frequency = maxCount;
+            for (int row = 0; row < rows; row++)
+                frequency = Math.min(frequency, counters[row][indexOf(hash, row)]);
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            return (hash * seeds[row]) >>> shift;
+        }
+
+        private void halve() {
+            for (byte[] row : counters)
+                for (int i = 0; i < row.length; i++)
+                    row[i] >>= 1;
+            additions /= 2;
+        }
+
+    }
+
+}
@@ -52,6 +52,10 @@ public abstract class SearchInvoker extends CloseableInvoker {
         }
     }
 
+    protected Optional<Node> node() {
+        return node;
+    }
+
     protected Optional<Integer> distributionKey() {
         return node.map(Node::key);
     }
@@ -0,0 +1,172 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.rpc;
+
+import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.prelude.fastsearch.DocsumDefinition;
+import com.yahoo.prelude.fastsearch.DocumentDatabase;
+import com.yahoo.prelude.fastsearch.FastHit;
+import com.yahoo.search.result.Hit;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Injector;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeInserter;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A memory bounded cache of document summaries which do not depend on the query,
+ * keyed on document type, summary class and global id.
+ *
+ * Summaries are kept as binary slime, which is compact and makes the memory used by each known,
+ * and decoded when used. The least recently used summaries are evicted when the memory budget is exceeded,
+ * and summaries older than the max age are not used, such that document changes become visible within that time.
+ *
+ * This class is multithread safe.
+ *
+ * @author agent
+ */
+public class DocsumCache {
+
+    private static final String HITS_METRIC = "dispatch_docsum_cache_hits";
+    private static final String MISSES_METRIC = "dispatch_docsum_cache_misses";
+
+    /** The approximate memory used by an entry in addition to the summary itself */
+    private static final int entryOverhead = 128;
+
+    private final long maxMemory;
+    private final long maxAge;
+    private final Clock clock;
+    private final Metric metric;
+    private final Metric.Context metricContext;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memory = 0;
+
+    public DocsumCache(long maxMemory, Duration maxAge, Clock clock, Metric metric) {
+        this.maxMemory = maxMemory;
+        this.maxAge = maxAge.toMillis();
+        this.clock = clock;
+        this.metric = metric;
+        this.metricContext = metric.createContext(null);
+    }
+
+    /** Fills the given hits with the summaries of the given class found in this, and returns the hits which were not filled */
+    List<FastHit> fill(List<FastHit> hits, DocumentDatabase documentDb, String summaryClass) {
+        List<FastHit> misses = new ArrayList<>(hits.size());
+        byte[][] summaries = new byte[hits.size()][];
+        long now = clock.millis();
+        synchronized (this) {
+            for (int i = 0; i < hits.size(); i++) {
+                Key key = new Key(documentDb.getName(), summaryClass, hits.get(i).getRawGlobalId());
+                Entry entry = entries.get(key);
+                if (entry == null) continue;
+
+                if (entry.created + maxAge <= now)
+                    remove(key);
+                else
+                    summaries[i] = entry.summary;
+            }
+        }
+
+        for (int i = 0; i < hits.size(); i++) {
+            FastHit hit = hits.get(i);
+            if (summaries[i] == null) {
+                misses.add(hit);
+                continue;
+            }
+            hit.setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
+            hit.addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass),
+                           new SlimeAdapter(BinaryFormat.decode(summaries[i]).get()));
+            hit.setFilled(summaryClass);
+        }
+        metric.add(HITS_METRIC, hits.size() - misses.size(), metricContext);
+        metric.add(MISSES_METRIC, misses.size(), metricContext);
+        return misses;
+    }
+
+    /** Adds the given summary of the given hit to this, unless the summary class is dynamic */
+    void put(FastHit hit, DocumentDatabase documentDb, String summaryClass, Inspector summary) {
+        DocsumDefinition docsumDefinition = documentDb.getDocsumDefinitionSet().getDocsum(summaryClass);
+        if (docsumDefinition.isDynamic()) return;
+
+        Slime copy = new Slime();
+        new Injector().inject(summary, new SlimeInserter(copy));
+        byte[] encoded = BinaryFormat.encode(copy);
+        if (encoded.length + entryOverhead > maxMemory) return;
+
+        Key key = new Key(documentDb.getName(), summaryClass, hit.getRawGlobalId());
+        Entry entry = new Entry(encoded, clock.millis());
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            memory += entry.memory();
+            for (Iterator<Entry> i = entries.values().iterator(); memory > maxMemory; ) {
+                memory -= i.next().memory();
+                i.remove();
+            }
+        }
+    }
+
+    /** Returns the approximate memory in bytes used by the summaries in this */
+    public synchronized long memory() { return memory; }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null)
+            memory -= removed.memory();
+    }
+
+    private static class Key {
+
+        private final String documentType;
+        private final String summaryClass;
+        private final byte[] globalId;
+        private final int hashCode;
+
+        Key(String documentType, String summaryClass, byte[] globalId) {
+            this.documentType = documentType;
+            this.summaryClass = summaryClass;
+            this.globalId = globalId;
+            this.hashCode = 31 * Objects.hash(documentType, summaryClass) + Arrays.hashCode(globalId);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Key)) return false;
+            Key other = (Key)o;
+            return Arrays.equals(globalId, other.globalId)
+                   && documentType.equals(other.documentType)
+                   && Objects.equals(summaryClass, other.summaryClass);
+        }
+
+    }
+
+    private static class Entry {
+
+        final byte[] summary;
+        final long created;
+
+        Entry(byte[] summary, long created) {
+            this.summary = summary;
+            this.created = created;
+        }
+
+        long memory() { return summary.length + entryOverhead; }
+
+    }
+
+}
@@ -16,7 +16,6 @@ import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.InvokerResult;
-import com.yahoo.search.dispatch.LeanHit;
 import com.yahoo.search.grouping.vespa.GroupingExecutor;
 import com.yahoo.search.query.Model;
 import com.yahoo.search.query.QueryTree;
@@ -41,6 +40,20 @@ public class ProtobufSerialization {
         return convertFromQuery(query, serverId).toByteArray();
     }
 
+    /**
+     * Returns a canonical serialization of the parts of the given query which determine its search result,
+     * for use as a result cache key. This excludes the timeout, trace level and backend session settings.
+     */
+    public static ByteString serializeResultCacheKey(Query query) {
+        return convertFromQuery(query, null).toBuilder()
+                .clearTimeout()
+                .clearTraceLevel()
+                .clearCacheGrouping()
+                .build()
+                .toByteString();
+    }
+
+    /** Converts the given query to a search request, which includes the session key unless the server id is null */
     private static SearchProtocol.SearchRequest convertFromQuery(Query query, String serverId) {
         var builder = SearchProtocol.SearchRequest.newBuilder().setHits(query.getHits()).setOffset(query.getOffset())
                 .setTimeout((int) query.getTimeLeft());
@@ -51,7 +64,7 @@ public class ProtobufSerialization {
         }
         builder.setQueryTreeBlob(serializeQueryTree(query.getModel().getQueryTree()));
 
-        if (query.getGroupingSessionCache() || query.getRanking().getQueryCache()) {
+        if (serverId != null && (query.getGroupingSessionCache() || query.getRanking().getQueryCache())) {
             // TODO verify that the session key is included whenever rank properties would have been
             builder.setSessionKey(query.getSessionId(serverId).toString());
         }
@@ -210,12 +223,8 @@ public class ProtobufSerialization {
             result.getResult().hits().add(hit);
         }
 
-        for (var replyHit : protobuf.getHitsList()) {
-            LeanHit hit = (replyHit.getSortData().isEmpty())
-                    ? new LeanHit(replyHit.getGlobalId().toByteArray(), partId, distKey, replyHit.getRelevance())
-                    : new LeanHit(replyHit.getGlobalId().toByteArray(), partId, distKey, replyHit.getSortData().toByteArray());
-            result.getLeanHits().add(hit);
-        }
+        for (var replyHit : protobuf.getHitsList())
+            result.getLeanHits().add(replyHit.getGlobalId(), partId, distKey, replyHit.getRelevance(), replyHit.getSortData());
 
         var slimeTrace = protobuf.getSlimeTrace();
         if (slimeTrace != null && !slimeTrace.isEmpty()) {
@@ -23,9 +23,11 @@ import com.yahoo.slime.BinaryFormat;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -43,16 +45,18 @@ public class RpcFillInvoker extends FillInvoker {
 
     private final DocumentDatabase documentDb;
     private final RpcResourcePool resourcePool;
+    private final Optional<DocsumCache> docsumCache;
     private GetDocsumsResponseReceiver responseReceiver;
 
-    RpcFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb) {
+    RpcFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, Optional<DocsumCache> docsumCache) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
+        this.docsumCache = docsumCache;
     }
 
     @Override
     protected void sendFillRequest(Result result, String summaryClass) {
-        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result);
+        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result, summaryClass);
         Query query = result.getQuery();
 
         CompressionType compression = CompressionType
@@ -63,7 +67,7 @@ public class RpcFillInvoker extends FillInvoker {
             query.trace("RpcSlime: Not resending query during document summary fetching", 3);
         }
 
-        responseReceiver = new GetDocsumsResponseReceiver(hitsByNode.size(), resourcePool.compressor(), result);
+        responseReceiver = new GetDocsumsResponseReceiver(hitsByNode.size(), resourcePool.compressor(), result, docsumCache);
         for (Map.Entry<Integer, List<FastHit>> nodeHits : hitsByNode.entrySet()) {
             sendGetDocsumsRequest(nodeHits.getKey(), nodeHits.getValue(), summaryClass, compression, result, responseReceiver);
         }
@@ -85,17 +89,20 @@ public class RpcFillInvoker extends FillInvoker {
         // nothing to release
     }
 
-    /** Return a map of hits by their search node (partition) id */
-    private static ListMap<Integer, FastHit> hitsByNode(Result result) {
-        ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+    /** Return a map of the hits which are not filled from the docsum cache by their search node (partition) id */
+    private ListMap<Integer, FastHit> hitsByNode(Result result, String summaryClass) {
+        List<FastHit> hits = new ArrayList<>();
         for (Iterator<Hit> i = result.hits().unorderedDeepIterator(); i.hasNext();) {
             Hit h = i.next();
-            if (!(h instanceof FastHit))
-                continue;
-            FastHit hit = (FastHit) h;
+            if (h instanceof FastHit)
+                hits.add((FastHit) h);
+        }
+        if (docsumCache.isPresent())
+            hits = docsumCache.get().fill(hits, documentDb, summaryClass);
 
+        ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+        for (FastHit hit : hits)
             hitsByNode.put(hit.getDistributionKey(), hit);
-        }
         return hitsByNode;
     }
 
@@ -152,6 +159,7 @@ public class RpcFillInvoker extends FillInvoker {
         private final BlockingQueue<Client.ResponseOrError<GetDocsumsResponse>> responses;
         private final Compressor compressor;
         private final Result result;
+        private final Optional<DocsumCache> docsumCache;
 
         /** Whether we have already logged/notified about an error - to avoid spamming */
         private boolean hasReportedError = false;
@@ -159,11 +167,12 @@ public class RpcFillInvoker extends FillInvoker {
         /** The number of responses we should receive (and process) before this is complete */
         private int outstandingResponses;
 
-        GetDocsumsResponseReceiver(int requestCount, Compressor compressor, Result result) {
+        GetDocsumsResponseReceiver(int requestCount, Compressor compressor, Result result, Optional<DocsumCache> docsumCache) {
             this.compressor = compressor;
-            responses = new LinkedBlockingQueue<>(requestCount);
+            responses = new LinkedBlockingQueue<>(Math.max(1, requestCount));
             outstandingResponses = requestCount;
             this.result = result;
+            this.docsumCache = docsumCache;
         }
 
         /** Called by a thread belonging to the client when a valid response becomes available */
@@ -249,6 +258,8 @@ public class RpcFillInvoker extends FillInvoker {
                     hits.get(i).setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
                     hits.get(i).addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
                     hits.get(i).setFilled(summaryClass);
+                    if (docsumCache.isPresent())
+                        docsumCache.get().put(hits.get(i), documentDb, summaryClass, root.field("docsums").entry(i).field("docsum"));
                 } else {
                     skippedHits++;
                 }
@@ -15,6 +15,7 @@ import com.yahoo.search.dispatch.SearchInvoker;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.PingFactory;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.query.Ranking;
 
 import java.util.Optional;
 import java.util.concurrent.Callable;
@@ -47,14 +48,21 @@ public class RpcInvokerFactory extends InvokerFactory implements PingFactory {
         boolean useProtoBuf = query.properties().getBoolean(Dispatcher.dispatchProtobuf, true);
         boolean useDispatchDotSummaries = query.properties().getBoolean(dispatchSummaries, false);
 
+        boolean cacheSummaries = ! summaryNeedsQuery
+                                 && ! query.getRanking().getQueryCache()
+                                 && ! query.properties().getBoolean(Ranking.RANKFEATURES, false)
+                                 && ! query.getNoCache();
+        Optional<DocsumCache> docsumCache = cacheSummaries ? rpcResourcePool.docsumCache() : Optional.empty();
+
         return  ((useDispatchDotSummaries || !useProtoBuf) && ! summaryNeedsQuery)
-                ? Optional.of(new RpcFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query)))
-                : Optional.of(new RpcProtobufFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), searcher.getServerId(), summaryNeedsQuery));
+                ? Optional.of(new RpcFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), docsumCache))
+                : Optional.of(new RpcProtobufFillInvoker(rpcResourcePool, searcher.getDocumentDatabase(query), searcher.getServerId(),
+                                                         summaryNeedsQuery, docsumCache));
     }
 
     // for testing
     public FillInvoker createFillInvoker(DocumentDatabase documentDb) {
-        return new RpcFillInvoker(rpcResourcePool, documentDb);
+        return new RpcFillInvoker(rpcResourcePool, documentDb, rpcResourcePool.docsumCache());
     }
 
     public void release() {
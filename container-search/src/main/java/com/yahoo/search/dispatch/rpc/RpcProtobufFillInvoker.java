@@ -22,9 +22,11 @@ import com.yahoo.search.result.Hit;
 import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.slime.BinaryFormat;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -46,6 +48,7 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     private final RpcResourcePool resourcePool;
     private final boolean summaryNeedsQuery;
     private final String serverId;
+    private final Optional<DocsumCache> docsumCache;
 
     private BlockingQueue<Pair<Client.ResponseOrError<ProtobufResponse>, List<FastHit>>> responses;
 
@@ -55,21 +58,23 @@ public class RpcProtobufFillInvoker extends FillInvoker {
     /** The number of responses we should receive (and process) before this is complete */
     private int outstandingResponses;
 
-    RpcProtobufFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, String serverId, boolean summaryNeedsQuery) {
+    RpcProtobufFillInvoker(RpcResourcePool resourcePool, DocumentDatabase documentDb, String serverId, boolean summaryNeedsQuery,
+                           Optional<DocsumCache> docsumCache) {
         this.documentDb = documentDb;
         this.resourcePool = resourcePool;
         this.serverId = serverId;
         this.summaryNeedsQuery = summaryNeedsQuery;
+        this.docsumCache = docsumCache;
     }
 
     @Override
     protected void sendFillRequest(Result result, String summaryClass) {
-        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result);
+        ListMap<Integer, FastHit> hitsByNode = hitsByNode(result, summaryClass);
 
         result.getQuery().trace(false, 5, "Sending ", hitsByNode.size(), " summary fetch requests with jrt/protobuf");
 
         outstandingResponses = hitsByNode.size();
-        responses = new LinkedBlockingQueue<>(outstandingResponses);
+        responses = new LinkedBlockingQueue<>(Math.max(1, outstandingResponses));
 
         var builder = ProtobufSerialization.createDocsumRequestBuilder(result.getQuery(), serverId, summaryClass, summaryNeedsQuery);
         for (Map.Entry<Integer, List<FastHit>> nodeHits : hitsByNode.entrySet()) {
@@ -99,17 +104,20 @@ public class RpcProtobufFillInvoker extends FillInvoker {
         responses.add(new Pair<>(response, hitsContext));
     }
 
-    /** Return a map of hits by their search node (partition) id */
-    private static ListMap<Integer, FastHit> hitsByNode(Result result) {
-        ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+    /** Return a map of the hits which are not filled from the docsum cache by their search node (partition) id */
+    private ListMap<Integer, FastHit> hitsByNode(Result result, String summaryClass) {
+        List<FastHit> hits = new ArrayList<>();
         for (Iterator<Hit> i = result.hits().unorderedDeepIterator(); i.hasNext();) {
             Hit h = i.next();
-            if (!(h instanceof FastHit))
-                continue;
-            FastHit hit = (FastHit) h;
+            if (h instanceof FastHit)
+                hits.add((FastHit) h);
+        }
+        if (docsumCache.isPresent())
+            hits = docsumCache.get().fill(hits, documentDb, summaryClass);
 
+        ListMap<Integer, FastHit> hitsByNode = new ListMap<>();
+        for (FastHit hit : hits)
             hitsByNode.put(hit.getDistributionKey(), hit);
-        }
         return hitsByNode;
     }
 
@@ -205,6 +213,8 @@ public class RpcProtobufFillInvoker extends FillInvoker {
                     hits.get(i).setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
                     hits.get(i).addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
                     hits.get(i).setFilled(summaryClass);
+                    if (docsumCache.isPresent())
+                        docsumCache.get().put(hits.get(i), documentDb, summaryClass, root.field("docsums").entry(i).field("docsum"));
                 } else {
                     skippedHits++;
                 }
@@ -5,16 +5,20 @@ import com.google.common.collect.ImmutableMap;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.compress.Compressor.Compression;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.processing.request.CompoundName;
 import com.yahoo.search.Query;
 import com.yahoo.search.dispatch.FillInvoker;
 import com.yahoo.search.dispatch.rpc.Client.NodeConnection;
 import com.yahoo.vespa.config.search.DispatchConfig;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
 
 /**
@@ -33,13 +37,21 @@ public class RpcResourcePool {
     /** Connections to the search nodes this talks to, indexed by node id ("partid") */
     private final ImmutableMap<Integer, NodeConnectionPool> nodeConnectionPools;
 
+    /** The cache of document summaries which do not depend on the query, if enabled */
+    private final Optional<DocsumCache> docsumCache;
+
     public RpcResourcePool(Map<Integer, NodeConnection> nodeConnections) {
+        this(nodeConnections, Optional.empty());
+    }
+
+    public RpcResourcePool(Map<Integer, NodeConnection> nodeConnections, Optional<DocsumCache> docsumCache) {
         var builder = new ImmutableMap.Builder<Integer, NodeConnectionPool>();
         nodeConnections.forEach((key, connection) -> builder.put(key, new NodeConnectionPool(Collections.singletonList(connection))));
         this.nodeConnectionPools = builder.build();
+        this.docsumCache = docsumCache;
     }
 
-    public RpcResourcePool(DispatchConfig dispatchConfig) {
+    public RpcResourcePool(DispatchConfig dispatchConfig, Metric metric) {
         var client = new RpcClient(dispatchConfig.numJrtTransportThreads());
 
         // Create rpc node connection pools indexed by the node distribution key
@@ -53,12 +65,23 @@ public class RpcResourcePool {
             builder.put(node.key(), new NodeConnectionPool(connections));
         }
         this.nodeConnectionPools = builder.build();
+        this.docsumCache = dispatchConfig.docsumCacheMemory() > 0
+                           ? Optional.of(new DocsumCache(dispatchConfig.docsumCacheMemory(),
+                                                         Duration.ofMillis((long)(dispatchConfig.docsumCacheMaxAge() * 1000)),
+                                                         Clock.systemUTC(),
+                                                         metric))
+                           : Optional.empty();
     }
 
     public Compressor compressor() {
         return compressor;
     }
 
+    /** Returns the cache of document summaries which do not depend on the query, or empty if it is disabled */
+    public Optional<DocsumCache> docsumCache() {
+        return docsumCache;
+    }
+
     public Compression compress(Query query, byte[] payload) {
         CompressionType compression = CompressionType.valueOf(query.properties().getString(dispatchCompression, "LZ4").toUpperCase());
         return compressor.compress(compression, payload);
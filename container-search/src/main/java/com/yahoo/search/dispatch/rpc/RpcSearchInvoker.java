@@ -33,6 +33,7 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
     private final BlockingQueue<Client.ResponseOrError<ProtobufResponse>> responses;
 
     private Query query;
+    private long sendTime;
 
     RpcSearchInvoker(VespaBackEndSearcher searcher, Node node, RpcResourcePool resourcePool) {
         super(Optional.of(node));
@@ -54,6 +55,7 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
         }
         query.trace(false, 5, "Sending search request with jrt/protobuf to node with dist key ", node.key());
 
+        sendTime = System.currentTimeMillis();
         var payload = ProtobufSerialization.serializeSearchRequest(query, searcher.getServerId());
         double timeoutSeconds = ((double) query.getTimeLeft() - 3.0) / 1000.0;
         Compressor.Compression compressionResult = resourcePool.compress(query, payload);
@@ -96,6 +98,9 @@ public class RpcSearchInvoker extends SearchInvoker implements Client.ResponseRe
     }
 
     public void receive(Client.ResponseOrError<ProtobufResponse> response) {
+        if (response.response().isPresent()) {
+            node.latencies().record(System.currentTimeMillis() - sendTime);
+        }
         responses.add(response);
         responseAvailable();
     }
@@ -21,6 +21,7 @@ public class Group {
     private final AtomicBoolean hasSufficientCoverage = new AtomicBoolean(true);
     private final AtomicBoolean hasFullCoverage = new AtomicBoolean(true);
     private final AtomicLong activeDocuments = new AtomicLong(0);
+    private final LatencyHistogram latencies = new LatencyHistogram();
 
     public Group(int id, List<Node> nodes) {
         this.id = id;
@@ -77,6 +78,9 @@ public class Group {
         return this.activeDocuments.get();
     }
 
+    /** Returns the latencies of the search requests answered by this group */
+    public LatencyHistogram latencies() { return latencies; }
+
     public boolean isFullCoverageStatusChanged(boolean hasFullCoverageNow) {
         boolean previousState = hasFullCoverage.getAndSet(hasFullCoverageNow);
         return previousState != hasFullCoverageNow;
@@ -0,0 +1,98 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.searchcluster;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in milliseconds, used to estimate latency percentiles.
+ * Latencies are counted in buckets whose widths grow exponentially, such that percentiles are estimated
+ * with a relative error of at most 10%. To track changes over time, all counts are halved each time
+ * a given number of samples have been recorded.
+ *
+ * This class is multithread safe and lock-free. Concurrent recording and decay may lose a sample
+ * now and then, which is acceptable for its purpose.
+ *
+ * @author agent
+ */
+public class LatencyHistogram {
+
+    private static final double bucketGrowth = 1.1;
+    private static final double logBucketGrowth = Math.log(bucketGrowth);
+    private static final int bucketCount = 128; // last bucket starts at about 3 minutes
+
+    private final AtomicLongArray buckets = new AtomicLongArray(bucketCount);
+    private final AtomicLong samples = new AtomicLong(0);
+    private final long decayInterval;
+
+    /** Creates a histogram which decays every 1000 samples */
+    public LatencyHistogram() {
+        this(1000);
+    }
+
+    /** Creates a histogram which halves all counts each time the given number of samples have been recorded */
+    public LatencyHistogram(long decayInterval) {
+        if (decayInterval < 1) throw new IllegalArgumentException("Decay interval must be positive, not " + decayInterval);
+        this.decayInterval = decayInterval;
+    }
+
+    /** Records a latency */
+    public void record(long latencyMillis) {
+        buckets.incrementAndGet(bucketOf(latencyMillis));
+        if (samples.incrementAndGet() % decayInterval == 0)
+            decay();
+    }
+
+    /** Returns the number of samples currently counted by this, which is reduced by decay */
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < bucketCount; i++)
+            count += buckets.get(i);
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the given percentile of the latencies recorded.
+     *
+     * @param percentile the percentile to return, a number between 0 and 100
+     * @return the upper bound in milliseconds of the bucket containing the given percentile, or -1 if there are no samples
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100)
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, not " + percentile);
+        long[] counts = new long[bucketCount];
+        long total = 0;
+        for (int i = 0; i < bucketCount; i++)
+            total += counts[i] = buckets.get(i);
+        if (total == 0) return -1;
+
+        long rank = Math.max(1, (long)Math.ceil(total * percentile / 100));
+        long cumulative = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank)
+                return upperBoundOf(i);
+        }
+        return upperBoundOf(bucketCount - 1);
+    }
+
+    private void decay() {
+        for (int i = 0; i < bucketCount; i++) {
+            long count;
+            do {
+                count = buckets.get(i);
+            } while ( ! buckets.compareAndSet(i, count, count / 2));
+        }
+    }
+
+    private static int bucketOf(long latencyMillis) {
+        if (latencyMillis <= 0) return 0;
+        return Math.min(bucketCount - 1, (int)(Math.log(latencyMillis + 1) / logBucketGrowth));
+    }
+
+    /** Returns an upper bound on the latencies counted in the given bucket */
+    private static long upperBoundOf(int bucket) {
+        return (long)Math.ceil(Math.pow(bucketGrowth, bucket + 1)) - 1;
+    }
+
+}
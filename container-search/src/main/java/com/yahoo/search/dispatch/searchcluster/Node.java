@@ -21,6 +21,7 @@ public class Node {
     private final AtomicBoolean statusIsKnown = new AtomicBoolean(false);
     private final AtomicBoolean working = new AtomicBoolean(true);
     private final AtomicLong activeDocuments = new AtomicLong(0);
+    private final LatencyHistogram latencies = new LatencyHistogram();
 
     public Node(int key, String hostname, int group) {
         this.key = key;
@@ -65,6 +66,9 @@ public class Node {
         return activeDocuments.get();
     }
 
+    /** Returns the latencies of the search requests answered by this node */
+    public LatencyHistogram latencies() { return latencies; }
+
     @Override
     public int hashCode() { return Objects.hash(hostname, key, pathIndex, group); }
 
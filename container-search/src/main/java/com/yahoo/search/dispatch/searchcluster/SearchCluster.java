@@ -180,6 +180,25 @@ public class SearchCluster implements NodeManager<Node> {
         return size() / groups.size();
     }
 
+    /**
+     * Returns whether slow search requests should be hedged to another group.
+     * This is only the case when it is enabled and each group consists of a single node,
+     * as nodes in different groups otherwise do not hold the same documents.
+     */
+    public boolean hedgingEnabled() {
+        if (dispatchConfig().hedgeLatencyPercentile() <= 0) return false;
+        if (orderedGroups().size() < 2) return false;
+        return orderedGroups().stream().allMatch(group -> group.nodes().size() == 1);
+    }
+
+    /** Returns the sum of the active documents in the working nodes of all groups, as last reported by pinging them */
+    public long activeDocuments() {
+        long activeDocuments = 0;
+        for (Group group : orderedGroups())
+            activeDocuments += group.getActiveDocuments();
+        return activeDocuments;
+    }
+
     public int groupsWithSufficientCoverage() {
         int covered = 0;
         for (Group g : orderedGroups) {
@@ -4,15 +4,16 @@ package com.yahoo.search.rendering;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.core.TreeNode;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Preconditions;
 import com.yahoo.data.JsonProducer;
 import com.yahoo.data.access.Inspectable;
 import com.yahoo.data.access.Inspector;
+import com.yahoo.data.access.ObjectTraverser;
 import com.yahoo.data.access.Type;
-import com.yahoo.data.access.simple.JsonRender;
-import com.yahoo.data.access.simple.Value;
 import com.yahoo.document.datatypes.FieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.datatypes.TensorFieldValue;
@@ -44,6 +45,7 @@ import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.HitGroup;
 import com.yahoo.search.result.NanNumber;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
 import com.yahoo.yolean.trace.TraceNode;
 import com.yahoo.yolean.trace.TraceVisitor;
 import org.json.JSONArray;
@@ -62,6 +64,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -673,6 +677,9 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
      */
     public static class FieldConsumer implements Hit.RawUtf8Consumer {
 
+        private static final char[] hexDigits = "0123456789ABCDEF".toCharArray();
+        private static final int maxPrintableAscii = 126;
+
         private final JsonGenerator generator;
         private final boolean debugRendering;
 
@@ -750,43 +757,152 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
             return true;
         }
 
-        private static Inspector wrapAsMap(Inspector data) {
-            if (data.type() != Type.ARRAY) return null;
-            if (data.entryCount() == 0) return null;
-            Value.ObjectValue map = new Value.ObjectValue();
+        /** Returns whether the given data is a non-empty array of key/value objects with string keys */
+        private static boolean isMap(Inspector data) {
+            if (data.type() != Type.ARRAY) return false;
+            if (data.entryCount() == 0) return false;
             for (int i = 0; i < data.entryCount(); i++) {
                 Inspector obj = data.entry(i);
-                if (obj.type() != Type.OBJECT) return null;
-                if (obj.fieldCount() != 2) return null;
-                Inspector key = obj.field("key");
-                Inspector value = obj.field("value");
-                if (key.type() != Type.STRING) return null;
-                if (! value.valid()) return null;
-                map.put(key.asString(), value);
-            }
-            return map;
-        }
-
-        private void renderInspector(Inspector data) throws IOException {
-            Inspector asMap = wrapAsMap(data);
-            if (asMap != null) {
-                StringBuilder intermediate = new StringBuilder();
-                JsonRender.render(asMap, intermediate, true);
-                generator.writeRawValue(intermediate.toString());
-            } else {
-                renderInspectorDirect(data);
+                if (obj.type() != Type.OBJECT) return false;
+                if (obj.fieldCount() != 2) return false;
+                if (obj.field("key").type() != Type.STRING) return false;
+                if ( ! obj.field("value").valid()) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Renders the given data with the same output as JsonRender, which escapes all characters
+         * outside printable ASCII.
+         *
+         * @param mapsAsObjects whether to render an array of key/value objects as a JSON object
+         */
+        private void renderInspector(Inspector data, boolean mapsAsObjects) throws IOException {
+            CharacterEscapes characterEscapes = generator.getCharacterEscapes();
+            int highestNonEscapedChar = generator.getHighestEscapedChar();
+            generator.setCharacterEscapes(JsonRenderEscapes.instance);
+            generator.setHighestNonEscapedChar(maxPrintableAscii);
+            try {
+                if (mapsAsObjects && isMap(data))
+                    renderMap(data);
+                else
+                    renderInspectorDirect(data);
+            }
+            finally {
+                generator.setCharacterEscapes(characterEscapes);
+                generator.setHighestNonEscapedChar(highestNonEscapedChar);
             }
         }
 
+        /** Renders an array of key/value objects as a JSON object, where the last value of a repeated key wins */
+        private void renderMap(Inspector data) throws IOException {
+            Map<String, Inspector> map = new LinkedHashMap<>();
+            for (int i = 0; i < data.entryCount(); i++) {
+                Inspector entry = data.entry(i);
+                map.put(entry.field("key").asString(), entry.field("value"));
+            }
+            generator.writeStartObject();
+            for (Map.Entry<String, Inspector> entry : map.entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                renderInspectorDirect(entry.getValue());
+            }
+            generator.writeEndObject();
+        }
+
+        /**
+         * Streams the given data to the generator. ASCII strings are written from their UTF-8 bytes,
+         * so summary data is mostly transcoded to JSON without creating intermediate strings.
+         */
         private void renderInspectorDirect(Inspector data) throws IOException {
-            StringBuilder intermediate = new StringBuilder();
-            JsonRender.render(data, intermediate, true);
-            generator.writeRawValue(intermediate.toString());
+            switch (data.type()) {
+                case EMPTY:
+                    generator.writeNull();
+                    break;
+                case BOOL:
+                    generator.writeBoolean(data.asBool());
+                    break;
+                case LONG:
+                    generator.writeNumber(data.asLong());
+                    break;
+                case DOUBLE:
+                    if (Double.isFinite(data.asDouble()))
+                        generator.writeNumber(data.asDouble());
+                    else
+                        generator.writeNull();
+                    break;
+                case STRING:
+                    byte[] utf8 = data.asUtf8();
+                    if (isAscii(utf8))
+                        generator.writeUTF8String(utf8, 0, utf8.length);
+                    else // let the generator escape the characters as UTF-16
+                        generator.writeString(data.asString());
+                    break;
+                case DATA:
+                    renderData(data.asData());
+                    break;
+                case ARRAY:
+                    generator.writeStartArray();
+                    for (int i = 0; i < data.entryCount(); i++)
+                        renderInspectorDirect(data.entry(i));
+                    generator.writeEndArray();
+                    break;
+                case OBJECT:
+                    generator.writeStartObject();
+                    data.traverse((ObjectTraverser) (name, value) -> {
+                        try {
+                            generator.writeFieldName(name);
+                            renderInspectorDirect(value);
+                        }
+                        catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                    generator.writeEndObject();
+                    break;
+            }
+        }
+
+        /** Returns whether the given UTF-8 string is all ASCII, which the generator escapes also when writing UTF-8 */
+        private static boolean isAscii(byte[] utf8) {
+            for (byte b : utf8)
+                if (b < 0) return false;
+            return true;
+        }
+
+        /** Renders raw data as a string of hex digits prefixed by 0x, as done by JsonRender */
+        private void renderData(byte[] data) throws IOException {
+            char[] hex = new char[2 + data.length * 2];
+            hex[0] = '0';
+            hex[1] = 'x';
+            for (int i = 0; i < data.length; i++) {
+                hex[2 + i * 2] = hexDigits[(data[i] >> 4) & 0xf];
+                hex[3 + i * 2] = hexDigits[data[i] & 0xf];
+            }
+            generator.writeString(hex, 0, hex.length);
+        }
+
+        /** The escapes of JsonRender for ASCII characters: The standard JSON escapes, and delete */
+        private static class JsonRenderEscapes extends CharacterEscapes {
+
+            static final JsonRenderEscapes instance = new JsonRenderEscapes();
+
+            private final int[] asciiEscapes = standardAsciiEscapesForJSON();
+
+            private JsonRenderEscapes() {
+                asciiEscapes[maxPrintableAscii + 1] = ESCAPE_STANDARD;
+            }
+
+            @Override
+            public int[] getEscapeCodesForAscii() { return asciiEscapes; }
+
+            @Override
+            public SerializableString getEscapeSequence(int ch) { return null; }
+
         }
 
         protected void renderFieldContents(Object field) throws IOException {
             if (field instanceof Inspectable && ! (field instanceof FeatureData)) {
-                renderInspector(((Inspectable)field).inspect());
+                renderInspector(((Inspectable)field).inspect(), true);
             } else {
                 renderFieldContentsDirect(field);
             }
@@ -806,7 +922,7 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
             } else if (field instanceof FeatureData) {
                 generator.writeRawValue(((FeatureData)field).toJson());
             } else if (field instanceof Inspectable) {
-                renderInspectorDirect(((Inspectable)field).inspect());
+                renderInspector(((Inspectable)field).inspect(), false);
             } else if (field instanceof JsonProducer) {
                 generator.writeRawValue(((JsonProducer) field).toJson());
             } else if (field instanceof StringFieldValue) {
@@ -853,17 +969,19 @@ public class JsonRenderer extends AsynchronousSectionedRenderer<Result> {
             generator.writeStartObject();
             generator.writeArrayFieldStart("cells");
             if (tensor.isPresent()) {
+                List<TensorType.Dimension> dimensions = tensor.get().type().dimensions();
                 for (Iterator<Tensor.Cell> i = tensor.get().cellIterator(); i.hasNext(); ) {
                     Tensor.Cell cell = i.next();
 
                     generator.writeStartObject();
 
                     generator.writeObjectFieldStart("address");
-                    for (int d = 0; d < cell.getKey().size(); d++)
-                        generator.writeObjectField(tensor.get().type().dimensions().get(d).name(), cell.getKey().label(d));
+                    for (int d = 0; d < dimensions.size(); d++)
+                        generator.writeStringField(dimensions.get(d).name(), cell.getKey().label(d));
                     generator.writeEndObject();
 
-                    generator.writeObjectField("value", cell.getValue());
+                    generator.writeFieldName("value");
+                    generator.writeNumber(cell.getValue());
 
                     generator.writeEndObject();
                 }
@@ -14,7 +14,7 @@ import java.util.List;
 class MockDispatcher extends Dispatcher {
 
     public static MockDispatcher create(List<Node> nodes) {
-        var rpcResourcePool = new RpcResourcePool(toDispatchConfig(nodes));
+        var rpcResourcePool = new RpcResourcePool(toDispatchConfig(nodes), new MockMetric());
 
         return create(nodes, rpcResourcePool, 1, new VipStatus());
     }
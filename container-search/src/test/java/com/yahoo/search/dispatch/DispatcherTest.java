@@ -1,7 +1,9 @@
 // Copyright 2019 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch;
 
+import com.yahoo.document.GlobalId;
 import com.yahoo.prelude.Pong;
+import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.prelude.fastsearch.test.MockMetric;
 import com.yahoo.processing.request.CompoundName;
@@ -11,9 +13,11 @@ import com.yahoo.search.cluster.ClusterMonitor;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.PingFactory;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
+import com.yahoo.search.result.Coverage;
 import com.yahoo.vespa.config.search.DispatchConfig;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.OptionalInt;
@@ -106,6 +110,39 @@ public class DispatcherTest {
         invokerFactory.verifyAllEventsProcessed();
     }
 
+    @Test
+    public void requireThatResultsAreCachedWhenEnabled() throws IOException {
+        SearchCluster cl = new MockSearchCluster("1", 1, 1);
+        DispatchConfig dispatchConfig = new DispatchConfig.Builder(createDispatchConfig()).resultCacheSize(10).build();
+        MockInvokerFactory invokerFactory = new MockInvokerFactory(cl, (n, a) -> true, (n, a) -> true);
+        Dispatcher disp = new Dispatcher(cl, dispatchConfig, invokerFactory, invokerFactory, new MockMetric());
+
+        Result result = search(disp, query("test"));
+        assertThat(result.isCached(), is(false));
+        invokerFactory.verifyStep(1);
+        result = search(disp, query("test"));
+        assertThat(result.isCached(), is(true));
+        assertThat(result.getConcreteHitCount(), is(1));
+        invokerFactory.verifyStep(1);
+
+        Query noCache = query("test");
+        noCache.setNoCache(true);
+        search(disp, noCache);
+        invokerFactory.verifyStep(2);
+    }
+
+    private static Query query(String queryString) {
+        Query q = new Query("?query=" + queryString);
+        q.properties().set(internalDispatch, "true");
+        return q;
+    }
+
+    private static Result search(Dispatcher dispatcher, Query query) throws IOException {
+        try (SearchInvoker invoker = dispatcher.getSearchInvoker(query, null).get()) {
+            return invoker.search(query, null);
+        }
+    }
+
     interface FactoryStep {
         public boolean returnInvoker(List<Node> nodes, boolean acceptIncompleteCoverage);
     }
@@ -129,14 +166,19 @@ public class DispatcherTest {
             boolean nonEmpty = events[step].returnInvoker(nodes, acceptIncompleteCoverage);
             step++;
             if (nonEmpty) {
-                return Optional.of(new MockInvoker(1));
+                return Optional.of(new MockInvoker(1, new Coverage(1, 1, 1))
+                                           .setHits(List.of(new FastHit(new byte[GlobalId.LENGTH], 1.0, 0, 1))));
             } else {
                 return Optional.empty();
             }
         }
 
         void verifyAllEventsProcessed() {
-            assertThat(step, is(events.length));
+            verifyStep(events.length);
+        }
+
+        void verifyStep(int expected) {
+            assertThat(step, is(expected));
         }
 
         @Override
@@ -7,6 +7,7 @@ import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.prelude.fastsearch.GroupingListHit;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
+import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 import com.yahoo.search.result.Coverage;
 import com.yahoo.search.result.DefaultErrorHit;
@@ -14,6 +15,7 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.Relevance;
 import com.yahoo.test.ManualClock;
+import com.yahoo.vespa.config.search.DispatchConfig;
 import org.junit.Test;
 
 import java.io.IOException;
@@ -27,6 +29,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
 import static com.yahoo.container.handler.Coverage.DEGRADED_BY_MATCH_PHASE;
@@ -270,6 +273,84 @@ public class InterleavedSearchInvokerTest {
         assertEquals(3, result.getQuery().getHits());
     }
 
+    @Test
+    public void requireThatMergeOfConcreteHitsRemovesDuplicatesAndKeepsTheBestHits() throws IOException {
+        InterleavedSearchInvoker invoker = createInterLeavedTestInvoker(Arrays.asList(10.0, 9.0, 5.0, 4.0),
+                                                                        Arrays.asList(9.0, 8.0, 1.0));
+        query.setHits(2);
+        query.setOffset(2);
+        Result result = invoker.search(query, null);
+        assertEquals(2, result.hits().size());
+        assertEquals(8.0, result.hits().get(0).getRelevance().getScore(), DELTA);
+        assertEquals(5.0, result.hits().get(1).getRelevance().getScore(), DELTA);
+    }
+
+    @Test
+    public void requireThatSlowRequestsAreHedgedToAnotherGroup() throws IOException {
+        DispatchConfig config = new DispatchConfig(new DispatchConfig.Builder().hedgeLatencyPercentile(95));
+        SearchCluster cluster = new MockSearchCluster("!", config, 3, 1);
+        assertTrue(cluster.hedgingEnabled());
+        Node slowNode = cluster.orderedGroups().get(0).nodes().get(0);
+        Node slowerCounterpart = cluster.orderedGroups().get(1).nodes().get(0);
+        Node counterpart = cluster.orderedGroups().get(2).nodes().get(0);
+        for (int i = 0; i < 100; i++) {
+            slowNode.latencies().record(10);
+            slowerCounterpart.latencies().record(20);
+            counterpart.latencies().record(5);
+        }
+        long slowNodeP95 = slowNode.latencies().percentile(95);
+
+        invokers.add(new MockInvoker(slowNode, createCoverage(100, 100, 100, 1, 1, 0)).setHits(createHits(List.of(2.0), 0, slowNode.key())));
+        SearchInvoker invoker = createInterleavedInvoker(cluster, 0, node -> {
+            assertEquals(counterpart, node);
+            SearchInvoker hedge = new MockInvoker(node, createCoverage(100, 100, 100, 1, 1, 0)).setHits(createHits(List.of(1.0), 0, node.key()));
+            invokers.add(hedge);
+            return Optional.of(hedge);
+        });
+
+        expectedEvents.add(new Event((int)slowNodeP95, (int)slowNodeP95, null)); // hedge the slow node
+        expectedEvents.add(new Event(5000 - (int)slowNodeP95, 2, 1)); // the hedge answers first
+
+        Result result = invoker.search(query, null);
+
+        assertTrue("All test scenario events processed", expectedEvents.isEmpty());
+        assertEquals(2, invokers.size());
+        assertEquals(1, result.hits().size());
+        assertEquals(1.0, result.hits().get(0).getRelevance().getScore(), DELTA);
+        Coverage coverage = result.getCoverage(true);
+        assertEquals(1, coverage.getNodesTried());
+        assertEquals(100, coverage.getDocs());
+        assertFalse(coverage.isDegradedByTimeout());
+    }
+
+    @Test
+    public void requireThatRequestsAreNotHedgedWhenGroupsHaveMultipleNodes() throws IOException {
+        DispatchConfig config = new DispatchConfig(new DispatchConfig.Builder().hedgeLatencyPercentile(95));
+        SearchCluster cluster = new MockSearchCluster("!", config, 2, 2);
+        assertFalse(cluster.hedgingEnabled());
+        Node fastNode = cluster.orderedGroups().get(0).nodes().get(0);
+        Node slowNode = cluster.orderedGroups().get(0).nodes().get(1);
+        for (int i = 0; i < 100; i++)
+            slowNode.latencies().record(10);
+
+        invokers.add(new MockInvoker(fastNode, createCoverage(100, 100, 100, 1, 1, 0)).setHits(createHits(List.of(3.0), 0, fastNode.key())));
+        invokers.add(new MockInvoker(slowNode, createCoverage(100, 100, 100, 1, 1, 0)).setHits(createHits(List.of(2.0), 1, slowNode.key())));
+        SearchInvoker invoker = createInterleavedInvoker(cluster, 0, node -> {
+            fail("Nodes with the same index in different groups do not hold the same documents, but " + node + " was hedged to");
+            return Optional.empty();
+        });
+
+        expectedEvents.add(new Event(5000, 5, 0));
+        expectedEvents.add(new Event(4995, 100, 1)); // the slow node is waited for
+
+        Result result = invoker.search(query, null);
+
+        assertTrue("All test scenario events processed", expectedEvents.isEmpty());
+        assertEquals(2, invokers.size());
+        assertEquals(2, result.hits().size());
+        assertEquals(200, result.getCoverage(true).getDocs());
+    }
+
     private static InterleavedSearchInvoker createInterLeavedTestInvoker(List<Double> a, List<Double> b) {
         SearchCluster cluster = new MockSearchCluster("!", 1, 2);
         List<SearchInvoker> invokers = new ArrayList<>();
@@ -322,11 +403,16 @@ public class InterleavedSearchInvokerTest {
     }
 
     private InterleavedSearchInvoker createInterleavedInvoker(SearchCluster searchCluster, int numInvokers) {
+        return createInterleavedInvoker(searchCluster, numInvokers, node -> Optional.empty());
+    }
+
+    private InterleavedSearchInvoker createInterleavedInvoker(SearchCluster searchCluster, int numInvokers,
+                                                              Function<Node, Optional<SearchInvoker>> hedgeInvokerFactory) {
         for (int i = 0; i < numInvokers; i++) {
             invokers.add(new MockInvoker(i));
         }
 
-        return new InterleavedSearchInvoker(invokers, searchCluster, null) {
+        return new InterleavedSearchInvoker(invokers, searchCluster, null, hedgeInvokerFactory) {
             @Override
             protected long currentTime() {
                 return clock.millis();
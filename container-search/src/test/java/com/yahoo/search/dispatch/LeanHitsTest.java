@@ -0,0 +1,88 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class LeanHitsTest {
+
+    @Test
+    public void testAddingAndReadingHits() {
+        LeanHits hits = new LeanHits(1);
+        hits.add(new byte[] { 'a', 'b' }, 1, 2, 0.5);
+        hits.add(new byte[] { 'c' }, 3, 4, new byte[] { 'x', 'y', 'z' });
+        hits.add(ByteString.copyFrom(new byte[] { 'd', 'e', 'f' }), 5, 6, 0.25, ByteString.EMPTY);
+        hits.add(ByteString.copyFrom(new byte[] { 'g' }), 7, 8, 0.0, ByteString.copyFrom(new byte[] { 'w' }));
+        hits.add(new byte[] { 'h' }, 9, 10, Double.NaN);
+        assertEquals(5, hits.size());
+
+        assertArrayEquals(new byte[] { 'a', 'b' }, hits.gid(0));
+        assertEquals(0.5, hits.relevance(0), 0);
+        assertFalse(hits.hasSortData(0));
+        assertNull(hits.sortData(0));
+        assertEquals(1, hits.partId(0));
+        assertEquals(2, hits.distributionKey(0));
+
+        assertArrayEquals(new byte[] { 'c' }, hits.gid(1));
+        assertArrayEquals(new byte[] { 'x', 'y', 'z' }, hits.sortData(1));
+        assertEquals(3, hits.partId(1));
+        assertEquals(4, hits.distributionKey(1));
+
+        assertArrayEquals(new byte[] { 'd', 'e', 'f' }, hits.gid(2));
+        assertEquals(0.25, hits.relevance(2), 0);
+        assertFalse(hits.hasSortData(2));
+
+        assertArrayEquals(new byte[] { 'g' }, hits.gid(3));
+        assertArrayEquals(new byte[] { 'w' }, hits.sortData(3));
+
+        assertEquals(Double.NEGATIVE_INFINITY, hits.relevance(4), 0);
+
+        LeanHits copy = new LeanHits(0);
+        copy.addAll(hits);
+        assertEquals(5, copy.size());
+        for (int i = 0; i < hits.size(); i++)
+            assertEquals(0, copy.compare(i, hits, i));
+
+        hits.clear();
+        assertTrue(hits.isEmpty());
+    }
+
+    @Test
+    public void testComparisonIsAsForLeanHit() {
+        byte[] gidA = { 'a' };
+        byte[] gidB = { 'b', 0 };
+        byte[] gidC = { (byte)0xff };
+        List<LeanHit> relevanceHits = List.of(new LeanHit(gidA, 0, 0, 1), new LeanHit(gidB, 0, 0, 1),
+                                              new LeanHit(gidC, 0, 0, 1), new LeanHit(gidA, 0, 0, 0),
+                                              new LeanHit(gidA, 0, 0, Double.NaN));
+        assertSameOrder(relevanceHits);
+        List<LeanHit> sortDataHits = List.of(new LeanHit(gidA, 0, 0, gidA), new LeanHit(gidB, 0, 0, gidA),
+                                             new LeanHit(gidA, 0, 0, gidB), new LeanHit(gidA, 0, 0, gidC),
+                                             new LeanHit(gidA, 0, 0, new byte[] { 'b' }));
+        assertSameOrder(sortDataHits);
+    }
+
+    private static void assertSameOrder(List<LeanHit> leanHits) {
+        LeanHits hits = new LeanHits(leanHits.size());
+        leanHits.forEach(hits::add);
+        for (int i = 0; i < leanHits.size(); i++) {
+            for (int j = 0; j < leanHits.size(); j++) {
+                assertEquals("Comparing hit " + i + " and " + j,
+                             Integer.signum(leanHits.get(i).compareTo(leanHits.get(j))),
+                             Integer.signum(hits.compare(i, hits, j)));
+            }
+        }
+    }
+
+}
@@ -14,10 +14,12 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
 
 import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
 import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
@@ -116,44 +118,58 @@ public class LoadBalancerTest {
     }
 
     @Test
-    public void requireEqualDistributionInFlatWeightListWithAdaptiveScheduler() {
+    public void requireThatAdaptiveSchedulerChoosesTheFasterOfTwoRandomGroups() {
         List<GroupStatus> scoreboard = new ArrayList<>();
         for (int i = 0; i < 5; i++) {
-            scoreboard.add(newGroupStatus(i));
+            GroupStatus gs = newGroupStatus(i);
+            gs.setQueryStatistics(1, 0.1 * (i + 1));
+            scoreboard.add(gs);
         }
-        Random seq = sequence(0.0, 0.1, 0.2, 0.39, 0.4, 0.6, 0.8, 0.99999);
-        AdaptiveScheduler sched = new AdaptiveScheduler(seq, scoreboard);
-
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(2));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(3));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(4));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(4));
+        Random seq = sequence(0, 3, 4, 0, 2, 2, 3, 0, 0, 2);
+        AdaptiveScheduler sched = new AdaptiveScheduler(() -> seq, scoreboard);
+
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0)); // 0 and 4
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0)); // 4 and 0
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(2)); // 2 and 3
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0)); // 3 and 0
+        assertThat(sched.takeNextGroup(Set.of(0)).get().groupId(), equalTo(1)); // 1 and 4
     }
 
     @Test
-    public void requireThatAdaptiveSchedulerObeysWeights() {
+    public void requireThatAdaptiveSchedulerAvoidsGroupsWithQueriesInFlight() {
         List<GroupStatus> scoreboard = new ArrayList<>();
-        for (int i = 0; i < 5; i++) {
+        for (int i = 0; i < 2; i++) {
             GroupStatus gs = newGroupStatus(i);
-            gs.setQueryStatistics(1, 0.1 * (i + 1));
+            gs.setQueryStatistics(1, 0.1);
             scoreboard.add(gs);
         }
-        Random seq = sequence(0.0, 0.4379, 0.4380, 0.6569, 0.6570, 0.8029, 0.8030, 0.9124, 0.9125);
-        AdaptiveScheduler sched = new AdaptiveScheduler(seq, scoreboard);
+        Random seq = sequence(0, 0);
+        AdaptiveScheduler sched = new AdaptiveScheduler(() -> seq, scoreboard);
 
         assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
+        scoreboard.get(0).allocate();
         assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
+        scoreboard.get(1).allocate();
+        scoreboard.get(1).allocate();
+        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(0));
+    }
+
+    @Test
+    public void requireThatAdaptiveSchedulerAvoidsGroupsWithHighTailLatency() {
+        List<GroupStatus> scoreboard = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            GroupStatus gs = newGroupStatus(i);
+            scoreboard.add(gs);
+        }
+        for (int i = 0; i < 100; i++) {
+            updateSearchTime(scoreboard.get(0), i < 95 ? 0.01 : 1.0);
+            updateSearchTime(scoreboard.get(1), 0.05);
+        }
+        scoreboard.get(0).setQueryStatistics(100, 0.01);
+        scoreboard.get(1).setQueryStatistics(100, 0.05);
+        assertThat(scoreboard.get(0).cost(), is(greaterThan(scoreboard.get(1).cost())));
+        AdaptiveScheduler sched = new AdaptiveScheduler(() -> sequence(0, 0), scoreboard);
         assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(1));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(2));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(2));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(3));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(3));
-        assertThat(sched.takeNextGroup(null).get().groupId(), equalTo(4));
     }
 
     private static void updateSearchTime(GroupStatus gs, double time) {
@@ -171,13 +187,13 @@ public class LoadBalancerTest {
         return new GroupStatus(dummyGroup);
     }
 
-    private Random sequence(double... values) {
+    private Random sequence(int... values) {
         return new Random() {
             private int index = 0;
 
             @Override
-            public double nextDouble() {
-                double retv = values[index];
+            public int nextInt(int bound) {
+                int retv = values[index];
                 index++;
                 if (index >= values.length) {
                     index = 0;
@@ -0,0 +1,140 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.google.protobuf.ByteString;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.test.ManualClock;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class ResultCacheTest {
+
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    public void testCachedResultsAreReturnedUntilExpiry() {
+        ResultCache cache = new ResultCache(100, Duration.ofSeconds(10), clock);
+        assertFalse(cache.get(key("a"), 1).isPresent());
+        cache.put(key("a"), 1, result(new Query(), 3, 1000), 0);
+
+        clock.advance(Duration.ofSeconds(9));
+        Query query = new Query("?offset=2");
+        Result result = search(cache.get(key("a"), 1).get(), query);
+        assertEquals(3, result.getHitCount());
+        assertEquals(1000, result.getTotalHitCount());
+        assertTrue(result.isCached());
+        assertEquals("The offset is trimmed as when the result was cached", 0, query.getOffset());
+        assertEquals(100, result.getCoverage(false).getDocs());
+
+        clock.advance(Duration.ofSeconds(1));
+        assertFalse(cache.get(key("a"), 1).isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testResultsAreDroppedWhenContentGenerationChanges() {
+        ResultCache cache = new ResultCache(100, Duration.ofSeconds(10), clock);
+        cache.get(key("a"), 1);
+        cache.put(key("a"), 1, result(new Query(), 3, 1000), 0);
+        assertTrue(cache.get(key("a"), 1).isPresent());
+
+        assertFalse(cache.get(key("a"), 2).isPresent());
+        assertEquals(0, cache.size());
+        cache.put(key("a"), 1, result(new Query(), 3, 1000), 0);
+        assertEquals("Results from the previous generation are not cached", 0, cache.size());
+    }
+
+    @Test
+    public void testIncompleteResultsAreNotCached() {
+        ResultCache cache = new ResultCache(100, Duration.ofSeconds(10), clock);
+        cache.get(key("a"), 1);
+
+        InvokerResult withError = result(new Query(), 3, 1000);
+        withError.getResult().hits().addError(ErrorMessage.createTimeout("Timed out"));
+        cache.put(key("a"), 1, withError, 0);
+        assertEquals(0, cache.size());
+
+        InvokerResult withPartialCoverage = result(new Query(), 3, 1000);
+        withPartialCoverage.getResult().setCoverage(new Coverage(50, 100, 1));
+        cache.put(key("a"), 1, withPartialCoverage, 0);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFrequentlyRequestedResultsAreNotEvictedByOneOffs() {
+        ResultCache cache = new ResultCache(100, Duration.ofSeconds(10), clock);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 99; i++)
+                requestAndCache(cache, "popular" + i);
+            for (int i = 0; i < 100; i++)
+                requestAndCache(cache, "one-off" + round + "." + i);
+        }
+        assertEquals(100, cache.size());
+
+        int cachedPopular = 0;
+        for (int i = 0; i < 99; i++) {
+            if (cache.get(key("popular" + i), 1).isPresent())
+                cachedPopular++;
+        }
+        // An LRU cache would retain none of them, while frequency estimation errors may cause a few to be evicted
+        assertTrue("Popular results cached: " + cachedPopular, cachedPopular >= 95);
+    }
+
+    @Test
+    public void testLargeCachesAreStriped() {
+        assertEquals(1, new ResultCache(2047, Duration.ofSeconds(10), clock).stripeCount());
+        ResultCache cache = new ResultCache(100000, Duration.ofSeconds(10), clock);
+        assertEquals(16, cache.stripeCount());
+
+        for (int i = 0; i < 1000; i++)
+            requestAndCache(cache, "query" + i);
+        assertEquals(1000, cache.size());
+        for (int i = 0; i < 1000; i++)
+            assertTrue(cache.get(key("query" + i), 1).isPresent());
+
+        for (int i = 0; i < 1000; i++)
+            assertFalse(cache.get(key("query" + i), 2).isPresent());
+        assertEquals(0, cache.size());
+    }
+
+    private void requestAndCache(ResultCache cache, String key) {
+        if (cache.get(key(key), 1).isEmpty())
+            cache.put(key(key), 1, result(new Query(), 1, 1), 0);
+    }
+
+    private static Result search(ResultCache.Entry cachedResult, Query query) {
+        CachedSearchInvoker invoker = new CachedSearchInvoker(cachedResult);
+        try {
+            return invoker.search(query, null);
+        }
+        catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ByteString key(String value) {
+        return ByteString.copyFromUtf8(value);
+    }
+
+    private static InvokerResult result(Query query, int hitCount, long totalHitCount) {
+        InvokerResult result = new InvokerResult(query, hitCount);
+        for (int i = 0; i < hitCount; i++)
+            result.getLeanHits().add(new LeanHit(new byte[] { (byte)i }, 0, 1, 1.0 / (i + 1)));
+        result.getResult().setTotalHitCount(totalHitCount);
+        result.getResult().setCoverage(new Coverage(100, 100, 1));
+        return result;
+    }
+
+}
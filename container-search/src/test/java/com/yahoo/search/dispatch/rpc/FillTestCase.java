@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch.rpc;
 
+import com.yahoo.jdisc.Metric;
 import com.yahoo.prelude.fastsearch.DocsumDefinition;
 import com.yahoo.prelude.fastsearch.DocsumDefinitionSet;
 import com.yahoo.prelude.fastsearch.DocsumField;
@@ -8,17 +9,20 @@ import com.yahoo.prelude.fastsearch.DocumentDatabase;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
-
+import com.yahoo.test.ManualClock;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests using a dispatcher to fill a result
@@ -183,6 +187,45 @@ public class FillTestCase {
         assertEquals("Could not fill hits from unknown node 1", result.hits().getError().getDetailedMessage());
     }
 
+    @Test
+    public void testFillingFromDocsumCache() {
+        Map<Integer, Client.NodeConnection> nodes = new HashMap<>();
+        nodes.put(0, client.createConnection("host0", 123));
+        ManualClock clock = new ManualClock();
+        CountingMetric metric = new CountingMetric();
+        DocsumCache docsumCache = new DocsumCache(1024 * 1024, Duration.ofSeconds(60), clock, metric);
+        RpcResourcePool rpcResourcePool = new RpcResourcePool(nodes, Optional.of(docsumCache));
+        RpcInvokerFactory factory = new RpcInvokerFactory(rpcResourcePool, null);
+
+        client.setDocsumReponse("host0", 0, "summaryClass1", map("field1", "s.0.0", "field2", 0));
+        client.setDocsumReponse("host0", 1, "summaryClass1", map("field1", "s.0.1", "field2", 1));
+
+        Result result = new Result(new Query());
+        result.hits().add(createHit(0, 0));
+        result.hits().add(createHit(0, 1));
+        factory.createFillInvoker(db()).fill(result, "summaryClass1");
+        assertEquals("s.0.1", result.hits().get("hit:1").getField("field1").toString());
+        assertEquals(2, (int)metric.values.get("dispatch_docsum_cache_misses"));
+        assertTrue(docsumCache.memory() > 0);
+
+        client.setMalfunctioning(true);
+        Result cachedResult = new Result(new Query());
+        cachedResult.hits().add(createHit(0, 1));
+        factory.createFillInvoker(db()).fill(cachedResult, "summaryClass1");
+        assertNull(cachedResult.hits().getError());
+        assertEquals("s.0.1", cachedResult.hits().get("hit:1").getField("field1").toString());
+        assertEquals(1L, cachedResult.hits().get("hit:1").getField("field2"));
+        assertTrue(cachedResult.hits().get("hit:1").isFilled("summaryClass1"));
+        assertEquals(1, (int)metric.values.get("dispatch_docsum_cache_hits"));
+
+        clock.advance(Duration.ofSeconds(60));
+        Result expiredResult = new Result(new Query());
+        expiredResult.hits().add(createHit(0, 1));
+        factory.createFillInvoker(db()).fill(expiredResult, "summaryClass1");
+        assertEquals("Malfunctioning", expiredResult.hits().getError().getDetailedMessage());
+        assertEquals(3, (int)metric.values.get("dispatch_docsum_cache_misses"));
+    }
+
     private DocumentDatabase db() {
         List<DocsumField> fields = new ArrayList<>();
         fields.add(DocsumField.create("field1", "string"));
@@ -199,6 +242,27 @@ public class FillTestCase {
         return hit;
     }
 
+    private static class CountingMetric implements Metric {
+
+        final Map<String, Integer> values = new HashMap<>();
+
+        @Override
+        public void set(String key, Number value, Context context) {
+            values.put(key, value.intValue());
+        }
+
+        @Override
+        public void add(String key, Number value, Context context) {
+            values.merge(key, value.intValue(), Integer::sum);
+        }
+
+        @Override
+        public Context createContext(Map<String, ?> properties) {
+            return null;
+        }
+
+    }
+
     private Map<String, Object> map(String stringKey, String stringValue, String intKey, int intValue) {
         Map<String, Object> map = new HashMap<>();
         map.put(stringKey, stringValue);
@@ -10,11 +10,11 @@ import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.search.Query;
 import com.yahoo.search.dispatch.InvokerResult;
 import com.yahoo.search.dispatch.LeanHit;
+import com.yahoo.search.dispatch.LeanHits;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.util.Collections;
-import java.util.List;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertEquals;
@@ -63,11 +63,12 @@ public class ProtobufSerializationTest {
         Query q = new Query("search/?query=test");
         InvokerResult result = ProtobufSerialization.convertToResult(q, createSearchReply(5, false), null, 1, 2);
         assertEquals(result.getResult().getTotalHitCount(), 7);
-        List<LeanHit> hits = result.getLeanHits();
+        LeanHits hits = result.getLeanHits();
         assertEquals(5, hits.size());
         double expectedRelevance = 5;
         int hitNum = 0;
-        for (LeanHit hit : hits) {
+        for (int i = 0; i < hits.size(); i++) {
+            LeanHit hit = hits.get(i);
             assertEquals('a', hit.getGid()[0]);
             assertEquals(hitNum, hit.getGid()[11]);
             assertEquals(expectedRelevance--, hit.getRelevance(), DELTA);
@@ -82,10 +83,11 @@ public class ProtobufSerializationTest {
         Query q = new Query("search/?query=test");
         InvokerResult result = ProtobufSerialization.convertToResult(q, createSearchReply(5, true), null, 1, 2);
         assertEquals(result.getResult().getTotalHitCount(), 7);
-        List<LeanHit> hits = result.getLeanHits();
+        LeanHits hits = result.getLeanHits();
         assertEquals(5, hits.size());
         int hitNum = 0;
-        for (LeanHit hit : hits) {
+        for (int i = 0; i < hits.size(); i++) {
+            LeanHit hit = hits.get(i);
             assertEquals('a', hit.getGid()[0]);
             assertEquals(hitNum, hit.getGid()[11]);
             assertEquals(0.0, hit.getRelevance(), DELTA);
@@ -0,0 +1,47 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch.searchcluster;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram(100000);
+        assertEquals(-1, histogram.percentile(50));
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i);
+        assertEquals(1000, histogram.count());
+        assertWithinTenPercent(500, histogram.percentile(50));
+        assertWithinTenPercent(950, histogram.percentile(95));
+        assertWithinTenPercent(1000, histogram.percentile(100));
+    }
+
+    @Test
+    public void testDecay() {
+        LatencyHistogram histogram = new LatencyHistogram(100);
+        for (int i = 0; i < 100; i++)
+            histogram.record(1000);
+        assertEquals(50, histogram.count());
+        for (int i = 0; i < 99; i++)
+            histogram.record(10);
+        assertEquals(149, histogram.count());
+        assertWithinTenPercent(10, histogram.percentile(50));
+        histogram.record(10);
+        assertEquals(75, histogram.count());
+        assertWithinTenPercent(10, histogram.percentile(50));
+        assertWithinTenPercent(1000, histogram.percentile(95));
+    }
+
+    private void assertWithinTenPercent(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but got " + actual,
+                   actual >= expected && actual <= expected * 1.1 + 1);
+    }
+
+}
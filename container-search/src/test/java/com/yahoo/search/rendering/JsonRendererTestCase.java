@@ -8,6 +8,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 import com.yahoo.component.ComponentId;
 import com.yahoo.component.chain.Chain;
 import com.yahoo.container.QrSearchersConfig;
+import com.yahoo.data.access.simple.JsonRender;
 import com.yahoo.data.access.simple.Value;
 import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.document.DataType;
@@ -1232,6 +1233,88 @@ public class JsonRendererTestCase {
         assertEqualJson(expected, summary);
     }
 
+    @Test
+    public void testStructuredDataOfAllTypes() throws IOException, InterruptedException, ExecutionException {
+        String expected = "{"
+                + "    \"root\": {"
+                + "        \"children\": ["
+                + "            {"
+                + "                \"fields\": {"
+                + "                    \"structured\": {"
+                + "                        \"string\": \"\\\"bl\u00e5b\u00e6r\\\"\\n\","
+                + "                        \"long\": 7809531904,"
+                + "                        \"double\": 0.25,"
+                + "                        \"nan\": null,"
+                + "                        \"bool\": true,"
+                + "                        \"data\": \"0x01AB\","
+                + "                        \"nix\": null,"
+                + "                        \"array\": [1, [\"nested\"], {\"key\": \"k\"}]"
+                + "                    }"
+                + "                },"
+                + "                \"id\": \"StructuredData\","
+                + "                \"relevance\": 1.0"
+                + "            }"
+                + "        ],"
+                + "        \"fields\": {"
+                + "            \"totalCount\": 1"
+                + "        },"
+                + "        \"id\": \"toplevel\","
+                + "        \"relevance\": 1.0"
+                + "    }"
+                + "}";
+        Slime slime = new Slime();
+        Cursor struct = slime.setObject();
+        struct.setString("string", "\"bl\u00e5b\u00e6r\"\n");
+        struct.setLong("long", 7809531904L);
+        struct.setDouble("double", 0.25);
+        struct.setDouble("nan", Double.NaN);
+        struct.setBool("bool", true);
+        struct.setData("data", new byte[] { 0x01, (byte)0xab });
+        struct.setNix("nix");
+        Cursor array = struct.setArray("array");
+        array.addLong(1);
+        array.addArray().addString("nested");
+        array.addObject().setString("key", "k");
+        Result r = newEmptyResult();
+        Hit h = new Hit("StructuredData");
+        h.setField("structured", new StructuredData(new SlimeAdapter(slime.get())));
+        r.hits().add(h);
+        r.setTotalHitCount(1L);
+        String summary = render(r);
+        assertEqualJson(expected, summary);
+    }
+
+    @Test
+    public void testStructuredDataIsRenderedAsByJsonRender() throws IOException, InterruptedException, ExecutionException {
+        Value.ArrayValue map = new Value.ArrayValue();
+        map.add(new Value.ObjectValue()
+                    .put("key", new Value.StringValue("k\u00e5"))
+                    .put("value", new Value.StringValue("first")))
+           .add(new Value.ObjectValue()
+                    .put("key", new Value.StringValue("b"))
+                    .put("value", new Value.StringValue("\u007f\ud83d\ude00")))
+           .add(new Value.ObjectValue()
+                    .put("key", new Value.StringValue("k\u00e5"))
+                    .put("value", new Value.StringValue("last")));
+        Slime slime = new Slime();
+        Cursor struct = slime.setObject();
+        struct.setString("bl\u00e5", "\"bl\u00e5b\u00e6r\"\n\u007f");
+        struct.setString("ascii", "tab\tquote\"");
+        struct.setDouble("double", 1.0e-7);
+        struct.setArray("array").addString("\u00e6");
+        Result r = newEmptyResult();
+        Hit h = new Hit("StructuredData");
+        h.setField("map", map);
+        h.setField("struct", new StructuredData(new SlimeAdapter(slime.get())));
+        h.setField("plain", "bl\u00e5");
+        r.hits().add(h);
+        String summary = render(r);
+        assertTrue(summary, summary.contains("\"map\":{\"k\\u00E5\":\"last\",\"b\":\"\\u007F\\uD83D\\uDE00\"}"));
+        String expectedStruct = JsonRender.render(new SlimeAdapter(slime.get()), new StringBuilder(), true).toString();
+        assertTrue(summary, summary.contains("\"struct\":" + expectedStruct));
+        assertTrue("Other strings are not escaped: " + summary, summary.contains("\"plain\":\"bl\u00e5\""));
+    }
+
     @Test
     public void testThatTheJsonValidatorCanCatchErrors() {
         String json = "{"
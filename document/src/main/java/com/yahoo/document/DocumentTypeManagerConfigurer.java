@@ -37,6 +37,7 @@ public class DocumentTypeManagerConfigurer implements ConfigSubscriber.SingleSub
         switch (value) {
             case NONE: return CompressionType.NONE;
             case LZ4: return CompressionType.LZ4;
+            case ZSTD: return CompressionType.ZSTD;
             case UNCOMPRESSABLE: return CompressionType.INCOMPRESSIBLE;
         }
         throw new IllegalArgumentException("Compression type " + value + " is not supported");
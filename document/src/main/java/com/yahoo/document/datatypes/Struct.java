@@ -19,6 +19,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.Supplier;
 
 
 /**
@@ -30,6 +31,10 @@ public class Struct extends StructuredFieldValue {
     private Hashlet<Integer, FieldValue> values = new Hashlet<>();
     private int [] order = null;
 
+    /** Field values which are not decoded yet, or null if there are none. Decoded entries are set to null. */
+    private Hashlet<Integer, Supplier<FieldValue>> lazyValues = null;
+    private int lazyValueCount = 0;
+
     private int version;
 
     private int [] getInOrder() {
@@ -47,6 +52,55 @@ public class Struct extends StructuredFieldValue {
         order = null;
     }
 
+    /**
+     * Sets a field value which is decoded by the given decoder when the field is first accessed.
+     * This is used to avoid decoding serialized field values which are never read.
+     * As decoding changes the state of this, a struct with lazy field values can not be read by multiple threads
+     * concurrently before all its values are decoded.
+     */
+    public void setLazyFieldValue(Field field, Supplier<FieldValue> decoder) {
+        if (getDataType().getField(field.getId()) == null)
+            throw new IllegalArgumentException("No such field in " + getDataType() + " : " + field.getName());
+        removeLazyValue(field.getId());
+        if (values.get(field.getId()) != null)
+            removeFieldValue(field);
+        if (lazyValues == null)
+            lazyValues = new Hashlet<>();
+        lazyValues.put(field.getId(), decoder);
+        lazyValueCount++;
+    }
+
+    private void decodeLazyValue(int fieldId) {
+        if (lazyValues == null) return;
+        int index = lazyValues.getIndexOfKey(fieldId);
+        if (index == -1 || lazyValues.value(index) == null) return;
+        values.put(fieldId, lazyValues.value(index).get());
+        invalidateOrder();
+        dropLazyValue(index);
+    }
+
+    private void decodeLazyValues() {
+        if (lazyValues == null) return;
+        for (int i = 0; i < lazyValues.size(); i++) {
+            if (lazyValues.value(i) != null)
+                decodeLazyValue(lazyValues.key(i));
+            if (lazyValues == null) return;
+        }
+    }
+
+    private void removeLazyValue(int fieldId) {
+        if (lazyValues == null) return;
+        int index = lazyValues.getIndexOfKey(fieldId);
+        if (index != -1 && lazyValues.value(index) != null)
+            dropLazyValue(index);
+    }
+
+    private void dropLazyValue(int index) {
+        lazyValues.setValue(index, null);
+        if (--lazyValueCount == 0)
+            lazyValues = null;
+    }
+
     public Struct(DataType type) {
         super((StructDataType) type);
         this.version = Document.SERIALIZED_VERSION;
@@ -88,6 +142,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public Struct clone() {
+        decodeLazyValues();
         Struct struct = (Struct) super.clone();
         struct.values = new Hashlet<>();
         struct.values.reserve(values.size());
@@ -100,15 +155,19 @@ public class Struct extends StructuredFieldValue {
     @Override
     public void clear() {
         values = new Hashlet<>();
+        lazyValues = null;
+        lazyValueCount = 0;
         invalidateOrder();
     }
 
     @Override
     public Iterator<Map.Entry<Field, FieldValue>> iterator() {
+        decodeLazyValues();
         return new FieldSet().iterator();
     }
 
     public Set<Map.Entry<Field, FieldValue>> getFields() {
+        decodeLazyValues();
         return new FieldSet();
     }
 
@@ -127,6 +186,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
+        decodeLazyValue(field.getId());
         return values.get(field.getId());
     }
 
@@ -138,7 +198,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public int getFieldCount() {
-        return values.size();
+        return values.size() + lazyValueCount;
     }
 
     @Override
@@ -164,6 +224,7 @@ public class Struct extends StructuredFieldValue {
                     "Inconsistent field: " + field);
         }
 
+        removeLazyValue(field.getId());
         int index = values.getIndexOfKey(field.getId());
         if (index == -1) {
             values.put(field.getId(), value);
@@ -175,6 +236,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue removeFieldValue(Field field) {
+        decodeLazyValue(field.getId());
         FieldValue found = values.get(field.getId());
         if (found != null) {
             Hashlet<Integer, FieldValue> copy = new Hashlet<>();
@@ -223,11 +285,14 @@ public class Struct extends StructuredFieldValue {
         if (!super.equals(o)) return false;
 
         Struct struct = (Struct) o;
+        decodeLazyValues();
+        struct.decodeLazyValues();
         return values.equals(struct.values);
     }
 
     @Override
     public int hashCode() {
+        decodeLazyValues();
         int result = super.hashCode();
         result = 31 * result + values.hashCode();
         return result;
@@ -235,6 +300,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public String toString() {
+        decodeLazyValues();
         StringBuilder retVal = new StringBuilder();
         retVal.append("Struct (").append(getDataType()).append("): ");
         int [] increasing = getInOrder();
@@ -257,6 +323,8 @@ public class Struct extends StructuredFieldValue {
             return cmp;
         }
         Struct rhs = (Struct)obj;
+        decodeLazyValues();
+        rhs.decodeLazyValues();
         cmp = values.size() - rhs.values.size();
         if (cmp != 0) {
             return cmp;
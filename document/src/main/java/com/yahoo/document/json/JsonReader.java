@@ -16,6 +16,7 @@ import com.yahoo.document.json.readers.VespaJsonDocumentReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import static com.yahoo.document.json.JsonReader.ReaderState.END_OF_FEED;
 import static com.yahoo.document.json.readers.JsonParserHelpers.expectArrayStart;
@@ -63,15 +64,14 @@ public class JsonReader {
     public DocumentOperation readSingleDocument(DocumentParser.SupportedOperation operationType, String docIdString) {
         DocumentId docId = new DocumentId(docIdString);
         DocumentParseInfo documentParseInfo;
+        VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader();
         try {
-            DocumentParser documentParser = new DocumentParser(parser);
-            documentParseInfo = documentParser.parse(Optional.of(docId)).get();
+            DocumentParser documentParser = new DocumentParser(parser, streamingFieldsReader(vespaJsonDocumentReader));
+            documentParseInfo = documentParser.parse(docId, operationType);
         } catch (IOException e) {
             state = END_OF_FEED;
             throw new IllegalArgumentException(e);
         }
-        documentParseInfo.operationType = operationType;
-        VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader();
         DocumentOperation operation = vespaJsonDocumentReader.createDocumentOperation(
                 getDocumentTypeFromString(documentParseInfo.documentId.getDocType(), typeManager), documentParseInfo);
         operation.setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.condition));
@@ -92,8 +92,10 @@ public class JsonReader {
                 break;
         }
         Optional<DocumentParseInfo> documentParseInfo;
+        VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader();
         try {
-            documentParseInfo = parseDocument();
+            DocumentParser documentParser = new DocumentParser(parser, streamingFieldsReader(vespaJsonDocumentReader));
+            documentParseInfo = documentParser.parse(Optional.empty());
         } catch (IOException r) {
             // Jackson is not able to recover from structural parse errors
             state = END_OF_FEED;
@@ -103,7 +105,6 @@ public class JsonReader {
             state = END_OF_FEED;
             return null;
         }
-        VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader();
         DocumentOperation operation = vespaJsonDocumentReader.createDocumentOperation(
                 getDocumentTypeFromString(documentParseInfo.get().documentId.getDocType(), typeManager),
                 documentParseInfo.get());
@@ -111,6 +112,14 @@ public class JsonReader {
         return operation;
     }
 
+    /**
+     * Returns a reader which creates the operation directly from the fields as they are parsed,
+     * when the document id and operation type precede the fields in the input.
+     */
+    private Consumer<DocumentParseInfo> streamingFieldsReader(VespaJsonDocumentReader vespaJsonDocumentReader) {
+        return documentParseInfo -> documentParseInfo.operation = vespaJsonDocumentReader.readOperation(
+                getDocumentTypeFromString(documentParseInfo.documentId.getDocType(), typeManager), documentParseInfo);
+    }
 
     public DocumentType readDocumentType(DocumentId docId) {
         return getDocumentTypeFromString(docId.getDocType(), typeManager);
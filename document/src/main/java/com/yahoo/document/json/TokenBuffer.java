@@ -13,6 +13,10 @@ import com.google.common.base.Preconditions;
 /**
  * Helper class to enable lookahead in the token stream.
  *
+ * A buffer either holds all the tokens of the structs buffered into it, or streams the
+ * tokens of a single struct from a parser, holding only the current token and
+ * whatever lookahead has been requested.
+ *
  * @author Steinar Knutsen
  */
 public class TokenBuffer {
@@ -32,10 +36,34 @@ public class TokenBuffer {
     private Deque<Token> buffer;
     private int nesting = 0;
 
+    /** The parser to stream the remaining tokens from, or null if all tokens are in the buffer */
+    private JsonParser source = null;
+
+    /** The nesting after the last token in the buffer, used to tell when a streamed struct is complete */
+    private int bufferedNesting = 0;
+
     public TokenBuffer() {
         this(new ArrayDeque<>());
     }
 
+    /**
+     * Creates a buffer which streams the struct starting at the current token of the given parser.
+     * Tokens are read from the parser as they are consumed from this, such that the parser
+     * is positioned at the end of the struct once this is exhausted.
+     *
+     * @throws IllegalArgumentException if the current token of the parser does not start a struct
+     */
+    public TokenBuffer(JsonParser source) {
+        this();
+        JsonToken first = source.currentToken();
+        Preconditions.checkArgument(first != null && first.isStructStart(),
+                                    "Expected start of a JSON struct, got %s.", first);
+        addFromParser(first, source);
+        bufferedNesting = nestingOffset(first);
+        updateNesting(first);
+        this.source = source;
+    }
+
     private TokenBuffer(Deque<Token> buffer) {
         this.buffer = buffer;
         if (buffer.size() > 0) {
@@ -48,6 +76,9 @@ public class TokenBuffer {
 
     public JsonToken next() {
         buffer.removeFirst();
+        if (buffer.isEmpty()) {
+            streamNext();
+        }
         Token t = buffer.peekFirst();
         if (t == null) {
             return null;
@@ -133,6 +164,35 @@ public class TokenBuffer {
         }
     }
 
+    /** Moves the next token of the streamed struct into the buffer, unless the struct is complete */
+    private boolean streamNext() {
+        if (source == null) return false;
+        JsonToken t = nextValue(source);
+        if (t == null) {
+            throw new IllegalArgumentException("Unexpected end of input in JSON struct");
+        }
+        addFromParser(t, source);
+        bufferedNesting += nestingOffset(t);
+        if (bufferedNesting == 0) {
+            source = null;
+        }
+        return true;
+    }
+
+    /** Streams tokens into the buffer until the nesting after the last buffered token is below the given barrier */
+    private void streamUntilNestingBelow(int nestingBarrier) {
+        while (bufferedNesting >= nestingBarrier && streamNext()) { }
+    }
+
+    /** Streams the remaining tokens of the struct, discarding them, to leave the parser at the end of the struct */
+    public void skipRemaining() {
+        while (source != null) {
+            buffer.clear();
+            streamNext();
+        }
+        buffer.clear();
+    }
+
     private JsonToken nextValue(JsonParser tokens) {
         try {
             return tokens.nextValue();
@@ -175,6 +235,7 @@ public class TokenBuffer {
         } else {
             int localNesting = nesting();
             int nestingBarrier = localNesting;
+            streamUntilNestingBelow(nestingBarrier - nestingOffset(currentToken()));
             for (Token t : buffer) {
                 copy.add(t);
                 localNesting += nestingOffset(t.token);
@@ -195,6 +256,7 @@ public class TokenBuffer {
         if (name.equals(currentName()) && currentToken().isScalarValue()) {
             toReturn = buffer.peekFirst();
         } else {
+            streamUntilNestingBelow(nestingBarrier);
             i = buffer.iterator();
             i.next(); // just ignore the first value, as we know it's not what
                       // we're looking for, and it's nesting effect is already
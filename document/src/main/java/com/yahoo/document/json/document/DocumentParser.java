@@ -4,10 +4,12 @@ package com.yahoo.document.json.document;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.yahoo.document.DocumentId;
+import com.yahoo.document.json.TokenBuffer;
 import com.yahoo.document.json.readers.DocumentParseInfo;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Parses a document operation.
@@ -27,10 +29,23 @@ public class DocumentParser {
     public static final String FIELDS = "fields";
     public static final String REMOVE = "remove";
     private final JsonParser parser;
+    private final Consumer<DocumentParseInfo> fieldsReader;
     private  long indentLevel;
+    private RuntimeException fieldsReaderFailure;
 
     public DocumentParser(JsonParser parser) {
+        this(parser, null);
+    }
+
+    /**
+     * Creates a parser which, when the id and operation type of a put or update precede its fields,
+     * passes the parse info to the given reader with a fields buffer streaming directly from the parser,
+     * instead of buffering all the fields first. The reader must consume the fields buffer.
+     * If the id or operation type come after the fields, the fields are buffered as usual.
+     */
+    public DocumentParser(JsonParser parser, Consumer<DocumentParseInfo> fieldsReader) {
         this.parser = parser;
+        this.fieldsReader = fieldsReader;
     }
 
     /**
@@ -38,14 +53,32 @@ public class DocumentParser {
      * Returns empty is we have reached the end of the stream.
      */
     public Optional<DocumentParseInfo> parse(Optional<DocumentId> documentIdArg) throws IOException {
+        return parse(documentIdArg, Optional.empty());
+    }
+
+    /**
+     * Parses a single operation of the given type on the given document, which are not part of the input.
+     */
+    public DocumentParseInfo parse(DocumentId documentId, SupportedOperation operationType) throws IOException {
+        return parse(Optional.of(documentId), Optional.of(operationType)).get();
+    }
+
+    private Optional<DocumentParseInfo> parse(Optional<DocumentId> documentIdArg,
+                                              Optional<SupportedOperation> operationTypeArg) throws IOException {
         indentLevel = 0;
+        fieldsReaderFailure = null;
         DocumentParseInfo documentParseInfo = new DocumentParseInfo();
         documentIdArg.ifPresent(documentId -> documentParseInfo.documentId = documentId);
+        operationTypeArg.ifPresent(operationType -> documentParseInfo.operationType = operationType);
         boolean foundItems = false;
         do {
             foundItems |= parseOneItem(documentParseInfo, documentIdArg.isPresent() /* doc id set externally */);
         } while (indentLevel > 0L);
 
+        // Fail only once the whole operation is consumed, such that parsing may continue with the next one
+        if (fieldsReaderFailure != null)
+            throw fieldsReaderFailure;
+
         if (documentParseInfo.documentId == null) {
             if (foundItems)
                 throw new IllegalArgumentException("Missing a document operation ('put', 'update' or 'remove')");
@@ -126,7 +159,10 @@ public class DocumentParser {
             JsonToken currentToken = parser.getCurrentToken();
             // "fields" opens a dictionary and is therefore on level two which might be surprising.
             if (currentToken == JsonToken.START_OBJECT && FIELDS.equals(parser.getCurrentName())) {
-                documentParseInfo.fieldsBuffer.bufferObject(currentToken, parser);
+                if (canStreamFields(documentParseInfo))
+                    streamFields(documentParseInfo);
+                else
+                    documentParseInfo.fieldsBuffer.bufferObject(currentToken, parser);
                 processIndent();
             }
         } catch (IOException e) {
@@ -134,6 +170,28 @@ public class DocumentParser {
         }
     }
 
+    private boolean canStreamFields(DocumentParseInfo documentParseInfo) {
+        return fieldsReader != null
+               && documentParseInfo.documentId != null
+               && documentParseInfo.fieldsBuffer.isEmpty()
+               && documentParseInfo.operation == null
+               && (   documentParseInfo.operationType == SupportedOperation.PUT
+                   || documentParseInfo.operationType == SupportedOperation.UPDATE);
+    }
+
+    private void streamFields(DocumentParseInfo documentParseInfo) {
+        TokenBuffer fieldsBuffer = new TokenBuffer(parser);
+        documentParseInfo.fieldsBuffer = fieldsBuffer;
+        try {
+            fieldsReader.accept(documentParseInfo);
+        }
+        catch (RuntimeException e) {
+            if (fieldsReaderFailure == null)
+                fieldsReaderFailure = e;
+        }
+        fieldsBuffer.skipRemaining();
+    }
+
     private static SupportedOperation operationNameToOperationType(String operationName) {
         switch (operationName) {
             case PUT:
@@ -45,6 +45,24 @@ public class VespaJsonDocumentReader {
     private static final String UPDATE_ADD = "add";
 
     public DocumentOperation createDocumentOperation(DocumentType documentType, DocumentParseInfo documentParseInfo) {
+        final DocumentOperation documentOperation = documentParseInfo.operation != null
+                                                    ? documentParseInfo.operation
+                                                    : readOperation(documentType, documentParseInfo);
+        if (documentParseInfo.create.isPresent()) {
+            if (! ( documentOperation instanceof DocumentUpdate)) {
+                throw new IllegalArgumentException("Could not set create flag on non update operation.");
+            }
+            DocumentUpdate update = (DocumentUpdate) documentOperation;
+            update.setCreateIfNonExistent(documentParseInfo.create.get());
+        }
+        return documentOperation;
+    }
+
+    /**
+     * Reads the operation described by the given parse info from its fields buffer, without applying
+     * the flags which may follow the fields in the input.
+     */
+    public DocumentOperation readOperation(DocumentType documentType, DocumentParseInfo documentParseInfo) {
         final DocumentOperation documentOperation;
         try {
             switch (documentParseInfo.operationType) {
@@ -67,13 +85,6 @@ public class VespaJsonDocumentReader {
         } catch (JsonReaderException e) {
             throw JsonReaderException.addDocId(e, documentParseInfo.documentId);
         }
-        if (documentParseInfo.create.isPresent()) {
-            if (! ( documentOperation instanceof DocumentUpdate)) {
-                throw new IllegalArgumentException("Could not set create flag on non update operation.");
-            }
-            DocumentUpdate update = (DocumentUpdate) documentOperation;
-            update.setCreateIfNonExistent(documentParseInfo.create.get());
-        }
         return documentOperation;
     }
 
@@ -7,6 +7,7 @@ import com.yahoo.document.Document;
 import com.yahoo.document.DocumentGet;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentRemove;
+import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.FieldPath;
 import com.yahoo.document.datatypes.FieldPathIteratorHandler;
@@ -28,6 +29,9 @@ public class AttributeNode implements ExpressionNode {
     private ExpressionNode value;
     private final List<Item> items = new ArrayList<>();
 
+    /** The items of this as a list of field path and function steps, created on first evaluation */
+    private volatile List<Step> steps = null;
+
     public AttributeNode(ExpressionNode value, List items) {
         this.value = value;
         for (Object obj : items) {
@@ -60,37 +64,55 @@ public class AttributeNode implements ExpressionNode {
 
     @Override
     public Object evaluate(Context context) {
-        StringBuilder pos = new StringBuilder(value.toString());
         Object obj = value.evaluate(context);
-
-        StringBuilder builder = new StringBuilder();
-        for (Item item : items) {
+        for (Step step : steps()) {
             if (obj == null) {
-                throw new IllegalStateException("Can not invoke '" + item + "' on '" + pos + "' because that term " +
-                                                "evaluated to null.");
+                throw new IllegalStateException("Can not invoke '" + items.get(step.firstItem) + "' on '" +
+                                                positionOf(step.firstItem) + "' because that term evaluated to null.");
             }
+            obj = step.evaluate(obj);
+        }
+        return obj;
+    }
+
+    /** Returns the items of this grouped into steps, such that consecutive attribute names form a single field path */
+    private List<Step> steps() {
+        List<Step> steps = this.steps;
+        if (steps != null) return steps;
+
+        steps = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        int firstItem = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
             if (item.getType() != Item.FUNCTION) {
                 if (builder.length() > 0) {
                     builder.append(".");
+                } else {
+                    firstItem = i;
                 }
-
                 builder.append(item.getName());
             } else {
                 if (builder.length() > 0) {
-                    obj = evaluateFieldPath(builder.toString(), obj);
+                    steps.add(new FieldPathStep(firstItem, builder.toString()));
                     builder = new StringBuilder();
                 }
-
-                obj = evaluateFunction(item.getName(), obj);
+                steps.add(new FunctionStep(i, item.getName()));
             }
-
-            pos.append(".").append(item);
         }
-
         if (builder.length() > 0) {
-            obj = evaluateFieldPath(builder.toString(), obj);
+            steps.add(new FieldPathStep(firstItem, builder.toString()));
         }
-        return obj;
+        return this.steps = steps;
+    }
+
+    /** Returns the textual position of the item with the given index, for error messages */
+    private String positionOf(int itemIndex) {
+        StringBuilder pos = new StringBuilder(value.toString());
+        for (int i = 0; i < itemIndex; i++) {
+            pos.append(".").append(items.get(i));
+        }
+        return pos.toString();
     }
 
     public static class VariableValueList extends ArrayList<ResultList.VariableValue> {
@@ -131,10 +153,10 @@ public class AttributeNode implements ExpressionNode {
         throw new IllegalStateException("Function '" + function + "' is not supported.");
     }
 
-    private static Object evaluateFieldPath(String fieldPth, Object value) {
+    private static Object evaluateFieldPath(FieldPathStep step, Object value) {
         if (value instanceof DocumentPut) {
             final Document doc = ((DocumentPut) value).getDocument();
-            FieldPath fieldPath = doc.getDataType().buildFieldPath(fieldPth);
+            FieldPath fieldPath = step.resolve(doc.getDataType());
             IteratorHandler handler = new IteratorHandler();
             doc.iterateNested(fieldPath, 0, handler);
             if (handler.values.isEmpty()) {
@@ -182,6 +204,76 @@ public class AttributeNode implements ExpressionNode {
         return ret.toString();
     }
 
+    /** A part of the attribute path of this which is evaluated as a unit */
+    private static abstract class Step {
+
+        /** The index of the first item of this step */
+        final int firstItem;
+
+        Step(int firstItem) {
+            this.firstItem = firstItem;
+        }
+
+        abstract Object evaluate(Object value);
+
+    }
+
+    private static final class FunctionStep extends Step {
+
+        private final String function;
+
+        FunctionStep(int firstItem, String function) {
+            super(firstItem);
+            this.function = function;
+        }
+
+        @Override
+        Object evaluate(Object value) {
+            return evaluateFunction(function, value);
+        }
+
+    }
+
+    private static final class FieldPathStep extends Step {
+
+        private final String fieldPath;
+
+        /** The field path resolved in the last document type seen, which is usually the type of all documents */
+        private volatile ResolvedFieldPath resolved = null;
+
+        FieldPathStep(int firstItem, String fieldPath) {
+            super(firstItem);
+            this.fieldPath = fieldPath;
+        }
+
+        @Override
+        Object evaluate(Object value) {
+            return evaluateFieldPath(this, value);
+        }
+
+        FieldPath resolve(DocumentType type) {
+            ResolvedFieldPath resolved = this.resolved;
+            if (resolved == null || resolved.type != type) {
+                resolved = new ResolvedFieldPath(type, type.buildFieldPath(fieldPath));
+                this.resolved = resolved;
+            }
+            return resolved.path;
+        }
+
+    }
+
+    private static final class ResolvedFieldPath {
+
+        final DocumentType type;
+        final FieldPath path;
+
+        ResolvedFieldPath(DocumentType type, FieldPath path) {
+            this.type = type;
+            this.path = path;
+        }
+
+    }
+
     public static class Item {
         public static final int ATTRIBUTE = 0;
         public static final int FUNCTION = 1;
@@ -26,6 +26,12 @@ public class ComparisonNode implements ExpressionNode {
     // The operator string for this.
     private String operator;
 
+    // The comparison done by the operator of this, or null if the operator is not supported.
+    private Comparison comparison;
+
+    // The pattern last used by a regex or glob comparison, which is usually the same for all documents.
+    private volatile CompiledPattern pattern = null;
+
     /**
      * Constructs a new comparison node.
      *
@@ -36,6 +42,7 @@ public class ComparisonNode implements ExpressionNode {
     public ComparisonNode(ExpressionNode lhs, String operator, ExpressionNode rhs) {
         this.lhs = lhs;
         this.operator = operator;
+        this.comparison = Comparison.of(operator);
         this.rhs = rhs;
     }
 
@@ -65,6 +72,7 @@ public class ComparisonNode implements ExpressionNode {
      */
     public ComparisonNode setOperator(String operator) {
         this.operator = operator;
+        this.comparison = Comparison.of(operator);
         return this;
     }
 
@@ -136,9 +144,9 @@ public class ComparisonNode implements ExpressionNode {
             return new ResultList(Result.INVALID);
         }
         if (oLeft instanceof AttributeNode.VariableValueList && oRight instanceof AttributeNode.VariableValueList) {
-            if (operator.equals("==")) {
+            if (comparison == Comparison.EQUALS) {
                 return evaluateListsTrue((AttributeNode.VariableValueList)oLeft, (AttributeNode.VariableValueList)oRight);
-            } else if (operator.equals("!=")) {
+            } else if (comparison == Comparison.NOT_EQUALS) {
                 return evaluateListsFalse((AttributeNode.VariableValueList)oLeft, (AttributeNode.VariableValueList)oRight);
             } else {
                 return new ResultList(Result.INVALID);
@@ -159,9 +167,9 @@ public class ComparisonNode implements ExpressionNode {
      * Precondition: lhs AND/OR rhs is null.
      */
     private ResultList evaluateWithAtLeastOneNullSide(Object lhs, Object rhs) {
-        if (operator.equals("==") || operator.equals("=")) { // Glob (=) operator falls back to equality for non-strings
+        if (comparison == Comparison.EQUALS || comparison == Comparison.GLOB) { // Glob (=) operator falls back to equality for non-strings
             return ResultList.fromBoolean(lhs == rhs);
-        } else if (operator.equals("!=")) {
+        } else if (comparison == Comparison.NOT_EQUALS) {
             return ResultList.fromBoolean(lhs != rhs);
         } else {
             return new ResultList(Result.INVALID);
@@ -223,17 +231,14 @@ public class ComparisonNode implements ExpressionNode {
      * @return The evaluation result.
      */
     private Result evaluateBool(Object lhs, Object rhs) {
-        if (operator.equals("==")) {
-            return evaluateEquals(lhs, rhs);
-        } else if (operator.equals("!=")) {
-            return Result.invert(evaluateEquals(lhs, rhs));
-        } else if (operator.equals("<") || operator.equals("<=") ||
-                   operator.equals(">") || operator.equals(">=")) {
-            return evaluateNumber(lhs, rhs);
-        } else if (operator.equals("=~") || operator.equals("=")) {
-            return evaluateString(lhs, rhs);
+        if (comparison == null)
+            throw new IllegalStateException("Comparison operator '" + operator + "' is not supported.");
+        switch (comparison) {
+            case EQUALS: return evaluateEquals(lhs, rhs);
+            case NOT_EQUALS: return Result.invert(evaluateEquals(lhs, rhs));
+            case REGEX: case GLOB: return evaluateString(lhs, rhs);
+            default: return evaluateNumber(lhs, rhs);
         }
-        throw new IllegalStateException("Comparison operator '" + operator + "' is not supported.");
     }
 
     /**
@@ -247,6 +252,12 @@ public class ComparisonNode implements ExpressionNode {
         if (lhs == null || rhs == null) {
             return Result.toResult(lhs == rhs);
         }
+        if (lhs instanceof Long && rhs instanceof Long) {
+            return Result.toResult(((Long)lhs).doubleValue() == ((Long)rhs).doubleValue());
+        }
+        if (lhs instanceof String && rhs instanceof String) {
+            return Result.toResult(lhs.equals(rhs));
+        }
 
         double a = getAsNumber(lhs);
         double b = getAsNumber(rhs);
@@ -279,14 +290,11 @@ public class ComparisonNode implements ExpressionNode {
     	if (Double.isNaN(a) || Double.isNaN(b)) {
     		return Result.INVALID;
     	}
-        if (operator.equals("<")) {
-            return Result.toResult(a < b);
-        } else if (operator.equals("<=")) {
-            return Result.toResult(a <= b);
-        } else if (operator.equals(">")) {
-            return Result.toResult(a > b);
-        } else {
-            return Result.toResult(a >= b);
+        switch (comparison) {
+            case LESS: return Result.toResult(a < b);
+            case LESS_OR_EQUAL: return Result.toResult(a <= b);
+            case GREATER: return Result.toResult(a > b);
+            default: return Result.toResult(a >= b);
         }
     }
 
@@ -300,11 +308,18 @@ public class ComparisonNode implements ExpressionNode {
     private Result evaluateString(Object lhs, Object rhs) {
         String left = "" + lhs; // Allows null objects to evaluate to string.
         String right = "" + rhs;
-        if (operator.equals("=~")) {
-            return Result.toResult(Pattern.compile(right).matcher(left).find());
-        } else {
-            return Result.toResult(Pattern.compile(globToRegex(right)).matcher(left).find());
+        return Result.toResult(patternOf(right).matcher(left).find());
+    }
+
+    /** Returns the compiled pattern of the given regex or glob expression, depending on the operator of this */
+    private Pattern patternOf(String expression) {
+        CompiledPattern pattern = this.pattern;
+        if (pattern == null || ! pattern.matches(comparison, expression)) {
+            String regex = comparison == Comparison.REGEX ? expression : globToRegex(expression);
+            pattern = new CompiledPattern(comparison, expression, Pattern.compile(regex));
+            this.pattern = pattern;
         }
+        return pattern.pattern;
     }
 
     /**
@@ -354,6 +369,46 @@ public class ComparisonNode implements ExpressionNode {
         }
     }
 
+    /** The comparisons done by the supported operators, resolved once instead of comparing operator strings per evaluation */
+    private enum Comparison {
+
+        EQUALS("=="), NOT_EQUALS("!="),
+        LESS("<"), LESS_OR_EQUAL("<="), GREATER(">"), GREATER_OR_EQUAL(">="),
+        REGEX("=~"), GLOB("=");
+
+        private final String operator;
+
+        Comparison(String operator) {
+            this.operator = operator;
+        }
+
+        /** Returns the comparison done by the given operator, or null if it is not supported */
+        static Comparison of(String operator) {
+            for (Comparison comparison : values())
+                if (comparison.operator.equals(operator)) return comparison;
+            return null;
+        }
+
+    }
+
+    private static final class CompiledPattern {
+
+        private final Comparison comparison;
+        private final String expression;
+        private final Pattern pattern;
+
+        CompiledPattern(Comparison comparison, String expression, Pattern pattern) {
+            this.comparison = comparison;
+            this.expression = expression;
+            this.pattern = pattern;
+        }
+
+        boolean matches(Comparison comparison, String expression) {
+            return this.comparison == comparison && this.expression.equals(expression);
+        }
+
+    }
+
     @Override
     public void accept(Visitor visitor) {
         visitor.visit(this);
@@ -19,6 +19,15 @@ public class DocumentDeserializerFactory {
         return new VespaDocumentDeserializerHead(manager, buf);
     }
 
+    /**
+     * Creates a de-serializer for the current head document format, which decodes document fields
+     * on first access if lazyFieldDecoding is true.
+     * This is cheaper when only some of the fields of the read documents are accessed.
+     */
+    public static DocumentDeserializer createHead(DocumentTypeManager manager, GrowableByteBuffer buf, boolean lazyFieldDecoding) {
+        return new VespaDocumentDeserializerHead(manager, buf, lazyFieldDecoding);
+    }
+
     /**
      * Creates a de-serializer for the 6.x document format.
      * This format is an extension of the 4.2 format.
@@ -71,6 +71,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static com.yahoo.text.Utf8.calculateStringPositions;
 
@@ -83,14 +84,24 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
 
     private final Compressor compressor = new Compressor();
     private DocumentTypeManager manager;
+    private final boolean lazyFieldDecoding;
     private short version;
     private List<SpanNode> spanNodes;
     private List<Annotation> annotations;
     private int[] stringPositions;
 
     VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        this(manager, buf, false);
+    }
+
+    /**
+     * Creates a de-serializer which, if lazyFieldDecoding is true, does not decode the fields of documents
+     * until they are accessed. See {@link Struct#setLazyFieldValue}.
+     */
+    VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf, boolean lazyFieldDecoding) {
         super(buf);
         this.manager = manager;
+        this.lazyFieldDecoding = lazyFieldDecoding;
         this.version = Document.SERIALIZED_VERSION;
     }
 
@@ -385,7 +396,10 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
                   s = alternate;
                 }
             }
-            if (s != null) {
+            if (s != null && lazyFieldDecoding) {
+              s.setLazyFieldValue(structField, lazyFieldValue(structField, destination, posBefore));
+            }
+            else if (s != null) {
               FieldValue value = structField.getDataType().createFieldValue();
               value.deserialize(structField, this);
               s.setFieldValue(structField, value);
@@ -398,6 +412,20 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         buf = bigBuf;
     }
 
+    /** Returns a supplier decoding the value of the given field from the given offset in the given data */
+    private Supplier<FieldValue> lazyFieldValue(Field field, byte[] data, int offset) {
+        DocumentTypeManager manager = this.manager;
+        short version = this.version;
+        return () -> {
+            VespaDocumentDeserializer6 deserializer = new VespaDocumentDeserializer6(manager, GrowableByteBuffer.wrap(data));
+            deserializer.version = version;
+            deserializer.position(offset);
+            FieldValue value = field.getDataType().createFieldValue();
+            value.deserialize(field, deserializer);
+            return value;
+        };
+    }
+
     public void read(FieldBase field, StructuredFieldValue value) {
         throw new IllegalArgumentException("read not implemented yet.");
     }
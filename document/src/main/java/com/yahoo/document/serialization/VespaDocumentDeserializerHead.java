@@ -23,6 +23,10 @@ public class VespaDocumentDeserializerHead extends VespaDocumentDeserializer6 {
         super(manager, buffer);
     }
 
+    public VespaDocumentDeserializerHead(DocumentTypeManager manager, GrowableByteBuffer buffer, boolean lazyFieldDecoding) {
+        super(manager, buffer, lazyFieldDecoding);
+    }
+
     @Override
     protected ValueUpdate readTensorModifyUpdate(DataType type) {
         byte operationId = getByte(null);
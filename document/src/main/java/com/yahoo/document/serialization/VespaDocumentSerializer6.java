@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.serialization;
 
+import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 
 import com.yahoo.document.ArrayDataType;
@@ -61,7 +62,6 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -77,6 +77,10 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
     private int spanNodeCounter = -1;
     private int[] bytePositions;
 
+    /** Buffers to serialize the fields of structs into, reused between structs at the same nesting level */
+    private final List<GrowableByteBuffer> structBuffers = new ArrayList<>();
+    private int structDepth = 0;
+
     VespaDocumentSerializer6(GrowableByteBuffer buf) {
         super(buf);
     }
@@ -325,57 +329,85 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
      * @param s     - field value
      */
     public void write(FieldBase field, Struct s) {
-        // Serialize all parts first.. As we need to know length before starting
-        // Serialize all the fields.
+        // Serialize all the fields first into a separate buffer, as we need to know their lengths before writing them
 
         //keep the buffer we're serializing everything into:
         GrowableByteBuffer bigBuffer = buf;
 
-        //create a new buffer and serialize into that for a while:
-        GrowableByteBuffer buffer = new GrowableByteBuffer(4096, 2.0f);
+        //serialize into a buffer reused between structs at this nesting level for a while:
+        GrowableByteBuffer buffer = structBuffer(structDepth++);
         buf = buffer;
 
-        List<Integer> fieldIds = new LinkedList<>();
-        List<java.lang.Integer> fieldLengths = new LinkedList<>();
-
-        for (Map.Entry<Field, FieldValue> value : s.getFields()) {
-
-            int startPos = buffer.position();
-            value.getValue().serialize(value.getKey(), this);
-
-            fieldLengths.add(buffer.position() - startPos);
-            fieldIds.add(value.getKey().getId());
+        int fieldCount = s.getFieldCount();
+        int[] fieldIds = new int[fieldCount];
+        int[] fieldLengths = new int[fieldCount];
+        int tableSize = GrowableByteBuffer.getSerializedSize1_4Bytes(fieldCount);
+        try {
+            int i = 0;
+            for (Map.Entry<Field, FieldValue> value : s.getFields()) {
+                int startPos = buffer.position();
+                value.getValue().serialize(value.getKey(), this);
+
+                fieldLengths[i] = buffer.position() - startPos;
+                fieldIds[i] = value.getKey().getId();
+                tableSize += GrowableByteBuffer.getSerializedSize1_4Bytes(fieldIds[i]) +
+                             GrowableByteBuffer.getSerializedSize2_4_8Bytes(fieldLengths[i]);
+                i++;
+            }
         }
+        finally {
+            // Switch buffers again:
+            buf = bigBuffer;
+            structDepth--;
+        }
+        int uncompressedSize = buffer.position();
 
-        // Switch buffers again:
-        buffer.flip();
-        buf = bigBuffer;
-
-        int uncompressedSize = buffer.remaining();
-        Compressor.Compression compression =
-            s.getDataType().getCompressor().compress(buffer.getByteBuffer().array(), buffer.remaining());
+        // Compress directly into the position of the data in the output buffer, which we can compute
+        // as we now know the size of everything written before it
+        Compressor compressor = s.getDataType().getCompressor();
+        int maxCompressedSize = compressor.maxCompressedSize(uncompressedSize);
+        int lenPos = buf.position();
+        int compressedHeaderSize = 4 + 1 + GrowableByteBuffer.getSerializedSize2_4_8Bytes(uncompressedSize) + tableSize;
+        buf.ensureRemaining(compressedHeaderSize + Math.max(uncompressedSize, maxCompressedSize));
+        int compressedSize = -1;
+        if (maxCompressedSize > 0) {
+            if (buf.hasArray()) {
+                compressedSize = compressor.compressInto(buffer.array(), buffer.arrayOffset(), uncompressedSize,
+                                                         buf.array(), buf.arrayOffset() + lenPos + compressedHeaderSize);
+            } else {
+                byte[] compressed = new byte[maxCompressedSize];
+                compressedSize = compressor.compressInto(buffer.array(), buffer.arrayOffset(), uncompressedSize, compressed, 0);
+                if (compressedSize >= 0) {
+                    buf.position(lenPos + compressedHeaderSize);
+                    buf.put(compressed, 0, compressedSize);
+                    buf.position(lenPos);
+                }
+            }
+        }
+        CompressionType compression = compressedSize >= 0 ? compressor.type()
+                                      : compressor.type() == CompressionType.NONE ? CompressionType.NONE
+                                      : CompressionType.INCOMPRESSIBLE;
 
         // Actual serialization starts here.
-        int lenPos = buf.position();
         putInt(null, 0); // Move back to this after compression is done.
-        buf.put(compression.type().getCode());
+        buf.put(compression.getCode());
 
-        if (compression.data() != null && compression.type().isCompressed()) {
+        if (compression.isCompressed()) {
             buf.putInt2_4_8Bytes(uncompressedSize);
         }
 
-        buf.putInt1_4Bytes(s.getFieldCount());
+        buf.putInt1_4Bytes(fieldCount);
 
-        for (int i = 0; i < s.getFieldCount(); ++i) {
-            putInt1_4Bytes(null, fieldIds.get(i));
-            putInt2_4_8Bytes(null, fieldLengths.get(i));
+        for (int i = 0; i < fieldCount; ++i) {
+            putInt1_4Bytes(null, fieldIds[i]);
+            putInt2_4_8Bytes(null, fieldLengths[i]);
         }
 
         int pos = buf.position();
-        if (compression.data() != null && compression.type().isCompressed()) {
-            put(null, compression.data());
+        if (compression.isCompressed()) {
+            buf.position(pos + compressedSize); // already written above
         } else {
-            put(null, buffer.getByteBuffer());
+            buf.put(buffer.array(), buffer.arrayOffset(), uncompressedSize);
         }
         int dataLength = buf.position() - pos;
 
@@ -385,6 +417,15 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
         buf.position(posNow);
     }
 
+    /** Returns a cleared buffer to serialize the fields of structs at the given nesting level into */
+    private GrowableByteBuffer structBuffer(int depth) {
+        if (depth == structBuffers.size())
+            structBuffers.add(new GrowableByteBuffer(4096, 2.0f));
+        GrowableByteBuffer buffer = structBuffers.get(depth);
+        buffer.clear();
+        return buffer;
+    }
+
     /**
      * Write out the value of structured field
      *
@@ -9,6 +9,7 @@ import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -353,4 +354,43 @@ public class StructTestCase {
         assertFalse(a.equals(b));
         assertFalse(b.equals(a));
     }
+
+    @Test
+    public void lazyFieldValuesAreDecodedOnFirstAccess() {
+        StructDataType type = new StructDataType("test");
+        type.addField(new Field("int", DataType.INT));
+        type.addField(new Field("str", DataType.STRING));
+        type.addField(new Field("flt", DataType.FLOAT));
+
+        AtomicInteger decodeCount = new AtomicInteger();
+        Struct struct = new Struct(type);
+        struct.setLazyFieldValue(type.getField("int"), () -> { decodeCount.incrementAndGet(); return new IntegerFieldValue(42); });
+        struct.setLazyFieldValue(type.getField("str"), () -> { decodeCount.incrementAndGet(); return new StringFieldValue("foo"); });
+        struct.setLazyFieldValue(type.getField("flt"), () -> { decodeCount.incrementAndGet(); return new FloatFieldValue(1.5f); });
+        assertEquals(3, struct.getFieldCount());
+        assertEquals(0, decodeCount.get());
+
+        assertEquals(new IntegerFieldValue(42), struct.getFieldValue("int"));
+        assertEquals(new IntegerFieldValue(42), struct.getFieldValue("int"));
+        assertEquals(1, decodeCount.get());
+
+        assertEquals(new StringFieldValue("foo"), struct.setFieldValue("str", new StringFieldValue("bar")));
+        assertEquals(3, struct.getFieldCount());
+        assertEquals(2, decodeCount.get());
+        assertEquals(new StringFieldValue("bar"), struct.getFieldValue("str"));
+
+        Struct expected = new Struct(type);
+        expected.setFieldValue("int", new IntegerFieldValue(42));
+        expected.setFieldValue("str", new StringFieldValue("bar"));
+        expected.setFieldValue("flt", new FloatFieldValue(1.5f));
+        assertEquals(expected, struct);
+        assertEquals(3, decodeCount.get());
+
+        struct.setLazyFieldValue(type.getField("int"), () -> { decodeCount.incrementAndGet(); return new IntegerFieldValue(7); });
+        assertEquals(3, struct.getFieldCount());
+        assertEquals(new IntegerFieldValue(7), struct.removeFieldValue(type.getField("int")));
+        assertEquals(2, struct.getFieldCount());
+        assertEquals(2, struct.getFields().size());
+        assertEquals(4, decodeCount.get());
+    }
 }
@@ -966,6 +966,44 @@ public class JsonReaderTestCase {
         while (r.next() != null);
     }
 
+    @Test
+    public void feedContinuesAfterStreamedDocumentWithInvalidField() {
+        JsonReader r = createReader(inputJson("[",
+                "  { 'put': 'id:unittest:smoke::0', 'fields': { 'smething': 'foo', 'nalle': { 'a': [ 1, 2 ] } }, 'condition': 'bla' },",
+                "  { 'put': 'id:unittest:smoke::1', 'fields': { 'something': 'foo' } }",
+                "]"));
+        try {
+            r.next();
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("No field 'smething' in the structure of type 'smoke'"));
+        }
+        DocumentPut put = (DocumentPut) r.next();
+        assertEquals("id:unittest:smoke::1", put.getId().toString());
+        assertEquals(new StringFieldValue("foo"), put.getDocument().getFieldValue("something"));
+        assertNull(r.next());
+    }
+
+    @Test
+    public void streamedUpdateMatchWithCreateAfterFields() {
+        JsonReader r = createReader(inputJson("[",
+                "  { 'update': 'id:unittest:testset::whee',",
+                "    'fields': {",
+                "      'actualset': {",
+                "        'match': {",
+                "          'element': 'person',",
+                "          'increment': 13 }}},",
+                "    'create': true }",
+                "]"));
+        DocumentUpdate update = (DocumentUpdate) r.next();
+        assertTrue(update.getCreateIfNonExistent());
+        MapValueUpdate adder = (MapValueUpdate) update.getFieldUpdate("actualset").getValueUpdate(0);
+        assertEquals(new StringFieldValue("person"), adder.getValue());
+        assertEquals(Double.valueOf(13), ((ArithmeticValueUpdate) adder.getUpdate()).getOperand());
+        assertNull(r.next());
+    }
+
     @Test
     public void idAsAliasForPutTest()  throws IOException{
         JsonReader r = createReader(inputJson("{ 'id': 'id:unittest:smoke::doc1',",
@@ -0,0 +1,99 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.select;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentRemove;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.select.parser.ParseException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Microbenchmark of evaluating representative document selections, as used in routing and visiting,
+ * over a set of documents and removes.
+ *
+ * @author agent
+ */
+public class DocumentSelectorBenchmark {
+
+    private static final String[] selections = {
+            "music",
+            "music.year > 1990",
+            "music.artist = \"Band 1*\"",
+            "music.title =~ \"^Song [0-9]+7$\"",
+            "music.artist.lowercase() == \"band 12\" or music.year < 1960",
+            "music and music.year >= 1980 and music.year < 1990 and id.namespace == \"ns\"",
+            "music.tracks[$x] == \"track 3\"",
+            "id.user == 1234 or id.specific.hash() % 10 == 4"
+    };
+
+    private final List<DocumentOperation> operations = createOperations(1000);
+
+    /** Returns the time in ms per evaluation of the given selection */
+    public double benchmark(int iterations, String selection) throws ParseException {
+        DocumentSelector selector = new DocumentSelector(selection);
+        evaluate(selector, Math.max(iterations / 10, 10)); // warmup
+        System.gc();
+        long startTime = System.nanoTime();
+        evaluate(selector, iterations);
+        long totalTime = System.nanoTime() - startTime;
+        return (double)totalTime / 1000000 / ((double)iterations * operations.size());
+    }
+
+    private int evaluate(DocumentSelector selector, int iterations) {
+        int accepted = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (DocumentOperation operation : operations) {
+                try {
+                    if (selector.accepts(operation) == Result.TRUE)
+                        accepted++;
+                }
+                catch (IllegalStateException e) {
+                    // id.user on documents without a user: as when visiting
+                }
+            }
+        }
+        return accepted;
+    }
+
+    private static List<DocumentOperation> createOperations(int count) {
+        DocumentType type = new DocumentType("music");
+        type.addField("title", DataType.STRING);
+        type.addField("artist", DataType.STRING);
+        type.addField("year", DataType.INT);
+        type.addField("tracks", DataType.getArray(DataType.STRING));
+
+        List<DocumentOperation> operations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % 10 == 9) {
+                operations.add(new DocumentRemove(new DocumentId("id:ns:music::" + i)));
+                continue;
+            }
+            Document document = new Document(type, new DocumentId("id:ns:music::" + i));
+            document.setFieldValue("title", new StringFieldValue("Song " + i));
+            document.setFieldValue("artist", new StringFieldValue("Band " + (i % 17)));
+            document.setFieldValue("year", new IntegerFieldValue(1950 + i % 70));
+            Array<StringFieldValue> tracks = new Array<>(DataType.getArray(DataType.STRING));
+            for (int track = 0; track < 5; track++)
+                tracks.add(new StringFieldValue("track " + (i + track) % 11));
+            document.setFieldValue("tracks", tracks);
+            operations.add(new DocumentPut(document));
+        }
+        return operations;
+    }
+
+    public static void main(String[] args) throws ParseException {
+        DocumentSelectorBenchmark benchmark = new DocumentSelectorBenchmark();
+        for (String selection : selections)
+            System.out.printf("%-80s %.5f ms%n", selection, benchmark.benchmark(200, selection));
+    }
+
+}
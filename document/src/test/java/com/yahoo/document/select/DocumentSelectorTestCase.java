@@ -6,6 +6,8 @@ import com.yahoo.document.datatypes.*;
 import com.yahoo.document.select.convert.SelectionExpressionConverter;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.document.select.parser.TokenMgrException;
+import com.yahoo.document.select.rule.ComparisonNode;
+import com.yahoo.document.select.rule.LiteralNode;
 import com.yahoo.yolean.Exceptions;
 import org.junit.Before;
 import org.junit.Test;
@@ -733,6 +735,54 @@ public class DocumentSelectorTestCase {
         assertVisitWithInvalidNowFails("now() > music.field", "Left hand side of comparison must be a document field");
     }
 
+    @Test
+    public void testComparisonOperatorCanBeChanged() {
+        ComparisonNode comparison = new ComparisonNode(new LiteralNode(3L), "<", new LiteralNode(5L));
+        assertEquals(Result.TRUE, ((ResultList)comparison.evaluate(new Context(null))).toResult());
+        comparison.setOperator(">=");
+        assertEquals(Result.FALSE, ((ResultList)comparison.evaluate(new Context(null))).toResult());
+        comparison.setOperator("==");
+        assertEquals(Result.FALSE, ((ResultList)comparison.evaluate(new Context(null))).toResult());
+    }
+
+    @Test
+    public void testSelectorGivesSameResultsWhenReused() throws ParseException {
+        // Another version of the test type, e.g from another config generation
+        DocumentType otherTest = new DocumentType("test");
+        otherTest.addField("hstring", DataType.STRING);
+        otherTest.addField("hint", DataType.INT);
+
+        List<DocumentOperation> operations = new ArrayList<>(createDocs());
+        Document otherDocument = new Document(otherTest, new DocumentId("id:ns:test::other"));
+        otherDocument.setFieldValue("hstring", new StringFieldValue("child"));
+        operations.add(new DocumentPut(otherDocument));
+
+        List<String> selections = Arrays.asList("test.hstring = \"*et\"",
+                                                "test.hstring =~ \"^(f|b)\"",
+                                                "id.specific.lowercase() == \"bar\" or test.hint > 20",
+                                                "test.mystruct.value == \"foobar\"",
+                                                "test.structarray[$x].key == 15 and test.structarray[$x].value == \"structarray_1\"");
+        for (String selection : selections) {
+            DocumentSelector reused = new DocumentSelector(selection);
+            for (int i = 0; i < 2; i++) {
+                for (DocumentOperation operation : operations) {
+                    assertEquals(selection + " on " + operation.getId(),
+                                 resultOrError(new DocumentSelector(selection), operation), resultOrError(reused, operation));
+                }
+            }
+        }
+        assertEquals(Result.TRUE, new DocumentSelector("test.hstring = \"chi*\"").accepts(operations.get(operations.size() - 1)));
+    }
+
+    private static String resultOrError(DocumentSelector selector, DocumentOperation operation) {
+        try {
+            return selector.accepts(operation).toString();
+        }
+        catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
     public void assertThatQueriesAreCreated(String selection, List<String> expectedDoctypes, List<String> expectedQueries) throws ParseException {
         DocumentSelector selector = new DocumentSelector(selection);
         NowCheckVisitor visitor = new NowCheckVisitor();
@@ -6,20 +6,26 @@ import com.yahoo.compress.Compressor;
 import com.yahoo.document.CompressionConfig;
 import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
+import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentType;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.Field;
 import com.yahoo.document.MapDataType;
 import com.yahoo.document.StructDataType;
+import com.yahoo.document.datatypes.Array;
 import com.yahoo.document.datatypes.IntegerFieldValue;
 import com.yahoo.document.datatypes.MapFieldValue;
 import com.yahoo.document.datatypes.PredicateFieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.select.DocumentSelector;
+import com.yahoo.document.select.Result;
 import com.yahoo.document.datatypes.Struct;
 import com.yahoo.io.GrowableByteBuffer;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -67,8 +73,12 @@ public class VespaDocumentSerializerTestCase {
         final MapDataType mapType;
 
         CompressionFixture() {
+            this(CompressionType.LZ4);
+        }
+
+        CompressionFixture(CompressionType compressionType) {
             docType = new DocumentType("map_of_structs");
-            docType.getHeaderType().setCompressionConfig(new CompressionConfig(CompressionType.LZ4));
+            docType.getHeaderType().setCompressionConfig(new CompressionConfig(compressionType));
 
             nestedType = new StructDataType("nested_type");
             nestedType.addField(new Field("str", DataType.STRING));
@@ -129,4 +139,73 @@ public class VespaDocumentSerializerTestCase {
         // rounded up to 4096 bytes.
         assertTrue(buf.remaining() < 4096);
     }
+
+    @Test
+    public void compressed_structs_can_be_serialized_into_direct_buffer() {
+        CompressionFixture fixture = new CompressionFixture();
+
+        Document doc = new Document(fixture.docType, "id:foo:map_of_structs::flarn");
+        MapFieldValue<StringFieldValue, Struct> map = new MapFieldValue<StringFieldValue, Struct>(fixture.mapType);
+        for (int i = 0; i < 10; i++) {
+            Struct nested = new Struct(fixture.nestedType);
+            nested.setFieldValue("str", new StringFieldValue(CompressionFixture.COMPRESSABLE_STRING + i));
+            map.put(new StringFieldValue("key" + i), nested);
+        }
+        doc.setFieldValue("map", map);
+
+        GrowableByteBuffer buf = GrowableByteBuffer.allocateDirect(16);
+        doc.serialize(buf);
+        buf.flip();
+        GrowableByteBuffer heapBuf = CompressionFixture.asSerialized(doc);
+        byte[] serialized = new byte[buf.remaining()];
+        buf.get(serialized);
+        assertEquals(heapBuf.getByteBuffer(), ByteBuffer.wrap(serialized));
+        assertEquals(doc, fixture.manager.createDocument(new GrowableByteBuffer(ByteBuffer.wrap(serialized))));
+    }
+
+    @Test
+    public void zstd_compressed_structs_are_supported() {
+        CompressionFixture fixture = new CompressionFixture(CompressionType.ZSTD);
+
+        Document doc = new Document(fixture.docType, "id:foo:map_of_structs::flarn");
+        MapFieldValue<StringFieldValue, Struct> map = new MapFieldValue<StringFieldValue, Struct>(fixture.mapType);
+        for (int i = 0; i < 10; i++) {
+            Struct nested = new Struct(fixture.nestedType);
+            nested.setFieldValue("str", new StringFieldValue(CompressionFixture.COMPRESSABLE_STRING + i));
+            map.put(new StringFieldValue("key" + i), nested);
+        }
+        doc.setFieldValue("map", map);
+
+        GrowableByteBuffer buf = CompressionFixture.asSerialized(doc);
+        assertTrue(buf.remaining() < CompressionFixture.COMPRESSABLE_STRING.length() * 10);
+        assertEquals(doc, fixture.manager.createDocument(buf));
+    }
+
+    @Test
+    public void documents_can_be_deserialized_with_lazy_field_decoding() throws Exception {
+        DocumentType docType = new DocumentType("music");
+        docType.addField(new Field("title", DataType.STRING));
+        docType.addField(new Field("year", DataType.INT));
+        docType.addField(new Field("tracks", DataType.getArray(DataType.STRING)));
+        DocumentTypeManager manager = new DocumentTypeManager();
+        manager.registerDocumentType(docType);
+
+        Document doc = new Document(docType, "id:ns:music::1");
+        doc.setFieldValue("title", new StringFieldValue("Best of"));
+        doc.setFieldValue("year", new IntegerFieldValue(1984));
+        Array<StringFieldValue> tracks = new Array<>(DataType.getArray(DataType.STRING));
+        for (int i = 0; i < 10; i++)
+            tracks.add(new StringFieldValue("track" + i));
+        doc.setFieldValue("tracks", tracks);
+
+        Document lazy = new Document(DocumentDeserializerFactory.createHead(manager,
+                                                                            CompressionFixture.asSerialized(doc),
+                                                                            true));
+        assertEquals(3, lazy.getFieldCount());
+        assertEquals(Result.TRUE, new DocumentSelector("music.year == 1984").accepts(new DocumentPut(lazy)));
+        assertEquals(new StringFieldValue("Best of"), lazy.getFieldValue("title"));
+        assertEquals(doc, lazy);
+        assertEquals(CompressionFixture.asSerialized(doc), CompressionFixture.asSerialized(lazy));
+    }
+
 }
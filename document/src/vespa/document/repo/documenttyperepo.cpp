@@ -312,6 +312,8 @@ void addStruct(int32_t id, const Datatype::Sstruct &s, Repo &repo) {
     CompressionConfig::Type type = CompressionConfig::NONE;
     if (s.compression.type == Datatype::Sstruct::Compression::Type::LZ4) {
         type = CompressionConfig::LZ4;
+    } else if (s.compression.type == Datatype::Sstruct::Compression::Type::ZSTD) {
+        type = CompressionConfig::ZSTD;
     }
 
     struct_type->setCompressionConfig(
@@ -54,7 +54,8 @@ public class MessageBusDocumentAccess extends DocumentAccess {
         this.params = params;
         try {
             com.yahoo.messagebus.MessageBusParams mbusParams = new com.yahoo.messagebus.MessageBusParams(params.getMessageBusParams());
-            mbusParams.addProtocol(new DocumentProtocol(getDocumentTypeManager(), params.getProtocolConfigId(), params.getLoadTypes()));
+            mbusParams.addProtocol(new DocumentProtocol(getDocumentTypeManager(), params.getProtocolConfigId(),
+                                                        params.getLoadTypes(), params.getLazyFieldDecoding()));
             if (System.getProperty("vespa.local", "false").equals("true")) { // set by Application when running locally
                 LocalNetwork network = new LocalNetwork();
                 bus = new NetworkMessageBus(network, new MessageBus(network, mbusParams));
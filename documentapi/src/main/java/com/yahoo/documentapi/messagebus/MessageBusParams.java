@@ -20,6 +20,7 @@ public class MessageBusParams extends DocumentAccessParams {
     private com.yahoo.messagebus.MessageBusParams mbusParams = new com.yahoo.messagebus.MessageBusParams();
     private SourceSessionParams sourceSessionParams = new SourceSessionParams();
     private LoadTypeSet loadTypes;
+    private boolean lazyFieldDecoding = false;
 
     public MessageBusParams() {
         this(new LoadTypeSet());
@@ -203,4 +204,26 @@ public class MessageBusParams extends DocumentAccessParams {
         sourceSessionParams = new SourceSessionParams(params);
         return this;
     }
+
+    /**
+     * Returns whether the fields of received documents are decoded when first accessed.
+     *
+     * @return True if fields are decoded lazily.
+     */
+    public boolean getLazyFieldDecoding() {
+        return lazyFieldDecoding;
+    }
+
+    /**
+     * Sets whether the fields of received documents, e.g. those returned to a visitor, should be decoded when first
+     * accessed instead of when the document is decoded. This saves work when only some of the fields of the
+     * documents are read. Such documents must not be read concurrently by multiple threads.
+     *
+     * @param lazyFieldDecoding Whether to decode fields lazily.
+     * @return This object for chaining.
+     */
+    public MessageBusParams setLazyFieldDecoding(boolean lazyFieldDecoding) {
+        this.lazyFieldDecoding = lazyFieldDecoding;
+        return this;
+    }
 }
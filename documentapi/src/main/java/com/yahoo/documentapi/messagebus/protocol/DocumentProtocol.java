@@ -35,6 +35,7 @@ public class DocumentProtocol implements Protocol {
     private final RoutingPolicyRepository routingPolicyRepository = new RoutingPolicyRepository();
     private final RoutableRepository routableRepository;
     private final DocumentTypeManager docMan;
+    private final boolean lazyFieldDecoding;
 
     /**
      * The name of this protocol.
@@ -274,6 +275,15 @@ public class DocumentProtocol implements Protocol {
     }
 
     public DocumentProtocol(DocumentTypeManager docMan, String configId, LoadTypeSet set) {
+        this(docMan, configId, set, false);
+    }
+
+    /**
+     * Creates a document protocol which, if lazyFieldDecoding is true, decodes the fields of received documents
+     * when they are first accessed rather than when the document is decoded.
+     */
+    public DocumentProtocol(DocumentTypeManager docMan, String configId, LoadTypeSet set, boolean lazyFieldDecoding) {
+        this.lazyFieldDecoding = lazyFieldDecoding;
         // Prepare config string for routing policy factories.
         String cfg = (configId == null ? "client" : configId);
         if (docMan != null) {
@@ -541,7 +551,7 @@ public class DocumentProtocol implements Protocol {
 
     public Routable decode(Version version, byte[] data) {
         try {
-            return routableRepository.decode(docMan, version, data);
+            return routableRepository.decode(docMan, version, data, lazyFieldDecoding);
         } catch (RuntimeException e) {
             e.printStackTrace();
             log.warning(e.getMessage());
@@ -31,6 +31,12 @@ import java.util.logging.Logger;
 final class RoutableRepository {
 
     private static final Logger log = Logger.getLogger(RoutableRepository.class.getName());
+    private static final int encodeBufferSize = 8192;
+    /** The max capacity of an encode buffer which is kept for reuse, to not hold on to memory used by large routables */
+    private static final int maxReusedEncodeBufferSize = 1024 * 1024;
+    /** The buffer of each thread to encode routables into, reused to avoid allocating and growing one per routable */
+    private static final ThreadLocal<GrowableByteBuffer> encodeBuffers =
+            ThreadLocal.withInitial(() -> new GrowableByteBuffer(encodeBufferSize));
     private final CopyOnWriteHashMap<Integer, VersionMap> factoryTypes = new CopyOnWriteHashMap<>();
     private final CopyOnWriteHashMap<CacheKey, RoutableFactory> cache = new CopyOnWriteHashMap<>();
     private LoadTypeSet loadTypes;
@@ -47,9 +53,10 @@ final class RoutableRepository {
      *
      * @param version The version of the encoded routable.
      * @param data    The byte array containing the encoded routable.
+     * @param lazyFieldDecoding Whether the fields of documents in the routable should be decoded on first access.
      * @return The decoded routable.
      */
-    Routable decode(DocumentTypeManager docMan, Version version, byte[] data) {
+    Routable decode(DocumentTypeManager docMan, Version version, byte[] data, boolean lazyFieldDecoding) {
         if (data == null || data.length == 0) {
             log.log(LogLevel.ERROR, "Received empty byte array for deserialization.");
             return null;
@@ -58,7 +65,7 @@ final class RoutableRepository {
             log.log(LogLevel.ERROR,"Can not decode anything from (version " + version + "). Only major version 5 and up supported.");
             return null;
         }
-        DocumentDeserializer in = DocumentDeserializerFactory.createHead(docMan, GrowableByteBuffer.wrap(data));
+        DocumentDeserializer in = DocumentDeserializerFactory.createHead(docMan, GrowableByteBuffer.wrap(data), lazyFieldDecoding);
 
 
         int type = in.getInt(null);
@@ -97,18 +104,26 @@ final class RoutableRepository {
             log.log(LogLevel.ERROR,"Can not encode routable type " + type + " (version " + version + "). Only major version 5 and up supported.");
             return new byte[0];
         }
-        DocumentSerializer out= DocumentSerializerFactory.createHead(new GrowableByteBuffer(8192));
+        GrowableByteBuffer buffer = encodeBuffers.get();
+        buffer.clear();
+        try {
+            DocumentSerializer out = DocumentSerializerFactory.createHead(buffer);
 
-        out.putInt(null, type);
-        if (!factory.encode(obj, out)) {
-            log.log(LogLevel.ERROR, "Routable factory " + factory.getClass().getName() + " failed to serialize " +
-                                    "routable of type " + type + " (version " + version + ").");
-            return new byte[0];
+            out.putInt(null, type);
+            if (!factory.encode(obj, out)) {
+                log.log(LogLevel.ERROR, "Routable factory " + factory.getClass().getName() + " failed to serialize " +
+                                        "routable of type " + type + " (version " + version + ").");
+                return new byte[0];
+            }
+            byte[] ret = new byte[out.getBuf().position()];
+            out.getBuf().rewind();
+            out.getBuf().get(ret);
+            return ret;
+        }
+        finally {
+            if (buffer.capacity() > maxReusedEncodeBufferSize)
+                encodeBuffers.set(new GrowableByteBuffer(encodeBufferSize));
         }
-        byte[] ret = new byte[out.getBuf().position()];
-        out.getBuf().rewind();
-        out.getBuf().get(ret);
-        return ret;
     }
 
     /**
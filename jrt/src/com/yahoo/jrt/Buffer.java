@@ -9,6 +9,7 @@ class Buffer {
 
     static final int MAX_IO = 65000;
 
+    private final BufferPool pool;
     private ByteBuffer buf;
     private int        readPos;
     private int        writePos;
@@ -58,23 +59,58 @@ class Buffer {
             if (buf.capacity() + free < minFree) {
                 size = buf.capacity() + minFree;
             }
-            ByteBuffer tmp = ByteBuffer.allocate(size);
+            ByteBuffer tmp = allocate(size);
             tmp.order(buf.order());
             buf.position(readPos);
             buf.limit(writePos);
             tmp.put(buf);
-            buf = tmp;
+            replace(tmp);
             readPos = 0;
         }
     }
 
+    private ByteBuffer allocate(int size) {
+        return (pool == null) ? ByteBuffer.allocate(size) : pool.acquire(size);
+    }
+
+    private void replace(ByteBuffer tmp) {
+        if (pool != null) {
+            pool.release(buf);
+        }
+        buf = tmp;
+    }
+
     public Buffer(int size) {
-        buf = ByteBuffer.allocate(size);
+        this(size, null);
+    }
+
+    /**
+     * Create a buffer which allocates direct byte buffers from the
+     * given pool, and returns them to it when they are replaced or
+     * the buffer is released.
+     *
+     * @param size initial size
+     * @param pool the pool to allocate from, or null to use heap buffers
+     **/
+    public Buffer(int size, BufferPool pool) {
+        this.pool = pool;
+        buf = allocate(size);
         readPos = 0;
         writePos = 0;
         readMode = false;
     }
 
+    /**
+     * Return the underlying byte buffer to the pool of this buffer, if
+     * any. This buffer must not be used after this.
+     **/
+    public void release() {
+        if (pool != null && buf != null) {
+            pool.release(buf);
+        }
+        buf = null;
+    }
+
     public boolean shrink(int size) {
         int rpos = readMode? buf.position() : readPos;
         int wpos = readMode? writePos : buf.position();
@@ -82,12 +118,18 @@ class Buffer {
         if (used > size || buf.capacity() <= size) {
             return false;
         }
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = allocate(size);
+        if (tmp.capacity() >= buf.capacity()) {
+            if (pool != null) {
+                pool.release(tmp);
+            }
+            return false;
+        }
         tmp.order(buf.order());
         buf.position(rpos);
         buf.limit(wpos);
         tmp.put(buf);
-        buf = tmp;
+        replace(tmp);
         readPos = 0;
         writePos = used;
         buf.position(readMode? readPos : writePos);
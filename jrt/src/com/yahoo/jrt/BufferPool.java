@@ -0,0 +1,138 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A pool of direct byte buffers, shared by the connections of a
+ * transport thread. Socket reads and writes from direct buffers
+ * avoid the copying to and from a temporary direct buffer done by
+ * the JDK for heap buffers. Buffer capacities are rounded up to a
+ * power of two. Buffers larger than the max pooled size are heap
+ * buffers, as allocating and freeing direct memory for each large
+ * packet costs more than the copying it saves. Released buffers are
+ * kept for reuse as long as the total capacity kept by all pools is
+ * within a small budget. This class is thread-safe.
+ **/
+class BufferPool {
+
+    static final int MIN_SIZE = 1024;
+    static final int MAX_POOLED_SIZE = 1024 * 1024;
+    static final long MAX_POOLED_BYTES = 16 * 1024 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE) - MIN_SHIFT + 1;
+
+    /** The capacity of the buffers kept by all pools using the global budget */
+    private static final AtomicLong globalPooledBytes = new AtomicLong();
+
+    private final List<ConcurrentLinkedQueue<ByteBuffer>> pools = new ArrayList<>(SIZE_CLASSES);
+    private final AtomicLong pooledBytes;
+    private final long maxPooledBytes;
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    /** Creates a pool sharing the global budget of pooled bytes with all other pools created by this */
+    BufferPool() {
+        this(globalPooledBytes, MAX_POOLED_BYTES);
+    }
+
+    /** Creates a pool with its own budget of pooled bytes */
+    BufferPool(long maxPooledBytes) {
+        this(new AtomicLong(), maxPooledBytes);
+    }
+
+    private BufferPool(AtomicLong pooledBytes, long maxPooledBytes) {
+        this.pooledBytes = pooledBytes;
+        this.maxPooledBytes = maxPooledBytes;
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            pools.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    private static int sizeClass(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - MIN_SHIFT;
+    }
+
+    /**
+     * Returns a cleared buffer with a capacity of at least the given
+     * size, taken from this pool if possible. The buffer is direct
+     * unless the size is larger than the max pooled size.
+     *
+     * @param minSize the minimum capacity of the buffer
+     **/
+    ByteBuffer acquire(int minSize) {
+        if (minSize > MAX_POOLED_SIZE) {
+            return ByteBuffer.allocate(minSize);
+        }
+        int capacity = MIN_SIZE;
+        while (capacity < minSize) {
+            capacity *= 2;
+        }
+        ByteBuffer buf = pools.get(sizeClass(capacity)).poll();
+        if (buf == null) {
+            return ByteBuffer.allocateDirect(capacity);
+        }
+        pooledCount.decrementAndGet();
+        pooledBytes.addAndGet(-capacity);
+        buf.clear();
+        buf.order(ByteOrder.BIG_ENDIAN);
+        return buf;
+    }
+
+    /**
+     * Returns a buffer acquired from this pool for reuse. The buffer
+     * must not be used by the caller after this.
+     *
+     * @param buf the buffer to release
+     **/
+    void release(ByteBuffer buf) {
+        int capacity = buf.capacity();
+        if (!buf.isDirect() || capacity < MIN_SIZE || capacity > MAX_POOLED_SIZE || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+        pooledCount.incrementAndGet();
+        pools.get(sizeClass(capacity)).add(buf);
+    }
+
+    /**
+     * Drops all buffers kept by this pool, returning their capacity
+     * to the budget. Buffers may still be released to this after
+     * this, but should not be.
+     **/
+    void clear() {
+        for (ConcurrentLinkedQueue<ByteBuffer> pool : pools) {
+            ByteBuffer buf;
+            while ((buf = pool.poll()) != null) {
+                pooledCount.decrementAndGet();
+                pooledBytes.addAndGet(-buf.capacity());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of buffers currently kept for reuse.
+     **/
+    int pooledCount() {
+        return pooledCount.get();
+    }
+
+    /**
+     * Returns the total capacity of the buffers currently kept for
+     * reuse by all pools sharing the budget of this.
+     **/
+    long pooledBytes() {
+        return pooledBytes.get();
+    }
+}
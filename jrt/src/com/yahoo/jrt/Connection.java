@@ -32,8 +32,8 @@ class Connection extends Target {
     private int state = INITIAL;
     private final Queue  queue   = new Queue();
     private final Queue  myQueue = new Queue();
-    private final Buffer input   = new Buffer(READ_SIZE * 2);
-    private final Buffer output  = new Buffer(WRITE_SIZE * 2);
+    private final Buffer input;
+    private final Buffer output;
     private int maxInputSize  = 64*1024;
     private int maxOutputSize = 64*1024;
     private final Map<Integer, ReplyHandler> replyMap = new HashMap<>();
@@ -93,6 +93,9 @@ class Connection extends Target {
 
         this.parent = parent;
         this.owner = owner;
+        this.input = new Buffer(READ_SIZE * 2, parent.bufferPool());
+        this.output = new Buffer(WRITE_SIZE * 2, parent.bufferPool());
+        parent.connectionAssigned();
         this.socket = parent.transport().createCryptoSocket(channel, true);
         this.spec = null;
         server = true;
@@ -103,6 +106,9 @@ class Connection extends Target {
         super(context);
         this.parent = parent;
         this.owner = owner;
+        this.input = new Buffer(READ_SIZE * 2, parent.bufferPool());
+        this.output = new Buffer(WRITE_SIZE * 2, parent.bufferPool());
+        parent.connectionAssigned();
         this.spec = spec;
         server = false;
         owner.sessionInit(this);
@@ -380,6 +386,8 @@ class Connection extends Target {
         if (selectionKey != null) {
             selectionKey.cancel();
         }
+        input.release();
+        output.release();
     }
 
     public boolean isClosed() {
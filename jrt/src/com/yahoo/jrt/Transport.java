@@ -5,10 +5,12 @@ package com.yahoo.jrt;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 /**
  * The Transport class is the core needed to make your {@link
@@ -59,12 +61,32 @@ public class Transport {
     public Transport() { this(null, CryptoEngine.createDefault(), 1); }
 
     /**
-     * Select a random transport thread
+     * Select the least loaded transport thread. The load of a thread
+     * is the number of connections it handles, which is updated as
+     * soon as a connection is assigned to it, such that a burst of
+     * connections is spread evenly. Ties are broken by the number of
+     * I/O events handled during the last second, and then by starting
+     * from a random thread.
      *
-     * @return a random transport thread
+     * @return the least loaded transport thread
      **/
     public TransportThread selectThread() {
-        return threads.get(rnd.nextInt(threads.size()));
+        int start = rnd.nextInt(threads.size());
+        TransportThread best = threads.get(start);
+        for (int i = 1; i < threads.size(); i++) {
+            TransportThread candidate = threads.get((start + i) % threads.size());
+            if (isLessLoaded(candidate, best)) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isLessLoaded(TransportThread a, TransportThread b) {
+        if (a.connections() != b.connections()) {
+            return a.connections() < b.connections();
+        }
+        return a.recentIoEvents() < b.recentIoEvents();
     }
 
     /**
@@ -189,4 +211,14 @@ public class Transport {
     public TransportMetrics metrics() {
         return metrics;
     }
+
+    /**
+     * Returns the current load of each of the transport threads of
+     * this transport.
+     *
+     * @return the load of each transport thread
+     **/
+    public List<TransportMetrics.TransportThreadLoad> threadLoads() {
+        return threads.stream().map(TransportMetrics.TransportThreadLoad::new).collect(Collectors.toList());
+    }
 }
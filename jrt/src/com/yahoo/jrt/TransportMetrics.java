@@ -1,8 +1,12 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.jrt;
 
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 
 /**
  * Metric values produced by {@link Transport}.
@@ -19,6 +23,7 @@ public class TransportMetrics {
     private final AtomicLong clientTlsConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong serverUnencryptedConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong clientUnencryptedConnectionsEstablished = new AtomicLong(0);
+    private final Set<TransportThread> transportThreads = ConcurrentHashMap.newKeySet();
 
     private TransportMetrics() {}
 
@@ -48,8 +53,21 @@ public class TransportMetrics {
         return clientUnencryptedConnectionsEstablished.get();
     }
 
+    /** Returns the current load of each running transport thread of all transports */
+    public List<TransportThreadLoad> transportThreadLoads() {
+        return transportThreads.stream().map(TransportThreadLoad::new).collect(Collectors.toList());
+    }
+
     public Snapshot snapshot() { return new Snapshot(this); }
 
+    void addTransportThread(TransportThread thread) {
+        transportThreads.add(thread);
+    }
+
+    void removeTransportThread(TransportThread thread) {
+        transportThreads.remove(thread);
+    }
+
     void incrementTlsCertificateVerificationFailures() {
         tlsCertificateVerificationFailures.incrementAndGet();
     }
@@ -86,6 +104,36 @@ public class TransportMetrics {
                 '}';
     }
 
+    /** The load of a transport thread at some point in time */
+    public static class TransportThreadLoad {
+
+        private final int connections;
+        private final long ioEvents;
+        private final long recentIoEvents;
+
+        TransportThreadLoad(TransportThread thread) {
+            this.connections = thread.connections();
+            this.ioEvents = thread.ioEvents();
+            this.recentIoEvents = thread.recentIoEvents();
+        }
+
+        /** Returns the number of open connections handled by the thread */
+        public int connections() { return connections; }
+        /** Returns the total number of connection I/O events handled by the thread */
+        public long ioEvents() { return ioEvents; }
+        /** Returns the number of connection I/O events handled by the thread during the last second */
+        public long recentIoEvents() { return recentIoEvents; }
+
+        @Override
+        public String toString() {
+            return "TransportThreadLoad{" +
+                    "connections=" + connections +
+                    ", ioEvents=" + ioEvents +
+                    ", recentIoEvents=" + recentIoEvents +
+                    '}';
+        }
+    }
+
     public static class Snapshot {
         public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
 
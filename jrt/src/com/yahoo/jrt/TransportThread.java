@@ -7,6 +7,8 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +23,9 @@ public class TransportThread {
     private static final int CLOSING = 2;
     private static final int CLOSED  = 3;
 
+    /** The interval in ms over which the recent load of this thread is measured */
+    private static final long LOAD_INTERVAL = 1000;
+
     private class Run implements Runnable {
         public void run() {
             try {
@@ -77,6 +82,12 @@ public class TransportThread {
     private final Scheduler scheduler;
     private int             state;
     private final Selector  selector;
+    private final BufferPool bufferPool = new BufferPool();
+    private final AtomicInteger connections = new AtomicInteger(0);
+    private final AtomicLong ioEvents = new AtomicLong(0);
+    private volatile long recentIoEvents = 0;
+    private long loadIntervalEnd = 0;
+    private long loadIntervalIoEvents = 0;
 
     private void handleAddConnection(Connection conn) {
         if (conn.isClosed()) {
@@ -94,6 +105,7 @@ public class TransportThread {
         if (conn.isClosed()) {
             return;
         }
+        connections.decrementAndGet();
         conn.fini();
         if (conn.hasSocket()) {
             parent.closeLater(conn);
@@ -148,6 +160,7 @@ public class TransportThread {
         if (conn.isClosed()) {
             return true;
         }
+        ioEvents.incrementAndGet();
         if (key.isReadable()) {
             try {
                 conn.handleReadEvent();
@@ -179,6 +192,7 @@ public class TransportThread {
         } catch (Exception e) {
             throw new Error("Could not open transport selector", e);
         }
+        transport.metrics().addTransportThread(this);
         thread.setDaemon(true);
         thread.start();
     }
@@ -187,6 +201,64 @@ public class TransportThread {
         return parent;
     }
 
+    /**
+     * Returns the pool of direct buffers shared by the connections
+     * of this thread.
+     *
+     * @return buffer pool
+     **/
+    BufferPool bufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Called when a connection is assigned to this thread. The
+     * connection is unassigned when it is closed.
+     **/
+    void connectionAssigned() {
+        connections.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of open connections handled by this thread.
+     *
+     * @return number of connections
+     **/
+    public int connections() {
+        return connections.get();
+    }
+
+    /**
+     * Returns the total number of connection I/O events handled by
+     * this thread.
+     *
+     * @return number of I/O events
+     **/
+    public long ioEvents() {
+        return ioEvents.get();
+    }
+
+    /**
+     * Returns the number of connection I/O events handled by this
+     * thread during the last completed load interval of one second.
+     * This is used as a measure of how loaded this thread currently is.
+     *
+     * @return number of recent I/O events
+     **/
+    public long recentIoEvents() {
+        return recentIoEvents;
+    }
+
+    private void updateLoad(long now) {
+        if (now < loadIntervalEnd) {
+            return;
+        }
+        long events = ioEvents.get();
+        recentIoEvents = (now < loadIntervalEnd + LOAD_INTERVAL) ? events - loadIntervalIoEvents : 0;
+        loadIntervalIoEvents = events;
+        loadIntervalEnd = now + LOAD_INTERVAL;
+    }
+
     /**
      * Proxy method used to dispatch fatal errors to the enclosing
      * Transport.
@@ -315,7 +387,9 @@ public class TransportThread {
             }
 
             // check scheduled tasks
-            scheduler.checkTasks(System.currentTimeMillis());
+            long now = System.currentTimeMillis();
+            scheduler.checkTasks(now);
+            updateLoad(now);
         }
         synchronized (this) {
             state = CLOSED;
@@ -328,6 +402,8 @@ public class TransportThread {
             handleCloseConnection(conn);
         }
         try { selector.close(); } catch (Exception e) {}
+        bufferPool.clear();
+        parent.metrics().removeTransportThread(this);
         parent.notifyDone(this);
     }
 
@@ -278,4 +278,58 @@ public class BufferTest {
         }
     }
 
+
+    @org.junit.Test
+    public void testPooledBuffer() {
+        BufferPool pool = new BufferPool(BufferPool.MAX_POOLED_BYTES);
+        Buffer buf = new Buffer(1000, pool);
+        ByteBuffer b = buf.getWritable(10);
+        assertTrue(b.isDirect());
+        assertEquals(1024, b.capacity());
+        b.put((byte)42);
+
+        b = buf.getWritable(5000);
+        assertTrue(b.isDirect());
+        assertEquals(8192, b.capacity());
+        assertEquals(1, pool.pooledCount());
+
+        assertTrue(buf.shrink(2048));
+        assertEquals(2048, buf.getReadable().capacity());
+        assertEquals(2, pool.pooledCount());
+        assertFalse(buf.shrink(1500)); // would not be smaller when rounded up
+        assertEquals(3, pool.pooledCount());
+        assertEquals(42, buf.getReadable().get());
+
+        buf.release();
+        assertEquals(4, pool.pooledCount());
+
+        Buffer reused = new Buffer(2000, pool);
+        assertEquals(3, pool.pooledCount());
+        assertEquals(0, reused.bytes());
+        assertEquals(2048, reused.getWritable(10).remaining());
+    }
+
+    @org.junit.Test
+    public void testBufferPoolLimits() {
+        BufferPool pool = new BufferPool(4 * 1024);
+        ByteBuffer large = pool.acquire(BufferPool.MAX_POOLED_SIZE + 1);
+        assertEquals(BufferPool.MAX_POOLED_SIZE + 1, large.capacity());
+        assertFalse(large.isDirect());
+        pool.release(large);
+        pool.release(ByteBuffer.allocate(1024));
+        assertEquals(0, pool.pooledCount());
+        pool.release(ByteBuffer.allocateDirect(2048));
+        pool.release(ByteBuffer.allocateDirect(1024));
+        pool.release(ByteBuffer.allocateDirect(2048)); // over budget
+        pool.release(ByteBuffer.allocateDirect(1024));
+        pool.release(ByteBuffer.allocateDirect(1024)); // over budget
+        assertEquals(3, pool.pooledCount());
+        assertEquals(4 * 1024, pool.pooledBytes());
+
+        assertEquals(2048, pool.acquire(1500).capacity());
+        assertEquals(2 * 1024, pool.pooledBytes());
+        pool.clear();
+        assertEquals(0, pool.pooledCount());
+        assertEquals(0, pool.pooledBytes());
+    }
 }
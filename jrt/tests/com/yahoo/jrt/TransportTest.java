@@ -0,0 +1,50 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TransportTest {
+
+    @org.junit.Test
+    public void testConnectionsAreSpreadOverTransportThreads() throws ListenFailedException {
+        Test.Orb server   = new Test.Orb(new Transport());
+        Transport transport = new Transport(4);
+        Test.Orb client   = new Test.Orb(transport);
+        Acceptor acceptor = server.listen(new Spec(0));
+
+        List<Target> targets = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            targets.add(client.connect(new Spec("localhost", acceptor.port())));
+        }
+        List<TransportMetrics.TransportThreadLoad> loads = transport.threadLoads();
+        assertEquals(4, loads.size());
+        for (TransportMetrics.TransportThreadLoad load : loads) {
+            assertEquals("A burst of connections is spread evenly: " + loads, 2, load.connections());
+        }
+
+        for (int i = 0; i < 100; i++) {
+            if (client.initCount == 8 && server.initCount == 8) {
+                break;
+            }
+            try { Thread.sleep(100); } catch (InterruptedException e) {}
+        }
+        targets.forEach(Target::close);
+        for (int i = 0; i < 100; i++) {
+            if (client.finiCount == 8) {
+                break;
+            }
+            try { Thread.sleep(100); } catch (InterruptedException e) {}
+        }
+        for (TransportMetrics.TransportThreadLoad load : transport.threadLoads()) {
+            assertEquals(0, load.connections());
+        }
+
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+}
@@ -1,8 +1,8 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,13 +13,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
  *
+ * The sequencing state is split into stripes by sequencing id, each guarded by its own lock, such that
+ * messages with different sequencing ids mostly do not contend. All messages of one id use the same stripe,
+ * which preserves their order.
+ *
  * @author Simon Thoresen Hult
  */
 public class Sequencer implements MessageHandler, ReplyHandler {
 
+    /** The number of bits of the (mixed) sequencing id used to select a stripe */
+    private static final int stripeBits = 6;
+
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    private final Stripe[] stripes = new Stripe[1 << stripeBits];
 
     /**
      * Constructs a new sequencer on top of the given async sender.
@@ -28,6 +35,13 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public Sequencer(MessageHandler sender) {
         this.sender = sender;
+        for (int i = 0; i < stripes.length; i++)
+            stripes[i] = new Stripe();
+    }
+
+    /** Returns the stripe holding the state of the given sequencing id */
+    private Stripe stripeOf(long seqId) {
+        return stripes[(int)((seqId * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - stripeBits))];
     }
 
     /**
@@ -38,15 +52,17 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    for (Queue<Message> queue : stripe.seqMap.values()) {
+                        if (queue != null) {
+                            for (Message msg : queue) {
+                                msg.discard();
+                            }
                         }
                     }
+                    stripe.seqMap.clear();
                 }
-                seqMap.clear();
             }
             return true;
         }
@@ -65,12 +81,13 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
-            if (seqMap.containsKey(seqId)) {
-                Queue<Message> queue = seqMap.get(seqId);
+        Stripe stripe = stripeOf(seqId);
+        synchronized (stripe) {
+            if (stripe.seqMap.containsKey(seqId)) {
+                Queue<Message> queue = stripe.seqMap.get(seqId);
                 if (queue == null) {
-                    queue = new LinkedList<>();
-                    seqMap.put(seqId, queue);
+                    queue = new ArrayDeque<>();
+                    stripe.seqMap.put(seqId, queue);
                 }
                 if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
                     msg.getTrace().trace(TraceLevel.COMPONENT,
@@ -79,7 +96,7 @@ public class Sequencer implements MessageHandler, ReplyHandler {
                 queue.add(msg);
                 return false;
             }
-            seqMap.put(seqId, null);
+            stripe.seqMap.put(seqId, null);
         }
         return true;
     }
@@ -138,10 +155,11 @@ public class Sequencer implements MessageHandler, ReplyHandler {
                                    "Sequencer received reply with sequence id '" + seqId + "'.");
         }
         Message msg = null;
-        synchronized (this) {
-            Queue<Message> queue = seqMap.get(seqId);
+        Stripe stripe = stripeOf(seqId);
+        synchronized (stripe) {
+            Queue<Message> queue = stripe.seqMap.get(seqId);
             if (queue == null || queue.isEmpty()) {
-                seqMap.remove(seqId);
+                stripe.seqMap.remove(seqId);
             } else {
                 msg = queue.remove();
             }
@@ -152,4 +170,12 @@ public class Sequencer implements MessageHandler, ReplyHandler {
         ReplyHandler handler = reply.popHandler();
         handler.handleReply(reply);
     }
+
+    /** The sequencing state of the ids of one stripe. A null queue means a message is in flight and none are queued */
+    private static class Stripe {
+
+        final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+
+    }
+
 }
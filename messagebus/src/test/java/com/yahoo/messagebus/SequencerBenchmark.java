@@ -0,0 +1,88 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.test.SimpleMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the throughput of a sequencer used by many concurrent senders, with messages which are
+ * replied to immediately, such that the time is dominated by the sequencer's handling of its state.
+ *
+ * @author agent
+ */
+public class SequencerBenchmark {
+
+    private final int threadCount;
+    private final int messagesPerThread;
+    private final int sequenceIdCount;
+
+    public SequencerBenchmark(int threadCount, int messagesPerThread, int sequenceIdCount) {
+        this.threadCount = threadCount;
+        this.messagesPerThread = messagesPerThread;
+        this.sequenceIdCount = sequenceIdCount;
+    }
+
+    /** Returns the number of messages sent and replied to per second */
+    public double run() throws InterruptedException {
+        AtomicLong replies = new AtomicLong();
+        Sequencer sequencer = new Sequencer(SequencerBenchmark::replyTo);
+        List<Thread> senders = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            senders.add(new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int j = 0; j < messagesPerThread; j++) {
+                    Message message = new SequencedMessage(random.nextInt(sequenceIdCount));
+                    message.pushHandler(reply -> replies.incrementAndGet());
+                    sequencer.handleMessage(message);
+                }
+            }));
+        }
+
+        long startTime = System.nanoTime();
+        senders.forEach(Thread::start);
+        for (Thread sender : senders)
+            sender.join();
+        long totalTime = System.nanoTime() - startTime;
+
+        if (replies.get() != (long)threadCount * messagesPerThread)
+            throw new IllegalStateException("Expected " + threadCount * messagesPerThread + " replies, got " + replies.get());
+        return replies.get() * 1e9 / totalTime;
+    }
+
+    private static void replyTo(Message message) {
+        Reply reply = new EmptyReply();
+        reply.swapState(message);
+        reply.setMessage(message);
+        reply.popHandler().handleReply(reply);
+    }
+
+    private static class SequencedMessage extends SimpleMessage {
+
+        private final long seqId;
+
+        SequencedMessage(long seqId) {
+            super("benchmark");
+            this.seqId = seqId;
+        }
+
+        @Override
+        public boolean hasSequenceId() { return true; }
+
+        @Override
+        public long getSequenceId() { return seqId; }
+
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int threadCount : new int[] { 1, 4, 16, 64 }) {
+            SequencerBenchmark benchmark = new SequencerBenchmark(threadCount, 2000000 / threadCount, 100000);
+            benchmark.run(); // warmup
+            System.out.printf("%3d threads: %,.0f messages/s%n", threadCount, benchmark.run());
+        }
+    }
+
+}
@@ -4,8 +4,17 @@ package com.yahoo.messagebus;
 import com.yahoo.messagebus.test.SimpleMessage;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -104,6 +113,63 @@ public class SequencerTestCase {
         assertEquals(0, dst.size());
     }
 
+    @Test
+    public void testConcurrentSendersKeepOrderPerSequenceId() throws InterruptedException {
+        int threadCount = 8;
+        int messagesPerThread = 10000;
+        BlockingQueue<Message> sent = new LinkedBlockingQueue<>();
+        Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+        Map<String, Integer> lastSent = new ConcurrentHashMap<>(); // by sending thread and sequence id
+        AtomicInteger errors = new AtomicInteger();
+        AtomicInteger replies = new AtomicInteger();
+        Sequencer seq = new Sequencer(msg -> {
+            OrderedMessage ordered = (OrderedMessage)msg;
+            if ( ! inFlight.add(ordered.getSequenceId()))
+                errors.incrementAndGet(); // two messages with the same id in flight
+            Integer last = lastSent.put(ordered.thread + "." + ordered.getSequenceId(), ordered.index);
+            if (last != null && last >= ordered.index)
+                errors.incrementAndGet(); // sent out of order
+            sent.add(msg);
+        });
+
+        Thread replier = new Thread(() -> {
+            try {
+                for (int i = 0; i < threadCount * messagesPerThread; i++) {
+                    Message msg = sent.take();
+                    inFlight.remove(msg.getSequenceId());
+                    Reply reply = new EmptyReply();
+                    reply.swapState(msg);
+                    reply.setMessage(msg);
+                    reply.popHandler().handleReply(reply);
+                }
+            }
+            catch (InterruptedException e) {
+                errors.incrementAndGet();
+            }
+        });
+        replier.start();
+
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int thread = t;
+            senders.add(new Thread(() -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < messagesPerThread; i++) {
+                    Message msg = new OrderedMessage(thread, i, random.nextInt(50));
+                    msg.pushHandler(reply -> replies.incrementAndGet());
+                    seq.handleMessage(msg);
+                }
+            }));
+        }
+        senders.forEach(Thread::start);
+        for (Thread sender : senders)
+            sender.join();
+        replier.join(60000);
+
+        assertEquals(0, errors.get());
+        assertEquals(threadCount * messagesPerThread, replies.get());
+    }
+
     @SuppressWarnings("serial")
     private static class TestQueue extends LinkedList<Routable> implements ReplyHandler {
 
@@ -183,5 +249,28 @@ public class SequencerTestCase {
         }
     }
 
-}
+    private static class OrderedMessage extends SimpleMessage {
+
+        final int thread;
+        final int index;
+        final long seqId;
 
+        OrderedMessage(int thread, int index, long seqId) {
+            super("foo");
+            this.thread = thread;
+            this.index = index;
+            this.seqId = seqId;
+        }
+
+        @Override
+        public boolean hasSequenceId() {
+            return true;
+        }
+
+        @Override
+        public long getSequenceId() {
+            return seqId;
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of reusable copies of the context prototype of a function.
+ * Released contexts are kept in a fixed number of slots which are taken and filled by atomic operations,
+ * such that acquiring and releasing contexts needs no locking, and allocates nothing when a released
+ * context is available. Contexts released when all slots are full are left to the garbage collector.
+ *
+ * This is owned by its model and holds no thread state, so it does not keep the model alive
+ * after the model is dropped.
+ *
+ * This is multithread safe.
+ *
+ * @author agent
+ */
+final class ContextPool {
+
+    /** The max number of released contexts kept */
+    private static final int slotCount = 32;
+
+    private final LazyArrayContext prototype;
+
+    private final AtomicReferenceArray<LazyArrayContext> slots = new AtomicReferenceArray<>(slotCount);
+
+    ContextPool(LazyArrayContext prototype) {
+        this.prototype = prototype;
+    }
+
+    /** Returns a context which is not used by anyone else, in the state of a fresh copy of the prototype */
+    LazyArrayContext acquire() {
+        int start = startSlot();
+        for (int i = 0; i < slotCount; i++) {
+            int slot = (start + i) % slotCount;
+            if (slots.get(slot) == null) continue;
+            LazyArrayContext context = slots.getAndSet(slot, null);
+            if (context != null) return context;
+        }
+        return prototype.copy();
+    }
+
+    /** Resets the given context, which must be acquired from this and no longer used, and makes it available for reuse */
+    void release(LazyArrayContext context) {
+        context.reset();
+        int start = startSlot();
+        for (int i = 0; i < slotCount; i++) {
+            if (slots.compareAndSet((start + i) % slotCount, null, context)) return;
+        }
+    }
+
+    /** Returns the slot to start searching from, which differs between threads to reduce contention */
+    private static int startSlot() {
+        return (int)(Thread.currentThread().getId() % slotCount);
+    }
+
+}
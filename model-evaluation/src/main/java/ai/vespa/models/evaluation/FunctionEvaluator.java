@@ -2,11 +2,18 @@
 package ai.vespa.models.evaluation;
 
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForest;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -18,12 +25,17 @@ import java.util.stream.Collectors;
 public class FunctionEvaluator {
 
     private final ExpressionFunction function;
+    private final ContextPool contextPool;
     private final LazyArrayContext context;
+    private boolean released = false;
+    private final Optional<CompiledExpression> compiled;
     private boolean evaluated = false;
 
-    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context) {
+    FunctionEvaluator(ExpressionFunction function, ContextPool contextPool, Optional<CompiledExpression> compiled) {
         this.function = function;
-        this.context = context;
+        this.contextPool = contextPool;
+        this.context = contextPool.acquire();
+        this.compiled = compiled;
     }
 
     /**
@@ -36,6 +48,11 @@ public class FunctionEvaluator {
     public FunctionEvaluator bind(String name, Tensor value) {
         if (evaluated)
             throw new IllegalStateException("Cannot bind a new value in a used evaluator");
+        bindArgument(name, value);
+        return this;
+    }
+
+    private void bindArgument(String name, Tensor value) {
         TensorType requiredType = function.argumentTypes().get(name);
         if (requiredType == null)
             throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
@@ -45,7 +62,6 @@ public class FunctionEvaluator {
         if ( ! value.type().isAssignableTo(requiredType))
             throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + value.type());
         context.put(name, new TensorValue(value));
-        return this;
     }
 
     /**
@@ -83,7 +99,99 @@ public class FunctionEvaluator {
         return setMissingValue(Tensor.Builder.of(TensorType.empty).cell(value).build());
     }
 
+    /**
+     * Sets the minimal number of cells in the result of a dense tensor operation for it to be evaluated
+     * in parallel using the common fork-join pool. By default all evaluation happens in the calling thread.
+     *
+     * @param cellCount the minimal number of result cells for parallel evaluation
+     * @return this for chaining
+     */
+    public FunctionEvaluator setParallelEvaluationThreshold(long cellCount) {
+        requireNotReleased();
+        context.setParallelEvaluationThreshold(cellCount);
+        return this;
+    }
+
     public Tensor evaluate() {
+        requireNotReleased();
+        requireBoundArguments();
+        evaluated = true;
+        try {
+            return evaluateBound();
+        }
+        finally {
+            release();
+        }
+    }
+
+    /**
+     * Evaluates the function once for each of the given sets of argument bindings.
+     * This is cheaper than evaluating the bindings with separate evaluators, as the same context is reused.
+     * Values bound in this evaluator before calling this are shared by all the evaluations, while the
+     * values of each binding set are only used in the evaluation of that set.
+     * Functions which are sums of decision trees are evaluated tree by tree for the whole batch.
+     *
+     * @param bindings the sets of argument values to evaluate with
+     * @return the result of each evaluation, in the order of the given bindings
+     */
+    public List<Tensor> evaluate(List<Map<String, Tensor>> bindings) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot evaluate a batch in a used evaluator");
+        evaluated = true;
+        try {
+            Value[] sharedBindings = context.snapshot();
+            if (function.getBody().getRoot() instanceof GBDTForestNode)
+                return evaluateForest(((GBDTForestNode)function.getBody().getRoot()).forest(), sharedBindings, bindings);
+
+            List<Tensor> results = new ArrayList<>(bindings.size());
+            for (Map<String, Tensor> binding : bindings) {
+                bindAll(sharedBindings, binding);
+                results.add(evaluateBound());
+            }
+            return results;
+        }
+        finally {
+            release();
+        }
+    }
+
+    /** Evaluates a forest for a batch, such that each tree is read once for the batch rather than once per binding */
+    private List<Tensor> evaluateForest(GBDTForest forest, Value[] sharedBindings, List<Map<String, Tensor>> bindings) {
+        double[][] inputs = new double[bindings.size()][];
+        for (int i = 0; i < inputs.length; i++) {
+            bindAll(sharedBindings, bindings.get(i));
+            inputs[i] = new double[context.size()];
+            for (int index = 0; index < inputs[i].length; index++)
+                inputs[i][index] = context.getDouble(index);
+        }
+        double[] results = new double[inputs.length];
+        forest.evaluate(inputs, results);
+        List<Tensor> tensors = new ArrayList<>(results.length);
+        for (double result : results)
+            tensors.add(Tensor.Builder.of(TensorType.empty).cell(result).build());
+        return tensors;
+    }
+
+    /** Sets the bindings of the context to the given shared bindings, overridden by the given bindings */
+    private void bindAll(Value[] sharedBindings, Map<String, Tensor> binding) {
+        context.restore(sharedBindings);
+        for (Map.Entry<String, Tensor> argument : binding.entrySet())
+            bindArgument(argument.getKey(), argument.getValue());
+        requireBoundArguments();
+    }
+
+    /** Returns the context of this to the pool, after which this cannot be used */
+    private void release() {
+        released = true;
+        contextPool.release(context);
+    }
+
+    private void requireNotReleased() {
+        if (released)
+            throw new IllegalStateException("This evaluator is already evaluated: Create a new evaluator to evaluate again");
+    }
+
+    private void requireBoundArguments() {
         for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
             if (context.isMissing(argument.getKey()))
                 throw new IllegalStateException("Missing argument '" + argument.getKey() +
@@ -93,13 +201,25 @@ public class FunctionEvaluator {
                                                 "' must be bound to a value of type " + argument.getValue());
 
         }
-        evaluated = true;
+    }
+
+    private Tensor evaluateBound() {
+        if (compiled.isPresent())
+            return Tensor.Builder.of(TensorType.empty).cell(compiled.get().evaluate(context)).build();
         return function.getBody().evaluate(context).asTensor();
     }
 
     /** Returns the function evaluated by this */
     public ExpressionFunction function() { return function; }
 
-    public LazyArrayContext context() { return context; }
+    /**
+     * Returns the context of this.
+     *
+     * @throws IllegalStateException if this is evaluated, as the context is then reused by other evaluators
+     */
+    public LazyArrayContext context() {
+        requireNotReleased();
+        return context;
+    }
 
 }
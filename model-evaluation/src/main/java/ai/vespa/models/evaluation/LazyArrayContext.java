@@ -133,6 +133,28 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return indexedBindings.missingValue;
     }
 
+    /** Returns a copy of the values currently bound in this, which can be restored by {@link #restore} */
+    Value[] snapshot() {
+        return indexedBindings.snapshot();
+    }
+
+    /**
+     * Restores the values of this to those of the given snapshot of this,
+     * and discards the values computed by the function invocations of this.
+     */
+    void restore(Value[] snapshot) {
+        indexedBindings.restore(snapshot);
+    }
+
+    /**
+     * Resets this to the state it was created in, such that it can be reused for another evaluation:
+     * Bound values are removed, computed function values are discarded and default settings are restored.
+     */
+    void reset() {
+        indexedBindings.reset();
+        setParallelEvaluationThreshold(Long.MAX_VALUE);
+    }
+
     /**
      * Creates a copy of this context suitable for evaluating against the same ranking expression
      * in a different thread or for re-binding free variables.
@@ -152,17 +174,24 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         /** The current values set */
         private final Value[] values;
 
+        /** The values set when this was created, which are restored on reset */
+        private final Value[] initialValues;
+
         /** The object instance which encodes "no value is set". The actual value of this is never used. */
         private static final Value missing = new DoubleValue(Double.NaN).freeze();
 
+        /** The default value to return for lookups where no value is set */
+        private static final Value defaultMissingValue = new DoubleValue(Double.NaN).freeze();
+
         /** The value to return for lookups where no value is set (default: NaN) */
-        private Value missingValue = new DoubleValue(Double.NaN).freeze();
+        private Value missingValue = defaultMissingValue;
 
         private IndexedBindings(ImmutableMap<String, Integer> nameToIndex,
                                 Value[] values,
                                 ImmutableSet<String> arguments) {
             this.nameToIndex = nameToIndex;
             this.values = values;
+            this.initialValues = values.clone();
             this.arguments = arguments;
         }
 
@@ -205,6 +234,7 @@ public final class LazyArrayContext extends Context implements ContextIndex {
                     values[index] = new LazyValue(referencedFunction.getKey(), owner, model);
                 }
             }
+            initialValues = values.clone();
         }
 
         private void setMissingValue(Tensor value) {
@@ -258,6 +288,21 @@ public final class LazyArrayContext extends Context implements ContextIndex {
             values[index] = value;
         }
 
+        Value[] snapshot() { return values.clone(); }
+
+        void restore(Value[] snapshot) {
+            System.arraycopy(snapshot, 0, values, 0, values.length);
+            for (Value value : values) {
+                if (value instanceof LazyValue)
+                    ((LazyValue)value).reset();
+            }
+        }
+
+        void reset() {
+            restore(initialValues);
+            missingValue = defaultMissingValue;
+        }
+
         Set<String> names() { return nameToIndex.keySet(); }
         Set<String> arguments() { return arguments; }
         Integer indexOf(String name) { return nameToIndex.get(name); }
@@ -151,4 +151,9 @@ class LazyValue extends Value {
         return new LazyValue(this.function, context, model);
     }
 
+    /** Discards the value computed by this, if any, such that it is computed again when next requested */
+    void reset() {
+        computedValue = null;
+    }
+
 }
@@ -5,8 +5,10 @@ import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
 import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionCompiler;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
 import com.yahoo.searchlib.rankingexpression.evaluation.Value;
 import com.yahoo.tensor.TensorType;
@@ -16,6 +18,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -43,7 +46,14 @@ public class Model {
     /** Context prototypes, indexed by function name (as all invocations of the same function share the same context prototype) */
     private final ImmutableMap<String, LazyArrayContext> contextPrototypes;
 
+    /** Reusable copies of the context prototypes, indexed by function name */
+    private final ImmutableMap<String, ContextPool> contextPools;
+
+    /** Compiled versions of the free functions which are scalar, indexed by function name */
+    private final ImmutableMap<String, CompiledExpression> compiledFunctions;
+
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
+    private final ExpressionCompiler expressionCompiler = new ExpressionCompiler();
 
     /** Programmatically create a model containing functions without constant of function references only */
     public Model(String name, Collection<ExpressionFunction> functions) {
@@ -87,11 +97,21 @@ public class Model {
             }
         }
         this.contextPrototypes = contextBuilder.build();
+        ImmutableMap.Builder<String, ContextPool> contextPoolsBuilder = new ImmutableMap.Builder<>();
+        for (Map.Entry<String, LazyArrayContext> prototype : contextPrototypes.entrySet())
+            contextPoolsBuilder.put(prototype.getKey(), new ContextPool(prototype.getValue()));
+        this.contextPools = contextPoolsBuilder.build();
         this.functions = ImmutableList.copyOf(functions.values());
         this.publicFunctions = ImmutableList.copyOf(functions.values().stream()
                                                                       .filter(f ->  ! f.getName().startsWith(INTERMEDIATE_OPERATION_FUNCTION_PREFIX))
                                                                       .collect(Collectors.toList()));
 
+        ImmutableMap.Builder<String, CompiledExpression> compiledFunctionsBuilder = new ImmutableMap.Builder<>();
+        for (ExpressionFunction function : this.functions)
+            compile(function, contextPrototypes.get(function.getName()))
+                    .ifPresent(compiled -> compiledFunctionsBuilder.put(function.getName(), compiled));
+        this.compiledFunctions = compiledFunctionsBuilder.build();
+
         // Optimize functions
         ImmutableMap.Builder<FunctionReference, ExpressionFunction> functionsBuilder = new ImmutableMap.Builder<>();
         for (Map.Entry<FunctionReference, ExpressionFunction> function : referencedFunctions.entrySet()) {
@@ -109,6 +129,23 @@ public class Model {
         return function;
     }
 
+    /**
+     * Returns a compiled version of the given function if all its arguments are scalars and it
+     * references nothing but its arguments, such that it can be evaluated without value objects.
+     */
+    private Optional<CompiledExpression> compile(ExpressionFunction function, LazyArrayContext context) {
+        if ( ! context.names().equals(context.arguments())) return Optional.empty(); // references functions or constants
+        for (String argument : context.arguments()) {
+            if ( ! TensorType.empty.equals(function.argumentTypes().get(argument))) return Optional.empty();
+        }
+        try {
+            return Optional.of(expressionCompiler.compile(function.getBody(), context));
+        }
+        catch (IllegalArgumentException e) { // Not a scalar expression
+            return Optional.empty();
+        }
+    }
+
     public String name() { return name; }
 
     /**
@@ -128,13 +165,13 @@ public class Model {
         return function;
     }
 
-    /** Returns the given function, or throws a IllegalArgumentException if it does not exist */
-    private LazyArrayContext requireContextProprotype(String name) {
-        LazyArrayContext context = contextPrototypes.get(name);
-        if (context == null) // Implies function is not present
+    /** Returns the context pool of the given function, or throws a IllegalArgumentException if it does not exist */
+    private ContextPool requireContextPool(String name) {
+        ContextPool contextPool = contextPools.get(name);
+        if (contextPool == null) // Implies function is not present
             throw new IllegalArgumentException("No function named '" + name + "' in " + this + ". Available functions: " +
                                                functions.stream().map(f -> f.getName()).collect(Collectors.joining(", ")));
-        return context;
+        return contextPool;
     }
 
     /** Returns the function with the given name, or null if none */ // TODO: Parameter overloading?
@@ -205,7 +242,9 @@ public class Model {
 
     /** Returns a single-use evaluator of a function */
     private FunctionEvaluator evaluatorOf(ExpressionFunction function) {
-        return new FunctionEvaluator(function, requireContextProprotype(function.getName()).copy());
+        return new FunctionEvaluator(function,
+                                     requireContextPool(function.getName()),
+                                     Optional.ofNullable(compiledFunctions.get(function.getName())));
     }
 
     private void throwUndeterminedFunction(String message) {
@@ -8,18 +8,27 @@ import com.yahoo.container.jdisc.HttpRequest;
 import com.yahoo.container.jdisc.HttpResponse;
 import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.io.IOUtils;
 import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.JsonDecoder;
 import com.yahoo.slime.Slime;
+import com.yahoo.slime.Type;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.serialization.JsonFormat;
 import com.yahoo.yolean.Exceptions;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
@@ -64,6 +73,8 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
             }
             return listModelInformation(request, model, function);
 
+        } catch (InvalidBatchException e) {
+            return new ErrorResponse(400, Exceptions.toMessageString(e));
         } catch (IllegalArgumentException e) {
             return new ErrorResponse(404, Exceptions.toMessageString(e));
         } catch (IllegalStateException e) { // On missing bindings
@@ -80,10 +91,95 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
             property(request, argument.getKey()).ifPresent(value -> evaluator.bind(argument.getKey(),
                                                                                    Tensor.from(argument.getValue(), value)));
         }
+
+        Optional<List<Map<String, Tensor>>> batchBindings = batchBindings(request, evaluator.function());
+        if (batchBindings.isPresent())
+            return evaluateBatch(evaluator, batchBindings.get());
+
         Tensor result = evaluator.evaluate();
         return new Response(200, JsonFormat.encode(result));
     }
 
+    private HttpResponse evaluateBatch(FunctionEvaluator evaluator, List<Map<String, Tensor>> bindings) {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.write('[');
+        List<Tensor> results = evaluator.evaluate(bindings);
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0)
+                json.write(',');
+            json.writeBytes(JsonFormat.encode(results.get(i)));
+        }
+        json.write(']');
+        return new Response(200, json.toByteArray());
+    }
+
+    /**
+     * Returns the argument bindings of each evaluation of a batch, if the request contains a batch.
+     * A batch is posted as a JSON array containing an object for each evaluation, with argument values
+     * given as strings on the same form as in request properties, or as numbers. Arguments bound by
+     * request properties are shared by all evaluations of the batch. Request data which is not a JSON
+     * array is not a batch, and is ignored.
+     *
+     * @throws InvalidBatchException if the request contains a batch which is not valid
+     */
+    private Optional<List<Map<String, Tensor>>> batchBindings(HttpRequest request, ExpressionFunction function) {
+        if (request.getData() == null) return Optional.empty();
+
+        byte[] data;
+        try {
+            data = IOUtils.readBytes(request.getData(), 1 << 16);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not read the request data", e);
+        }
+        if ( ! isJsonArray(data)) return Optional.empty();
+
+        Inspector batch = new JsonDecoder().decode(new Slime(), data).get();
+        if (batch.type() != Type.ARRAY)
+            throw new InvalidBatchException("Could not parse the batch: " + batch.field("error_message").asString());
+        List<Map<String, Tensor>> bindings = new ArrayList<>(batch.entries());
+        for (int i = 0; i < batch.entries(); i++) {
+            Inspector entry = batch.entry(i);
+            if (entry.type() != Type.OBJECT)
+                throw new InvalidBatchException("Batch entry " + i + " must be an object of argument bindings");
+            Map<String, Tensor> binding = new HashMap<>();
+            for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
+                Inspector value = entry.field(argument.getKey());
+                if ( ! value.valid()) continue;
+                binding.put(argument.getKey(), toTensor(argument.getKey(), argument.getValue(), value, i));
+            }
+            bindings.add(binding);
+        }
+        return Optional.of(bindings);
+    }
+
+    private static Tensor toTensor(String argument, TensorType type, Inspector value, int entry) {
+        String stringValue;
+        if (value.type() == Type.STRING)
+            stringValue = value.asString();
+        else if (value.type() == Type.DOUBLE || value.type() == Type.LONG)
+            stringValue = String.valueOf(value.asDouble());
+        else
+            throw new InvalidBatchException("Argument '" + argument + "' in batch entry " + entry +
+                                            " must be a string or a number, not " + value.type());
+        try {
+            return Tensor.from(type, stringValue);
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidBatchException("Argument '" + argument + "' in batch entry " + entry +
+                                            " is not a valid value of type " + type + ": " + Exceptions.toMessageString(e));
+        }
+    }
+
+    /** Returns whether the given data is a JSON array, judged by its first non-whitespace character */
+    private static boolean isJsonArray(byte[] data) {
+        for (byte b : data) {
+            if (Character.isWhitespace(b)) continue;
+            return b == '[';
+        }
+        return false;
+    }
+
     private HttpResponse listAllModels(HttpRequest request) {
         Slime slime = new Slime();
         Cursor root = slime.setObject();
@@ -204,6 +300,13 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
         }
     }
 
+    /** Thrown when a posted batch is not valid, which is answered with 400 */
+    private static class InvalidBatchException extends IllegalArgumentException {
+        InvalidBatchException(String message) {
+            super(message);
+        }
+    }
+
     private static class ErrorResponse extends Response {
         ErrorResponse(int code, String data) {
             super(code, "{\"error\":\"" + data + "\"}");
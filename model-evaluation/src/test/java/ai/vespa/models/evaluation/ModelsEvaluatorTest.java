@@ -7,6 +7,7 @@ import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
 import com.yahoo.path.Path;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.vespa.config.search.RankProfilesConfig;
@@ -16,9 +17,13 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author bratseth
@@ -60,6 +65,98 @@ public class ModelsEvaluatorTest {
         }
     }
 
+    @Test
+    public void testContextReuse() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        FunctionEvaluator first = models.evaluatorOf("macros", "secondphase");
+        LazyArrayContext firstContext = first.context();
+        first.setMissingValue(5);
+        first.bind("match", 3);
+        assertEquals(32.0, first.evaluate().asDouble(), delta);
+        assertUsedAfterRelease(first::evaluate);
+        assertUsedAfterRelease(first::context);
+
+        FunctionEvaluator second = models.evaluatorOf("macros", "secondphase");
+        FunctionEvaluator third = models.evaluatorOf("macros", "secondphase");
+        assertSame(firstContext, second.context());
+        assertNotSame(second.context(), third.context());
+        assertTrue("Bindings and missing value are reset", Double.isNaN(second.evaluate().asDouble()));
+        assertEquals(8.0, third.bind("match", 1).bind("rankBoost", 1).evaluate().asDouble(), delta);
+
+        FunctionEvaluator fourth = models.evaluatorOf("macros", "secondphase");
+        assertEquals(12.0, fourth.bind("match", 1).bind("rankBoost", 2).evaluate().asDouble(), delta);
+    }
+
+    private void assertUsedAfterRelease(Runnable use) {
+        try {
+            use.run();
+            fail("Expected exception");
+        }
+        catch (IllegalStateException e) {
+            assertEquals("This evaluator is already evaluated: Create a new evaluator to evaluate again", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testBatchEvaluation() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        FunctionEvaluator function = models.evaluatorOf("macros", "secondphase");
+        function.bind("match", 3); // shared by all evaluations unless overridden
+        List<Tensor> results = function.evaluate(List.of(Map.of("rankBoost", Tensor.from(5)),
+                                                         Map.of("rankBoost", Tensor.from(1)),
+                                                         Map.of("match", Tensor.from(1), "rankBoost", Tensor.from(1)),
+                                                         Map.of("rankBoost", Tensor.from(2))));
+        assertEquals(32.0, results.get(0).asDouble(), delta);
+        assertEquals(16.0, results.get(1).asDouble(), delta);
+        assertEquals(8.0, results.get(2).asDouble(), delta);
+        assertEquals(20.0, results.get(3).asDouble(), delta);
+    }
+
+    @Test
+    public void testForestBatchEvaluation() {
+        Model xgboost = new ModelTester("src/test/resources/config/models/").models().get("xgboost_2_2");
+        assertTrue(xgboost.functions().get(0).getBody().getRoot() instanceof GBDTForestNode);
+        List<Map<String, Tensor>> bindings = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+            bindings.add(Map.of("f29", Tensor.from(i * 0.3 - 1), "f56", Tensor.from(i * 0.1),
+                                "f60", Tensor.from(1 - i * 0.2), "f109", Tensor.from(i % 3 * 0.4)));
+
+        List<Tensor> results = xgboost.evaluatorOf().evaluate(bindings);
+        assertEquals(bindings.size(), results.size());
+        for (int i = 0; i < bindings.size(); i++) {
+            FunctionEvaluator evaluator = xgboost.evaluatorOf();
+            bindings.get(i).forEach(evaluator::bind);
+            assertEquals(evaluator.evaluate().asDouble(), results.get(i).asDouble(), delta);
+        }
+    }
+
+    @Test
+    public void testParallelEvaluation() {
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("sum(arg1 * arg2, d1)"));
+        function = function.withArgument("arg1", TensorType.fromSpec("tensor(d0[20],d1[10])"));
+        function = function.withArgument("arg2", TensorType.fromSpec("tensor(d1[10],d2[30])"));
+        Model model = new Model("test-model", List.of(function));
+        Tensor arg1 = Tensor.random(TensorType.fromSpec("tensor(d0[20],d1[10])"));
+        Tensor arg2 = Tensor.random(TensorType.fromSpec("tensor(d1[10],d2[30])"));
+
+        Tensor serialResult = model.evaluatorOf("test").bind("arg1", arg1).bind("arg2", arg2).evaluate();
+        Tensor parallelResult = model.evaluatorOf("test").bind("arg1", arg1).bind("arg2", arg2)
+                                     .setParallelEvaluationThreshold(100).evaluate();
+        assertEquals(serialResult, parallelResult);
+    }
+
+    @Test
+    public void testScalarFunctionEvaluation() {
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("if (x < 0.5, x * 2, max(x, y) + 1)"));
+        function = function.withArgument("x", TensorType.empty);
+        function = function.withArgument("y", TensorType.empty);
+        Model model = new Model("test-model", List.of(function));
+
+        assertEquals(0.6, model.evaluatorOf("test").bind("x", 0.3).bind("y", 7).evaluate().asDouble(), delta);
+        assertEquals(8.0, model.evaluatorOf("test").bind("x", 0.6).bind("y", 7).evaluate().asDouble(), delta);
+        assertEquals(TensorType.empty, model.evaluatorOf("test").bind("x", 0.6).bind("y", 7).evaluate().type());
+    }
+
     @Test
     public void testBindingValidation() {
         List<ExpressionFunction> functions = new ArrayList<>();
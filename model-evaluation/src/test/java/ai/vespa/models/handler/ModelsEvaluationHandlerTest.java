@@ -16,8 +16,10 @@ import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -93,6 +95,43 @@ public class ModelsEvaluationHandlerTest {
         assertResponse(url, properties, 200, expected);
     }
 
+    @Test
+    public void testXgBoostBatchEvaluation() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("f29", "-1.0");
+        String batch = "[{\"f56\":\"0.2\",\"f60\":0.3,\"f109\":\"0.4\",\"non-existing-binding\":\"-1\"}, {\"f29\":\"0.0\"}]";
+        String expected = "[{\"cells\":[{\"address\":{},\"value\":-7.936679999999999}]}," +
+                          "{\"cells\":[{\"address\":{},\"value\":-4.376589999999999}]}]";
+        assertResponse(xgBoostRequest(batch, properties), 200, expected);
+    }
+
+    @Test
+    public void testXgBoostEvaluationIgnoresDataWhichIsNotABatch() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("f29", "-1.0");
+        properties.put("f56", "0.2");
+        properties.put("f60", "0.3");
+        properties.put("f109", "0.4");
+        String expected = "{\"cells\":[{\"address\":{},\"value\":-7.936679999999999}]}";
+        assertResponse(xgBoostRequest("{\"f29\":\"0.0\"}", properties), 200, expected);
+    }
+
+    @Test
+    public void testXgBoostInvalidBatchEvaluation() {
+        assertResponse(xgBoostRequest("[{\"f29\":\"0.0\"", Collections.emptyMap()), 400, null);
+        assertResponse(xgBoostRequest("[\"0.0\"]", Collections.emptyMap()), 400,
+                       "{\"error\":\"Batch entry 0 must be an object of argument bindings\"}");
+        assertResponse(xgBoostRequest("[{\"f29\":\"0.0\"}, {\"f29\":true}]", Collections.emptyMap()), 400,
+                       "{\"error\":\"Argument 'f29' in batch entry 1 must be a string or a number, not BOOL\"}");
+    }
+
+    private static HttpRequest xgBoostRequest(String data, Map<String, String> properties) {
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/eval";
+        return HttpRequest.createTestRequest(url, com.yahoo.jdisc.http.HttpRequest.Method.POST,
+                                             new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)),
+                                             properties);
+    }
+
     @Test
     public void testMnistSoftmaxDetails() {
         String url = "http://localhost:8080/model-evaluation/v1/mnist_softmax";
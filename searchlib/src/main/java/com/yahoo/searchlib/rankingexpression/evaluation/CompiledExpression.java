@@ -0,0 +1,49 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A scalar ranking expression compiled by an {@link ExpressionCompiler}.
+ * This is immutable and may be evaluated by multiple threads at the same time.
+ *
+ * @author agent
+ */
+public final class CompiledExpression {
+
+    private final String expression;
+    private final int inputCount;
+    private final ToDoubleFunction<double[]> root;
+
+    CompiledExpression(String expression, int inputCount, ToDoubleFunction<double[]> root) {
+        this.expression = expression;
+        this.inputCount = inputCount;
+        this.root = root;
+    }
+
+    /** Returns the number of input values this must be evaluated with */
+    public int inputCount() { return inputCount; }
+
+    /**
+     * Evaluates this.
+     *
+     * @param inputs the values of the inputs of this, in the order given by the compiler
+     */
+    public double evaluate(double[] inputs) {
+        if (inputs.length < inputCount)
+            throw new IllegalArgumentException(this + " requires " + inputCount + " inputs, but got " + inputs.length);
+        return root.applyAsDouble(inputs);
+    }
+
+    /** Evaluates this with inputs looked up from the given context, which this must have been compiled with */
+    public double evaluate(ContextIndex context) {
+        double[] inputs = new double[inputCount];
+        for (int i = 0; i < inputCount; i++)
+            inputs[i] = context.getDouble(i);
+        return root.applyAsDouble(inputs);
+    }
+
+    @Override
+    public String toString() { return "compiled expression '" + expression + "'"; }
+
+}
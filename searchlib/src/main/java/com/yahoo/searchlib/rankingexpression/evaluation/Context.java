@@ -24,6 +24,9 @@ public abstract class Context implements EvaluationContext<Reference> {
     /** The value to return if the value has not been set  */
     Value missingValue;
 
+    /** The minimal number of cells in the result of a dense tensor operation for it to be evaluated in parallel */
+    private long parallelEvaluationThreshold = Long.MAX_VALUE;
+
     /**
      * Returns the value of a simple variable name.
      *
@@ -111,6 +114,18 @@ public abstract class Context implements EvaluationContext<Reference> {
         throw new UnsupportedOperationException(this + " does not support variable assignment");
     }
 
+    /**
+     * Sets the minimal number of cells in the result of a dense tensor operation for it to be evaluated
+     * in parallel using the common fork-join pool. The default is Long.MAX_VALUE, meaning that tensor
+     * operations are always evaluated in the calling thread.
+     */
+    public void setParallelEvaluationThreshold(long cellCount) {
+        this.parallelEvaluationThreshold = cellCount;
+    }
+
+    @Override
+    public long parallelEvaluationThreshold() { return parallelEvaluationThreshold; }
+
     /**
      * Returns all the names available in this, or throws an
      * UnsupportedOperationException if this operation is not supported. This
@@ -0,0 +1,273 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticOperator;
+import com.yahoo.searchlib.rankingexpression.rule.ComparisonNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+import com.yahoo.searchlib.rankingexpression.rule.TruthOperator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compiles scalar ranking expressions to trees of primitive double functions over an array of input values.
+ * This avoids creating a value object for each intermediate result and dispatching on value types
+ * during evaluation, and lets the JIT compile each expression as a set of small, specialized methods.
+ *
+ * Expressions consisting of arithmetic, comparisons, conditions, set membership, built-in functions,
+ * constants and references to scalar values can be compiled. References are inputs, whose values must be
+ * given when evaluating. Compilation fails for expressions containing anything else, such as tensor functions.
+ * Compiled expressions must only be evaluated with inputs which are scalars in the ranking expression,
+ * as tensor arguments cannot be represented.
+ *
+ * This class is multithread safe.
+ *
+ * @author agent
+ */
+public class ExpressionCompiler {
+
+    /**
+     * Compiles the body of the given function. The inputs of the compiled expression are the arguments of the
+     * function, in order.
+     *
+     * @throws IllegalArgumentException if the function cannot be compiled
+     */
+    public CompiledExpression compile(ExpressionFunction function) {
+        List<String> arguments = function.arguments();
+        return compile(function.getBody(), arguments.size(), name -> {
+            int index = arguments.indexOf(name);
+            if (index < 0)
+                throw new IllegalArgumentException("'" + name + "' is not an argument of " + function);
+            return index;
+        });
+    }
+
+    /**
+     * Compiles the given expression. The inputs of the compiled expression are the values of the given context,
+     * in index order.
+     *
+     * @throws IllegalArgumentException if the expression cannot be compiled
+     */
+    public CompiledExpression compile(RankingExpression expression, ContextIndex context) {
+        return compile(expression, context.size(), name -> {
+            try {
+                return context.getIndex(name);
+            }
+            catch (RuntimeException e) { // Contexts throw NullPointerException or IllegalArgumentException
+                throw new IllegalArgumentException("'" + name + "' is not bound in " + context);
+            }
+        });
+    }
+
+    private CompiledExpression compile(RankingExpression expression, int inputCount, ToIntFunction<String> inputIndex) {
+        try {
+            return new CompiledExpression(expression.toString(), inputCount, compile(expression.getRoot(), inputIndex));
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cannot compile " + expression, e);
+        }
+    }
+
+    private ToDoubleFunction<double[]> compile(ExpressionNode node, ToIntFunction<String> inputIndex) {
+        if (node instanceof ConstantNode)
+            return constant(((ConstantNode)node).getValue());
+        if (node instanceof ReferenceNode)
+            return reference((ReferenceNode)node, inputIndex);
+        if (node instanceof ArithmeticNode)
+            return arithmetic((ArithmeticNode)node, inputIndex);
+        if (node instanceof ComparisonNode)
+            return comparison((ComparisonNode)node, inputIndex);
+        if (node instanceof IfNode)
+            return condition((IfNode)node, inputIndex);
+        if (node instanceof SetMembershipNode)
+            return setMembership((SetMembershipNode)node, inputIndex);
+        if (node instanceof FunctionNode)
+            return function((FunctionNode)node, inputIndex);
+        if (node instanceof EmbracedNode)
+            return compile(((EmbracedNode)node).getValue(), inputIndex);
+        if (node instanceof NegativeNode)
+            return negate(compile(((NegativeNode)node).getValue(), inputIndex));
+        if (node instanceof NotNode)
+            return not(compile(((NotNode)node).getValue(), inputIndex));
+        throw new IllegalArgumentException("Cannot compile " + node.getClass().getSimpleName() + " '" + node + "'");
+    }
+
+    private ToDoubleFunction<double[]> constant(Value value) {
+        if ( ! value.hasDouble() || value instanceof StringValue)
+            throw new IllegalArgumentException("Cannot compile the non-numeric constant " + value);
+        return new Constant(value.asDouble());
+    }
+
+    private ToDoubleFunction<double[]> reference(ReferenceNode node, ToIntFunction<String> inputIndex) {
+        int index = inputIndex.applyAsInt(node.toString());
+        return inputs -> inputs[index];
+    }
+
+    /** Combines the operands in precedence order, as done by ArithmeticNode */
+    private ToDoubleFunction<double[]> arithmetic(ArithmeticNode node, ToIntFunction<String> inputIndex) {
+        Iterator<ExpressionNode> child = node.children().iterator();
+        Deque<Operand> stack = new ArrayDeque<>();
+        stack.push(new Operand(ArithmeticOperator.OR, compile(child.next(), inputIndex)));
+        for (Iterator<ArithmeticOperator> it = node.operators().iterator(); it.hasNext() && child.hasNext();) {
+            ArithmeticOperator op = it.next();
+            while (stack.peek().op.hasPrecedenceOver(op))
+                combineTop(stack);
+            stack.push(new Operand(op, compile(child.next(), inputIndex)));
+        }
+        while (stack.size() > 1)
+            combineTop(stack);
+        return stack.getFirst().function;
+    }
+
+    private void combineTop(Deque<Operand> stack) {
+        Operand rhs = stack.pop();
+        Operand lhs = stack.peek();
+        lhs.function = arithmetic(rhs.op, lhs.function, rhs.function);
+    }
+
+    private ToDoubleFunction<double[]> arithmetic(ArithmeticOperator op, ToDoubleFunction<double[]> x, ToDoubleFunction<double[]> y) {
+        switch (op) {
+            case OR: return fold(inputs -> x.applyAsDouble(inputs) != 0 || y.applyAsDouble(inputs) != 0 ? 1 : 0, x, y);
+            case AND: return fold(inputs -> x.applyAsDouble(inputs) != 0 && y.applyAsDouble(inputs) != 0 ? 1 : 0, x, y);
+            case PLUS: return fold(inputs -> x.applyAsDouble(inputs) + y.applyAsDouble(inputs), x, y);
+            case MINUS: return fold(inputs -> x.applyAsDouble(inputs) - y.applyAsDouble(inputs), x, y);
+            case MULTIPLY: return fold(inputs -> x.applyAsDouble(inputs) * y.applyAsDouble(inputs), x, y);
+            case DIVIDE: return fold(inputs -> x.applyAsDouble(inputs) / y.applyAsDouble(inputs), x, y);
+            case MODULO: return fold(inputs -> x.applyAsDouble(inputs) % y.applyAsDouble(inputs), x, y);
+            case POWER: return fold(inputs -> Math.pow(x.applyAsDouble(inputs), y.applyAsDouble(inputs)), x, y);
+            default: throw new IllegalArgumentException("Cannot compile operator " + op);
+        }
+    }
+
+    private ToDoubleFunction<double[]> comparison(ComparisonNode node, ToIntFunction<String> inputIndex) {
+        TruthOperator op = node.getOperator();
+        ToDoubleFunction<double[]> left = compile(node.getLeftCondition(), inputIndex);
+        ToDoubleFunction<double[]> right = compile(node.getRightCondition(), inputIndex);
+        if (node.getLeftCondition() instanceof ReferenceNode && right instanceof Constant) { // As in decision trees
+            int index = inputIndex.applyAsInt(node.getLeftCondition().toString());
+            double constant = ((Constant)right).value;
+            switch (op) {
+                case SMALLER: return inputs -> inputs[index] < constant ? 1 : 0;
+                case LARGEREQUAL: return inputs -> inputs[index] >= constant ? 1 : 0;
+                case EQUAL: return inputs -> inputs[index] == constant ? 1 : 0;
+            }
+        }
+        switch (op) {
+            case SMALLER: return fold(inputs -> left.applyAsDouble(inputs) < right.applyAsDouble(inputs) ? 1 : 0, left, right);
+            case SMALLEREQUAL: return fold(inputs -> left.applyAsDouble(inputs) <= right.applyAsDouble(inputs) ? 1 : 0, left, right);
+            case EQUAL: return fold(inputs -> left.applyAsDouble(inputs) == right.applyAsDouble(inputs) ? 1 : 0, left, right);
+            case LARGER: return fold(inputs -> left.applyAsDouble(inputs) > right.applyAsDouble(inputs) ? 1 : 0, left, right);
+            case LARGEREQUAL: return fold(inputs -> left.applyAsDouble(inputs) >= right.applyAsDouble(inputs) ? 1 : 0, left, right);
+            case NOTEQUAL: return fold(inputs -> left.applyAsDouble(inputs) != right.applyAsDouble(inputs) ? 1 : 0, left, right);
+            default: return fold(inputs -> op.evaluate(left.applyAsDouble(inputs), right.applyAsDouble(inputs)) ? 1 : 0, left, right);
+        }
+    }
+
+    private ToDoubleFunction<double[]> condition(IfNode node, ToIntFunction<String> inputIndex) {
+        ToDoubleFunction<double[]> condition = compile(node.getCondition(), inputIndex);
+        ToDoubleFunction<double[]> trueValue = compile(node.getTrueExpression(), inputIndex);
+        ToDoubleFunction<double[]> falseValue = compile(node.getFalseExpression(), inputIndex);
+        if (condition instanceof Constant)
+            return ((Constant)condition).value != 0 ? trueValue : falseValue;
+        if (trueValue instanceof Constant && falseValue instanceof Constant) { // Decision tree leaves
+            double trueConstant = ((Constant)trueValue).value;
+            double falseConstant = ((Constant)falseValue).value;
+            return inputs -> condition.applyAsDouble(inputs) != 0 ? trueConstant : falseConstant;
+        }
+        return inputs -> condition.applyAsDouble(inputs) != 0 ? trueValue.applyAsDouble(inputs)
+                                                              : falseValue.applyAsDouble(inputs);
+    }
+
+    private ToDoubleFunction<double[]> setMembership(SetMembershipNode node, ToIntFunction<String> inputIndex) {
+        ToDoubleFunction<double[]> testValue = compile(node.getTestValue(), inputIndex);
+        double[] constants = new double[node.getSetValues().size()];
+        for (int i = 0; i < constants.length; i++) {
+            ExpressionNode setValue = node.getSetValues().get(i);
+            if ( ! (setValue instanceof ConstantNode) || ! ((ConstantNode)setValue).getValue().hasDouble())
+                throw new IllegalArgumentException("Cannot compile set membership in a set of non-constant values");
+            constants[i] = ((ConstantNode)setValue).getValue().asDouble(); // Strings are compared by hash, as in StringValue
+        }
+        return fold(inputs -> {
+            double value = testValue.applyAsDouble(inputs);
+            for (double constant : constants)
+                if (value == constant) return 1;
+            return 0;
+        }, testValue);
+    }
+
+    private ToDoubleFunction<double[]> function(FunctionNode node, ToIntFunction<String> inputIndex) {
+        Function function = node.getFunction();
+        List<ExpressionNode> arguments = node.children();
+        if (arguments.size() > 2)
+            throw new IllegalArgumentException("Cannot compile " + function + " with " + arguments.size() + " arguments");
+        ToDoubleFunction<double[]> x = arguments.size() > 0 ? compile(arguments.get(0), inputIndex) : new Constant(0);
+        ToDoubleFunction<double[]> y = arguments.size() > 1 ? compile(arguments.get(1), inputIndex) : new Constant(0);
+        switch (function) {
+            case exp: return fold(inputs -> Math.exp(x.applyAsDouble(inputs)), x);
+            case log: return fold(inputs -> Math.log(x.applyAsDouble(inputs)), x);
+            case sqrt: return fold(inputs -> Math.sqrt(x.applyAsDouble(inputs)), x);
+            case max: return fold(inputs -> Math.max(x.applyAsDouble(inputs), y.applyAsDouble(inputs)), x, y);
+            case min: return fold(inputs -> Math.min(x.applyAsDouble(inputs), y.applyAsDouble(inputs)), x, y);
+            case sigmoid: return fold(inputs -> 1.0 / (1.0 + Math.exp(-1.0 * x.applyAsDouble(inputs))), x);
+            default: return fold(inputs -> function.evaluate(x.applyAsDouble(inputs), y.applyAsDouble(inputs)), x, y);
+        }
+    }
+
+    private ToDoubleFunction<double[]> negate(ToDoubleFunction<double[]> value) {
+        return fold(inputs -> - value.applyAsDouble(inputs), value);
+    }
+
+    private ToDoubleFunction<double[]> not(ToDoubleFunction<double[]> value) {
+        return fold(inputs -> value.applyAsDouble(inputs) != 0 ? 0 : 1, value);
+    }
+
+    /** Returns the given function evaluated to a constant if all the given arguments are constant */
+    @SafeVarargs
+    private static ToDoubleFunction<double[]> fold(ToDoubleFunction<double[]> function, ToDoubleFunction<double[]> ... arguments) {
+        for (ToDoubleFunction<double[]> argument : arguments)
+            if ( ! (argument instanceof Constant)) return function;
+        return new Constant(function.applyAsDouble(new double[0]));
+    }
+
+    private static final class Constant implements ToDoubleFunction<double[]> {
+
+        final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        @Override
+        public double applyAsDouble(double[] inputs) { return value; }
+
+    }
+
+    private static final class Operand {
+
+        final ArithmeticOperator op;
+        ToDoubleFunction<double[]> function;
+
+        Operand(ArithmeticOperator op, ToDoubleFunction<double[]> function) {
+            this.op = op;
+            this.function = function;
+        }
+
+    }
+
+}
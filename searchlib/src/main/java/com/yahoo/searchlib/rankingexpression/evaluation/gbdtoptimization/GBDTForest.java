@@ -0,0 +1,264 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization;
+
+import com.yahoo.searchlib.rankingexpression.evaluation.Context;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A sum of decision trees laid out as parallel arrays of node attributes, for fast evaluation.
+ * Each tree is stored in pre-order, such that the true branch of a condition node is always the next node,
+ * and the nodes of the trees are stored consecutively in the order the trees are summed.
+ *
+ * Besides evaluating the forest for a single document, this can evaluate a batch of documents tree by tree,
+ * such that the nodes of each tree are read from memory once per batch rather than once per document.
+ * Evaluating a batch produces the same values as evaluating each document separately.
+ *
+ * Instances are immutable and may be evaluated by multiple threads at the same time.
+ *
+ * @author agent
+ */
+public final class GBDTForest {
+
+    private static final byte LEAF = 0;
+    private static final byte SMALLER = 1;
+    private static final byte EQUAL = 2;
+    private static final byte IN = 3;
+    private static final byte NOT_LARGER_EQUAL = 4;
+
+    /** The first node of each tree */
+    private final int[] roots;
+
+    /** The operation of each node, or LEAF */
+    private final byte[] operations;
+
+    /** The index of the variable tested by each condition node */
+    private final int[] variables;
+
+    /** The constant compared to in each condition node, the value of each leaf, or the offset into sets for IN */
+    private final double[] values;
+
+    /** The node of the false branch of each condition node */
+    private final int[] falseBranches;
+
+    /** The sets tested by IN nodes, each preceded by its size */
+    private final double[] sets;
+
+    private GBDTForest(Builder builder) {
+        this.roots = Arrays.copyOf(builder.roots, builder.rootCount);
+        this.operations = Arrays.copyOf(builder.operations, builder.nodeCount);
+        this.variables = Arrays.copyOf(builder.variables, builder.nodeCount);
+        this.values = Arrays.copyOf(builder.values, builder.nodeCount);
+        this.falseBranches = Arrays.copyOf(builder.falseBranches, builder.nodeCount);
+        this.sets = Arrays.copyOf(builder.sets, builder.setsSize);
+    }
+
+    /** Returns the number of trees in this */
+    public int treeCount() { return roots.length; }
+
+    /** Returns the number of nodes (conditions and leaves) in this */
+    public int nodeCount() { return operations.length; }
+
+    /** Evaluates this with the variable values found at their indexes in the given context */
+    public double evaluate(Context context) {
+        double sum = 0;
+        for (int root : roots) {
+            int node = root;
+            while (operations[node] != LEAF)
+                node = test(node, context.getDouble(variables[node])) ? node + 1 : falseBranches[node];
+            sum += values[node];
+        }
+        return sum;
+    }
+
+    /** Evaluates this with the given variable values */
+    public double evaluate(double[] inputs) {
+        double sum = 0;
+        for (int root : roots)
+            sum += evaluateTree(root, inputs);
+        return sum;
+    }
+
+    /**
+     * Evaluates this for a batch of documents.
+     *
+     * @param inputs the variable values of each document
+     * @param results the array receiving the value of each document, at the index of its inputs.
+     *                This must be at least as long as the inputs array.
+     */
+    public void evaluate(double[][] inputs, double[] results) {
+        if (results.length < inputs.length)
+            throw new IllegalArgumentException("Cannot write " + inputs.length + " results to an array of length " +
+                                               results.length);
+        Arrays.fill(results, 0, inputs.length, 0);
+        for (int root : roots) {
+            for (int i = 0; i < inputs.length; i++)
+                results[i] += evaluateTree(root, inputs[i]);
+        }
+    }
+
+    private double evaluateTree(int root, double[] inputs) {
+        int node = root;
+        while (operations[node] != LEAF)
+            node = test(node, inputs[variables[node]]) ? node + 1 : falseBranches[node];
+        return values[node];
+    }
+
+    private boolean test(int node, double input) {
+        switch (operations[node]) {
+            case SMALLER: return input < values[node];
+            case EQUAL: return input == values[node];
+            case NOT_LARGER_EQUAL: return ! (input >= values[node]);
+            default: return contains((int)values[node], input);
+        }
+    }
+
+    private boolean contains(int set, double input) {
+        int end = set + 1 + (int)sets[set];
+        for (int i = set + 1; i < end; i++)
+            if (input == sets[i]) return true;
+        return false;
+    }
+
+    /**
+     * Returns the number of doubles in the encoding of this used by {@link GBDTForestNode}:
+     * The length of each tree followed by the tree in the encoding of {@link GBDTNode}.
+     */
+    public int encodedSize() {
+        int size = roots.length;
+        for (int node = 0; node < operations.length; node++) {
+            switch (operations[node]) {
+                case LEAF: size += 1; break;
+                case IN: size += 3 + (int)sets[(int)values[node]]; break;
+                default: size += 3; break;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "forest of " + treeCount() + " trees with " + nodeCount() + " nodes";
+    }
+
+    /** Creates a forest from the values of a {@link GBDTForestNode}: Each tree preceded by its length */
+    public static GBDTForest fromForest(double[] values) {
+        Builder builder = new Builder();
+        int pc = 0;
+        while (pc < values.length) {
+            int treeLength = (int)values[pc++];
+            builder.addTree(values, pc);
+            pc += treeLength;
+        }
+        return new GBDTForest(builder);
+    }
+
+    /** Creates a forest containing the single tree of a {@link GBDTNode} */
+    public static GBDTForest fromTree(double[] values) {
+        Builder builder = new Builder();
+        builder.addTree(values, 0);
+        return new GBDTForest(builder);
+    }
+
+    /** Creates a forest containing the trees of the given forests, in order */
+    public static GBDTForest sumOf(List<GBDTForest> forests) {
+        Builder builder = new Builder();
+        for (GBDTForest forest : forests)
+            builder.addForest(forest);
+        return new GBDTForest(builder);
+    }
+
+    /** Decodes trees in the encoding of {@link GBDTNode} */
+    private static class Builder {
+
+        private int[] roots = new int[16];
+        private int rootCount = 0;
+
+        private byte[] operations = new byte[64];
+        private int[] variables = new int[64];
+        private double[] values = new double[64];
+        private int[] falseBranches = new int[64];
+        private int nodeCount = 0;
+
+        private double[] sets = new double[16];
+        private int setsSize = 0;
+
+        void addTree(double[] encoded, int offset) {
+            if (rootCount == roots.length)
+                roots = Arrays.copyOf(roots, roots.length * 2);
+            roots[rootCount++] = nodeCount;
+            addNode(encoded, offset);
+        }
+
+        void addForest(GBDTForest forest) {
+            int nodeOffset = nodeCount;
+            int setsOffset = setsSize;
+            for (int root : forest.roots) {
+                if (rootCount == roots.length)
+                    roots = Arrays.copyOf(roots, roots.length * 2);
+                roots[rootCount++] = nodeOffset + root;
+            }
+            for (int i = 0; i < forest.nodeCount(); i++) {
+                int node = newNode();
+                operations[node] = forest.operations[i];
+                variables[node] = forest.variables[i];
+                values[node] = forest.operations[i] == IN ? setsOffset + forest.values[i] : forest.values[i];
+                falseBranches[node] = forest.operations[i] == LEAF ? 0 : nodeOffset + forest.falseBranches[i];
+            }
+            for (double value : forest.sets)
+                addToSets(value);
+        }
+
+        /** Adds the subtree starting at the given offset and returns the offset following it */
+        private int addNode(double[] encoded, int pc) {
+            int node = newNode();
+            double nextValue = encoded[pc++];
+            if (nextValue < GBDTNode.MAX_LEAF_VALUE) {
+                operations[node] = LEAF;
+                values[node] = nextValue;
+                return pc;
+            }
+
+            int offset = (int)nextValue - GBDTNode.MAX_LEAF_VALUE;
+            variables[node] = offset % GBDTNode.MAX_VARIABLES;
+            switch (offset / GBDTNode.MAX_VARIABLES) {
+                case 0: operations[node] = SMALLER; values[node] = encoded[pc++]; break;
+                case 1: operations[node] = EQUAL; values[node] = encoded[pc++]; break;
+                case 2:
+                    operations[node] = IN;
+                    values[node] = setsSize;
+                    int setSize = (int)encoded[pc++];
+                    addToSets(setSize);
+                    for (int i = 0; i < setSize; i++)
+                        addToSets(encoded[pc++]);
+                    break;
+                default: operations[node] = NOT_LARGER_EQUAL; values[node] = encoded[pc++]; break;
+            }
+
+            int falseBranchOffset = pc + (int)encoded[pc];
+            addNode(encoded, pc + 1); // the true branch, which is the next node
+            falseBranches[node] = nodeCount;
+            return addNode(encoded, falseBranchOffset);
+        }
+
+        private int newNode() {
+            if (nodeCount == operations.length) {
+                int capacity = operations.length * 2;
+                operations = Arrays.copyOf(operations, capacity);
+                variables = Arrays.copyOf(variables, capacity);
+                values = Arrays.copyOf(values, capacity);
+                falseBranches = Arrays.copyOf(falseBranches, capacity);
+            }
+            return nodeCount++;
+        }
+
+        private void addToSets(double value) {
+            if (setsSize == sets.length)
+                sets = Arrays.copyOf(sets, sets.length * 2);
+            sets[setsSize++] = value;
+        }
+
+    }
+
+}
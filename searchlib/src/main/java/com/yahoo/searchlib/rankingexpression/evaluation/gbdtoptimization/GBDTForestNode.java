@@ -20,30 +20,31 @@ import java.util.Deque;
  */
 public class GBDTForestNode extends ExpressionNode {
 
-    private final double[] values;
+    private final GBDTForest forest;
 
+    public GBDTForestNode(GBDTForest forest) {
+        this.forest = forest;
+    }
+
+    /** Creates a forest node from trees in the encoding of {@link GBDTForest#fromForest} */
     public GBDTForestNode(double[] values) {
-        this.values=values;
+        this(GBDTForest.fromForest(values));
     }
 
+    /** Returns the trees of this in a representation which can also be evaluated without a context */
+    public GBDTForest forest() { return forest; }
+
     @Override
     public final TensorType type(TypeContext<Reference> context) { return TensorType.empty; }
 
     @Override
     public final Value evaluate(Context context) {
-        int pc = 0;
-        double treeSum = 0;
-        while (pc < values.length) {
-            int nextTree = (int)values[pc++];
-            treeSum += GBDTNode.evaluate(values, pc, context);
-            pc += nextTree;
-        }
-        return new DoubleValue(treeSum);
+        return new DoubleValue(forest.evaluate(context));
     }
 
     /** Returns (optimized sum of condition trees) */
     public StringBuilder toString(StringBuilder string, SerializationContext context, Deque<String> path, CompositeNode parent) {
-        return string.append("(optimized sum of condition trees of size ").append(values.length*8).append(" bytes)");
+        return string.append("(optimized sum of condition trees of size ").append(forest.encodedSize()*8).append(" bytes)");
     }
 
 }
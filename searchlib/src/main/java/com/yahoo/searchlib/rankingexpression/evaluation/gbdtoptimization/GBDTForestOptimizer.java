@@ -65,11 +65,11 @@ public class GBDTForestOptimizer extends Optimizer {
      */
     private ExpressionNode optimize(ExpressionNode node) {
         currentTreesOptimized = 0;
-        List<Double> forest = new ArrayList<>();
+        List<GBDTForest> forest = new ArrayList<>();
         boolean optimized = optimize(node, forest);
         if ( ! optimized ) return node;
 
-        GBDTForestNode forestNode = new GBDTForestNode(toArray(forest));
+        GBDTForestNode forestNode = new GBDTForestNode(GBDTForest.sumOf(forest));
         report.incMetric("Number of forests", 1);
         report.incMetric("GBDT trees optimized to forests", currentTreesOptimized);
         return forestNode;
@@ -78,9 +78,9 @@ public class GBDTForestOptimizer extends Optimizer {
     /**
      * Optimize the given node, if it is the root of a gdbt forest. Otherwise do nothing and return false
      */
-    private boolean optimize(ExpressionNode node, List<Double> forest) {
+    private boolean optimize(ExpressionNode node, List<GBDTForest> forest) {
         if (node instanceof GBDTNode) {
-            addTo(forest, (GBDTNode)node);
+            forest.add(((GBDTNode)node).tree());
             currentTreesOptimized++;
             return true;
         }
@@ -101,23 +101,4 @@ public class GBDTForestOptimizer extends Optimizer {
         return true;
     }
 
-    private void addTo(List<Double> forest, GBDTNode tree) {
-        forest.add((double)tree.values().length);
-        addAll(tree.values(), forest);
-    }
-
-    private void addAll(double[] values, List<Double> forest) {
-        for (double value : values) {
-            forest.add(value);
-        }
-    }
-
-    private double[] toArray(List<Double> valueList) {
-        double[] valueArray = new double[valueList.size()];
-        for (int i = 0; i < valueList.size(); i++) {
-            valueArray[i] = valueList.get(i);
-        }
-        return valueArray;
-    }
-
 }
@@ -43,61 +43,22 @@ public final class GBDTNode extends ExpressionNode {
     /** The max number of variables (features) supported in the context */
     public final static int MAX_VARIABLES=1*1000*1000;
 
-    private final double[] values;
+    private final GBDTForest tree;
 
+    /** Creates a node from a tree in the encoding described above */
     public GBDTNode(double[] values) {
-        this.values=values;
+        this.tree = GBDTForest.fromTree(values);
     }
 
-    /** Returns a direct reference to the values of this. The returned array must not be modified. */
-    public final double[] values() { return values; }
+    /** Returns the tree of this, as a forest containing this tree only */
+    public GBDTForest tree() { return tree; }
 
     @Override
     public final TensorType type(TypeContext<Reference> context) { return TensorType.empty; }
 
     @Override
     public final Value evaluate(Context context) {
-        return new DoubleValue(evaluate(values,0,context));
-    }
-
-    public static double evaluate(double[] values, int startOffset, Context context) {
-        int pc = startOffset;
-        while (true) {
-            double nextValue = values[pc++];
-            if (nextValue >= MAX_LEAF_VALUE) { // a condition node
-                int offset = (int)nextValue - MAX_LEAF_VALUE;
-                boolean comparisonIsTrue = false;
-                if (offset < MAX_VARIABLES) {
-                    comparisonIsTrue = context.getDouble(offset)<values[pc++];
-                }
-                else if (offset < MAX_VARIABLES*2) {
-                    comparisonIsTrue = context.getDouble(offset-MAX_VARIABLES)==values[pc++];
-                }
-                else if (offset<MAX_VARIABLES*3) {
-                    double testValue = context.getDouble(offset-MAX_VARIABLES*2);
-                    int setValuesLeft = (int)values[pc++];
-                    while (setValuesLeft > 0) { // test each value in the set
-                        setValuesLeft--;
-                        if (testValue == values[pc++]) {
-                            comparisonIsTrue=true;
-                            break;
-                        }
-                    }
-                    pc += setValuesLeft; // jump to after the set
-                }
-                else { // offset<MAX_VARIABLES*4
-                    comparisonIsTrue = ! (context.getDouble(offset-MAX_VARIABLES*3)>=values[pc++]);
-                }
-
-                if (comparisonIsTrue)
-                    pc++; // true branch - skip the jump value
-                else
-                    pc += values[pc]; // false branch - jump
-            }
-            else { // a leaf
-                return nextValue;
-            }
-        }
+        return new DoubleValue(tree.evaluate(context));
     }
 
     /** Returns "(optimized condition tree)" */
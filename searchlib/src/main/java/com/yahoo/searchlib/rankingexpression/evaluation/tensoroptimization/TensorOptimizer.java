@@ -8,12 +8,15 @@ import com.yahoo.searchlib.rankingexpression.evaluation.Optimizer;
 import com.yahoo.searchlib.rankingexpression.rule.CompositeNode;
 import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
+import com.yahoo.tensor.functions.FusedReduce;
 import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.Map;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
 import com.yahoo.tensor.functions.TensorFunction;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -34,7 +37,7 @@ public class TensorOptimizer extends Optimizer {
     }
 
     private ExpressionNode optimize(ExpressionNode node, ContextIndex context) {
-        node = optimizeReduceJoin(node);
+        node = optimizeReduce(node);
         if (node instanceof CompositeNode) {
             return optimizeChildren((CompositeNode)node, context);
         }
@@ -57,8 +60,12 @@ public class TensorOptimizer extends Optimizer {
      * Note that this does not guarantee that the optimization is performed.
      * The ReduceJoin class determines whether or not the arguments are
      * compatible with the optimization.
+     *
+     * A reduce followed by a tree containing more maps and joins is similarly
+     * fused into a single operation, avoiding the cost of a temporary tensor for
+     * each map and join in the tree.
      */
-    private ExpressionNode optimizeReduceJoin(ExpressionNode node) {
+    private ExpressionNode optimizeReduce(ExpressionNode node) {
         if ( ! (node instanceof TensorFunctionNode)) {
             return node;
         }
@@ -71,15 +78,40 @@ public class TensorOptimizer extends Optimizer {
             return node;
         }
         ExpressionNode child = children.get(0);
-        if ( ! (child instanceof TensorFunctionNode)) {
+        if ( ! isElementwise(child)) {
             return node;
         }
         TensorFunction argument = ((TensorFunctionNode) child).function();
-        if (argument instanceof Join) {
+        if (argument instanceof Join && ((TensorFunctionNode) child).children().stream().noneMatch(this::isElementwise)) {
             report.incMetric("Replaced reduce->join", 1);
             return new TensorFunctionNode(new ReduceJoin((Reduce)function, (Join)argument));
         }
-        return node;
+        report.incMetric("Fused reduce->map/join", 1);
+        Reduce reduce = (Reduce)function.withArguments(Collections.singletonList(fuseElementwise(child)));
+        return new TensorFunctionNode(new FusedReduce(reduce));
+    }
+
+    private boolean isElementwise(ExpressionNode node) {
+        if ( ! (node instanceof TensorFunctionNode)) {
+            return false;
+        }
+        TensorFunction function = ((TensorFunctionNode) node).function();
+        return function instanceof Join || function instanceof Map;
+    }
+
+    /**
+     * Returns the given node as a tree of tensor functions where each map and join
+     * has its element-wise arguments directly as arguments, rather than wrapped
+     * as expressions, such that the tree can be fused.
+     */
+    private TensorFunction fuseElementwise(ExpressionNode node) {
+        if ( ! isElementwise(node)) {
+            return TensorFunctionNode.wrapArgument(node);
+        }
+        List<TensorFunction> arguments = new ArrayList<>();
+        for (ExpressionNode child : ((TensorFunctionNode) node).children())
+            arguments.add(fuseElementwise(child));
+        return ((TensorFunctionNode) node).function().withArguments(arguments);
     }
 
 }
@@ -0,0 +1,97 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that compiled expressions evaluate to the same values as the expressions they are compiled from.
+ *
+ * @author agent
+ */
+public class ExpressionCompilerTestCase {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void testCompiledExpressionsEvaluateAsInterpretedExpressions() throws ParseException {
+        assertCompiledAsInterpreted("1 + 2 * 3 - 4 / 5 % 3 ^ 2");
+        assertCompiledAsInterpreted("a + b * c ^ 2 - a / b");
+        assertCompiledAsInterpreted("(a + b) * (c - 1)");
+        assertCompiledAsInterpreted("-a + -(b * 2)");
+        assertCompiledAsInterpreted("a < b || b < c && c < 0.5");
+        assertCompiledAsInterpreted("!(a >= b) + (a <= b) + (a > b) + (a == a) + (a != b) + (a ~= a)");
+        assertCompiledAsInterpreted("if (a < 0.5, b, if (b > 0.2, c * 2, 7))");
+        assertCompiledAsInterpreted("if (a in [1, 2, 3], 1, 2) + if (round(c * 3) in [0, 2], 3, 4)");
+        assertCompiledAsInterpreted("max(a, b) + min(a, c) + sigmoid(a) + exp(b) + log(c) + sqrt(a) + pow(a, 2)");
+        assertCompiledAsInterpreted("atan2(a, b) + fmod(c, 0.3) + ldexp(a, 3) + abs(-b) + tanh(c) + isNan(a)");
+        assertCompiledAsInterpreted("if (true, a, b) + if (1 < 2, 3, b)");
+    }
+
+    @Test
+    public void testCompiledDecisionTreesEvaluateAsInterpretedTrees() throws ParseException, IOException {
+        assertCompiledAsInterpreted(IOUtils.readFile(new File("src/test/files/gbdt.expression")));
+        assertCompiledAsInterpreted(IOUtils.readFile(new File("src/test/files/s-expression.vre")));
+    }
+
+    @Test
+    public void testCompilingFunctions() throws ParseException {
+        ExpressionFunction function = new ExpressionFunction("f", List.of("x", "y"), new RankingExpression("x * 2 + y"));
+        CompiledExpression compiled = new ExpressionCompiler().compile(function);
+        assertEquals(2, compiled.inputCount());
+        assertEquals(7.0, compiled.evaluate(new double[] { 3, 1 }), 0);
+
+        try {
+            new ExpressionCompiler().compile(new ExpressionFunction("f", List.of("x"), new RankingExpression("x + z")));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertTrue(e.getCause().getMessage().contains("'z' is not an argument"));
+        }
+    }
+
+    @Test
+    public void testNonScalarExpressionsAreNotCompiled() throws ParseException {
+        assertNotCompilable("reduce(a, sum)");
+        assertNotCompilable("a + \"foo\"");
+    }
+
+    private void assertCompiledAsInterpreted(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression);
+        CompiledExpression compiled = new ExpressionCompiler().compile(expression, context);
+        for (int i = 0; i < 100; i++) {
+            double[] inputs = new double[context.size()];
+            for (int index = 0; index < inputs.length; index++) {
+                inputs[index] = random.nextInt(5) == 0 ? 1.0 : random.nextDouble() * 3;
+                context.put(index, inputs[index]);
+            }
+            assertEquals(expressionString, expression.evaluate(context).asDouble(), compiled.evaluate(inputs), 0);
+            assertEquals(expressionString, expression.evaluate(context).asDouble(), compiled.evaluate(context), 0);
+        }
+    }
+
+    private void assertNotCompilable(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        try {
+            new ExpressionCompiler().compile(expression, new DoubleOnlyArrayContext(expression));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Cannot compile " + expression, e.getMessage());
+        }
+    }
+
+}
@@ -108,6 +108,38 @@ public class GBDTForestOptimizerTestCase {
         assertEqualish(result3, oResult3);
     }
 
+    @Test
+    public void testBatchEvaluation() throws ParseException {
+        String gbdtString =
+                "if (LW_NEWS_SEARCHES_RATIO < 1.72971, 0.0697159, if (LW_USERS < 0.10496, if (SEARCHES < 0.0329127, 0.151257, 0.117501), if (SUGG_OVERLAP < 18.5, 0.0897622, 0.0756903))) + \n" +
+                "if (LW_NEWS_SEARCHES_RATIO < 1.73156, if (NEWS_USERS in [0, 1], -0.00481646, 0.00110018), if (LW_USERS < 0.0844616, 0.0488919, if (SUGG_OVERLAP < 32.5, 0.0136917, 9.85328E-4))) + \n" +
+                "if (!(LW_NEWS_SEARCHES_RATIO >= 1.74451), -0.00298257, if (LW_USERS < 0.116207, if (SEARCHES < 0.0329127, 0.0676105, 0.0340198), if (NUM_WORDS < 1.5, -8.55514E-5, 0.0112406))) + \n" +
+                "if (LW_NEWS_SEARCHES_RATIO < 1.72995, if (NEWS_USERS < 0.0737993, -0.00407515, 0.00139088), if (LW_USERS == 0.0509035, 0.0439466, if (LW_USERS < 0.325818, 0.0187156, 0.00236949)))";
+        RankingExpression gbdt = new RankingExpression(gbdtString);
+        RankingExpression optimizedGbdt = new RankingExpression(gbdtString);
+        ArrayContext context = new ArrayContext(optimizedGbdt, DoubleValue.NaN);
+        new ExpressionOptimizer().optimize(optimizedGbdt, context);
+        GBDTForest forest = ((GBDTForestNode)optimizedGbdt.getRoot()).forest();
+        assertEquals(4, forest.treeCount());
+
+        double[][] inputs = new double[100][context.size()];
+        double[] expected = new double[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            for (int index = 0; index < context.size(); index++) {
+                inputs[i][index] = i % (index + 3) * 0.3;
+                context.put(index, inputs[i][index]);
+            }
+            expected[i] = gbdt.evaluate(context).asDouble();
+            assertEquals(expected[i], optimizedGbdt.evaluate(context).asDouble(), 1e-12);
+            assertEquals(expected[i], forest.evaluate(inputs[i]), 1e-12);
+        }
+
+        double[] results = new double[inputs.length];
+        forest.evaluate(inputs, results);
+        for (int i = 0; i < inputs.length; i++)
+            assertEquals(expected[i], results[i], 1e-12);
+    }
+
     private void assertEqualish(double a, double b) {
         assertTrue("Almost equal to " + a + ": " + b, Math.abs(a - b) < ((a + b) / 100000000));
     }
@@ -10,11 +10,13 @@ import com.yahoo.searchlib.rankingexpression.parser.ParseException;
 import com.yahoo.searchlib.rankingexpression.rule.TensorFunctionNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.functions.FusedReduce;
 import com.yahoo.tensor.functions.Reduce;
 import com.yahoo.tensor.functions.ReduceJoin;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author lesters
@@ -53,6 +55,27 @@ public class TensorOptimizerTestCase {
         assertCantOptimize("d0[1],d1[2],d2[3]", "d0[1],d1[2],d2[3]", "d1,d2");  // reducing on less then joining on
     }
 
+    @Test
+    public void testFusedReduceOptimization() throws ParseException {
+        assertFusedReduce("reduce(join(map(a, f(x)(x * 2)), b, f(x,y)(x + y)), sum, d0)", "d0[3],d1[2]", "d0[3]");
+        assertFusedReduce("reduce(join(map(a, f(x)(x * 2)), b, f(x,y)(x + y)), max)", "d0[3],d1[2]", "d0[3]");
+        assertFusedReduce("reduce(map(join(a, b, f(x,y)(x * y)), f(x)(x + 1)), sum, d1)", "d0[3],d1[2]", "d1[2],d2[4]");
+        assertFusedReduce("reduce(join(join(a, b, f(x,y)(x * y)), b, f(x,y)(x - y)), avg, d0, d2)", "d0[3],d1[2]", "d1[2],d2[4]");
+    }
+
+    private void assertFusedReduce(String expressionString, String aType, String bType) throws ParseException {
+        Tensor a = generateRandomTensor(aType);
+        Tensor b = generateRandomTensor(bType);
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = generateContext(a, b, expression);
+        Tensor result = expression.evaluate(context).asTensor();
+
+        OptimizationReport report = new ExpressionOptimizer().optimize(expression, context);
+        assertEquals(1, report.getMetric("Fused reduce->map/join"));
+        assertTrue(((TensorFunctionNode)expression.getRoot()).function() instanceof FusedReduce);
+        assertEquals(expressionString, result, expression.evaluate(context).asTensor());
+    }
+
     private void assertWillOptimize(String aType, String bType) throws ParseException {
         assertWillOptimize(aType, bType, "", "sum");
     }
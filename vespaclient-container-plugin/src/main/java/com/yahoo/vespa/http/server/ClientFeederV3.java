@@ -24,9 +24,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
@@ -39,6 +45,9 @@ import static com.yahoo.messagebus.ErrorCode.SEND_QUEUE_FULL;
  * avoid using a threadpool that has no effect with all the extra that comes with it. V2 has one instance per thread
  * on the client, while this is one instance for all threads.
  *
+ * When given an executor, the operations of a request are parsed in parallel by it, while being read from
+ * the request and sent to message bus in the order they arrive in, by the thread handling the request.
+ *
  * @author dybis
  */
 class ClientFeederV3 {
@@ -59,6 +68,8 @@ class ClientFeederV3 {
     private final AtomicInteger ongoingRequests = new AtomicInteger(0);
     private String hostName;
     private AtomicInteger threadsAvailableForFeeding;
+    private final Executor parseExecutor;
+    private final int maxPendingParses;
 
     ClientFeederV3(
             ReferencedResource<SharedSourceSession> sourceSession,
@@ -68,6 +79,30 @@ class ClientFeederV3 {
             Metric metric,
             ReplyHandler feedReplyHandler,
             AtomicInteger threadsAvailableForFeeding) {
+        this(sourceSession, feedReaderFactory, docTypeManager, clientId, metric, feedReplyHandler,
+             threadsAvailableForFeeding, null, 1);
+    }
+
+    /**
+     * Creates a client feeder which parses operations in parallel.
+     *
+     * @param parseExecutor the executor parsing operations, or null to parse them in the thread handling the request
+     * @param maxPendingParses the max number of operations of a request being parsed, or waiting to be sent, at once
+     */
+    ClientFeederV3(
+            ReferencedResource<SharedSourceSession> sourceSession,
+            FeedReaderFactory feedReaderFactory,
+            DocumentTypeManager docTypeManager,
+            String clientId,
+            Metric metric,
+            ReplyHandler feedReplyHandler,
+            AtomicInteger threadsAvailableForFeeding,
+            Executor parseExecutor,
+            int maxPendingParses) {
+        if (maxPendingParses < 1)
+            throw new IllegalArgumentException("maxPendingParses must be positive, not " + maxPendingParses);
+        this.parseExecutor = parseExecutor;
+        this.maxPendingParses = maxPendingParses;
         this.sourceSession = sourceSession;
         this.clientId = clientId;
         this.feedReplyHandler = feedReplyHandler;
@@ -164,6 +199,91 @@ class ClientFeederV3 {
     }
 
     private Optional<DocumentOperationMessageV3> pullMessageFromRequest(
+            FeederSettings settings, InputStream requestInputStream, BlockingQueue<OperationStatus> repliesFromOldMessages,
+            Deque<PendingMessage> pendingMessages) {
+        if (parseExecutor == null)
+            return readMessageFromRequest(settings, requestInputStream, repliesFromOldMessages);
+
+        while (true) {
+            while (pendingMessages.size() < maxPendingParses) {
+                Optional<PendingMessage> pending = readPendingMessage(settings, requestInputStream);
+                if ( ! pending.isPresent()) break;
+                pendingMessages.add(pending.get());
+            }
+            PendingMessage pending = pendingMessages.poll();
+            if (pending == null) {
+                return Optional.empty();
+            }
+
+            DocumentOperationMessageV3 message;
+            try {
+                message = pending.message.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (log.isLoggable(LogLevel.WARNING)) {
+                    log.log(LogLevel.WARNING, Exceptions.toMessageString(cause));
+                }
+                metric.add(MetricNames.PARSE_ERROR, 1, null);
+
+                repliesFromOldMessages.add(new OperationStatus(
+                        Exceptions.toMessageString(cause), pending.operationId, ErrorCode.ERROR, false, ""));
+
+                continue;
+            }
+            if (message == null) {
+                // typical end of feed: Do not read nor send anything after this
+                pendingMessages.clear();
+                return Optional.empty();
+            }
+            setRoute(message, settings);
+            return Optional.of(message);
+        }
+    }
+
+    /**
+     * Reads the data of the next operation in the request and starts parsing it in the parse executor,
+     * or returns empty if there are no more operations in the request.
+     */
+    private Optional<PendingMessage> readPendingMessage(FeederSettings settings, InputStream requestInputStream) {
+        Optional<String> operationId;
+        try {
+            operationId = streamReaderV3.getNextOperationId(requestInputStream);
+        } catch (IOException ioe) {
+            if (log.isLoggable(LogLevel.DEBUG)) {
+                log.log(LogLevel.DEBUG, Exceptions.toMessageString(ioe), ioe);
+            }
+            return Optional.empty();
+        }
+        if ( ! operationId.isPresent()) {
+            return Optional.empty();
+        }
+
+        CompletableFuture<DocumentOperationMessageV3> message;
+        try {
+            byte[] data = streamReaderV3.getNextOperationData(requestInputStream);
+            try {
+                message = CompletableFuture.supplyAsync(() -> parseMessage(operationId.get(), data, settings), parseExecutor);
+            } catch (RejectedExecutionException e) { // executor is shut down: Parse here instead
+                message = CompletableFuture.completedFuture(parseMessage(operationId.get(), data, settings));
+            }
+        } catch (Exception e) {
+            message = new CompletableFuture<>();
+            message.completeExceptionally(e);
+        }
+        return Optional.of(new PendingMessage(operationId.get(), message));
+    }
+
+    private DocumentOperationMessageV3 parseMessage(String operationId, byte[] data, FeederSettings settings) {
+        try {
+            return createMessage(operationId, streamReaderV3.parseOperation(data, settings));
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private Optional<DocumentOperationMessageV3> readMessageFromRequest(
             FeederSettings settings, InputStream requestInputStream, BlockingQueue<OperationStatus> repliesFromOldMessages) {
         while (true) {
             Optional<String> operationId;
@@ -223,8 +343,10 @@ class ClientFeederV3 {
                       InputStream requestInputStream,
                       BlockingQueue<OperationStatus> repliesFromOldMessages,
                       AtomicInteger threadsAvailableForFeeding) throws InterruptedException {
+        Deque<PendingMessage> pendingMessages = new ArrayDeque<>(maxPendingParses);
         while (true) {
-            Optional<DocumentOperationMessageV3> msg = pullMessageFromRequest(settings, requestInputStream, repliesFromOldMessages);
+            Optional<DocumentOperationMessageV3> msg = pullMessageFromRequest(settings, requestInputStream,
+                                                                               repliesFromOldMessages, pendingMessages);
 
             if (! msg.isPresent()) {
                 break;
@@ -283,7 +405,11 @@ class ClientFeederV3 {
                                                         InputStream requestInputStream,
                                                         FeederSettings settings) throws Exception {
         FeedOperation operation = streamReaderV3.getNextOperation(requestInputStream, settings);
+        return createMessage(operationId, operation);
+    }
 
+    /** Returns a message for the given operation, or null if it marks the end of the feed */
+    private DocumentOperationMessageV3 createMessage(String operationId, FeedOperation operation) {
         // This is a bit hard to set up while testing, so we accept that things are not perfect.
         if (sourceSession.getResource().session() != null) {
             metric.set(
@@ -341,6 +467,19 @@ class ClientFeederV3 {
         log.log(level, s.toString());
     }
 
+    /** An operation which is read from a request and being parsed in the parse executor */
+    private static class PendingMessage {
+
+        final String operationId;
+        final CompletableFuture<DocumentOperationMessageV3> message;
+
+        PendingMessage(String operationId, CompletableFuture<DocumentOperationMessageV3> message) {
+            this.operationId = operationId;
+            this.message = message;
+        }
+
+    }
+
     private void updateOpsPerSec() {
         Instant now = Instant.now();
         synchronized (monitor) {
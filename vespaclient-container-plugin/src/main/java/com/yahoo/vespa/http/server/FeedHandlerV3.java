@@ -22,6 +22,8 @@ import com.yahoo.yolean.Exceptions;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -36,9 +38,14 @@ import java.util.logging.Logger;
  */
 public class FeedHandlerV3 extends LoggingRequestHandler {
 
+    /** The max number of operations of a single request which may be parsed, or wait to be sent, at once, per parse thread */
+    private static final int maxPendingParsesPerThread = 4;
+
     private DocumentTypeManager docTypeManager;
     private final Map<String, ClientFeederV3> clientFeederByClientId = new HashMap<>();
     private final ScheduledThreadPoolExecutor cron;
+    private final int parseThreads;
+    private final ExecutorService parseExecutor;
     private final SessionCache sessionCache;
     protected final ReplyHandler feedReplyHandler;
     private final Metric metric;
@@ -57,6 +64,11 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
         feedReplyHandler = new FeedReplyReader(parentCtx.getMetric(), metricsHelper);
         cron = new ScheduledThreadPoolExecutor(1, ThreadFactoryFactory.getThreadFactory("feedhandlerv3.cron"));
         cron.scheduleWithFixedDelay(this::removeOldClients, 16, 11, TimeUnit.MINUTES);
+        // Parsing operations in parallel only pays off when there are more cores than a single client can use
+        parseThreads = Runtime.getRuntime().availableProcessors();
+        parseExecutor = parseThreads > 1
+                        ? Executors.newFixedThreadPool(parseThreads, ThreadFactoryFactory.getDaemonThreadFactory("feedhandlerv3.parser"))
+                        : null;
         this.metric = parentCtx.getMetric();
         // 40% of the threads can be blocking on feeding before we deny requests.
         if (threadpoolConfig != null) {
@@ -87,7 +99,9 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
                                                               clientId,
                                                               metric,
                                                               feedReplyHandler,
-                                                              threadsAvailableForFeeding));
+                                                              threadsAvailableForFeeding,
+                                                              parseExecutor,
+                                                              parseThreads * maxPendingParsesPerThread));
             }
             clientFeederV3 = clientFeederByClientId.get(clientId);
         }
@@ -117,6 +131,8 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
         Thread destroyer = new Thread(() -> {
             super.destroy();
             cron.shutdown();
+            if (parseExecutor != null)
+                parseExecutor.shutdown();
             synchronized (monitor) {
                 for (ClientFeederV3 client : clientFeederByClientId.values()) {
                     client.kill();
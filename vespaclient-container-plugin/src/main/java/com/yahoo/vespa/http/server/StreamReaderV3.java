@@ -8,6 +8,8 @@ import com.yahoo.vespa.http.server.util.ByteLimitedInputStream;
 import com.yahoo.vespaxmlparser.FeedOperation;
 import com.yahoo.vespaxmlparser.FeedReader;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
@@ -42,6 +44,27 @@ public class StreamReaderV3 {
         return op;
     }
 
+    /**
+     * Reads the data of the next operation in the stream, without parsing it, such that it may be parsed
+     * in another thread by {@link #parseOperation}.
+     */
+    public byte[] getNextOperationData(InputStream requestInputStream) throws IOException {
+        int length = readByteLength(requestInputStream);
+        byte[] data = requestInputStream.readNBytes(length);
+        if (data.length < length) {
+            throw new EOFException("Expected " + length + " bytes of operation data, but got " + data.length);
+        }
+        return data;
+    }
+
+    /** Parses operation data read by {@link #getNextOperationData}. This is thread safe. */
+    public FeedOperation parseOperation(byte[] data, FeederSettings settings) throws Exception {
+        try (InputStream inputStream = new ByteArrayInputStream(data)) {
+            FeedReader reader = feedReaderFactory.createReader(inputStream, docTypeManager, settings.dataFormat);
+            return reader.read();
+        }
+    }
+
     public Optional<String> getNextOperationId(InputStream requestInputStream) throws IOException {
         StringBuilder idBuf = new StringBuilder(100);
         int c;
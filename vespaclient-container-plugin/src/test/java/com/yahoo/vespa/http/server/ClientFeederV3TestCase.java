@@ -0,0 +1,119 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.server;
+
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.container.jdisc.HttpResponse;
+import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
+import com.yahoo.jdisc.ReferencedResource;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Result;
+import com.yahoo.messagebus.shared.SharedSourceSession;
+import com.yahoo.text.Utf8;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.ErrorCode;
+import com.yahoo.vespa.http.client.core.Headers;
+import com.yahoo.vespa.http.client.core.OperationStatus;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests feeding with operations parsed in parallel.
+ */
+public class ClientFeederV3TestCase {
+
+    private final ExecutorService parseExecutor = Executors.newFixedThreadPool(4);
+    private final List<String> sentDocumentIds = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void shutdownExecutor() {
+        parseExecutor.shutdown();
+    }
+
+    @Test
+    public void operationsParsedInParallelAreSentInOrder() throws Exception {
+        ClientFeederV3 feeder = createFeeder(3);
+        StringBuilder wireData = new StringBuilder();
+        List<String> expectedDocumentIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String documentId = "id:testdocument:testdocument::" + (i % 7);
+            String docData = i == 100
+                             ? "[{\"put oops I broke it]"
+                             : "[{\"put\": \"" + documentId + "\", \"fields\": { \"title\": \"title" + i + "\"}}]";
+            if (i != 100)
+                expectedDocumentIds.add(documentId);
+            wireData.append("op").append(i).append(" ").append(Integer.toHexString(docData.length())).append("\n").append(docData);
+        }
+
+        String result = render(feeder.handleRequest(createRequest(wireData.toString())));
+
+        assertEquals(expectedDocumentIds, sentDocumentIds);
+        assertTrue(result, result.startsWith("op100 ERROR "));
+        assertEquals(200, result.split("\n").length);
+    }
+
+    private ClientFeederV3 createFeeder(int maxPendingParses) throws InterruptedException {
+        SharedSourceSession session = mock(SharedSourceSession.class);
+        when(session.sendMessageBlocking(any())).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            sentDocumentIds.add(((PutDocumentMessage) message).getDocumentPut().getId().toString());
+            ReplyContext context = (ReplyContext) message.getContext();
+            context.feedReplies.add(new OperationStatus("message", context.docId, ErrorCode.OK, false, ""));
+            Result result = mock(Result.class);
+            when(result.isAccepted()).thenReturn(true);
+            return result;
+        });
+        return new ClientFeederV3(new ReferencedResource<>(session, () -> {}),
+                                  new FeedReaderFactory(),
+                                  createDocumentTypeManager(),
+                                  "client",
+                                  new DummyMetric(),
+                                  null,
+                                  new AtomicInteger(10),
+                                  parseExecutor,
+                                  maxPendingParses);
+    }
+
+    private static DocumentTypeManager createDocumentTypeManager() {
+        DocumentTypeManager documentTypeManager = new DocumentTypeManager();
+        DocumentType documentType = new DocumentType("testdocument");
+        documentType.addField("title", DataType.STRING);
+        documentTypeManager.registerDocumentType(documentType);
+        return documentTypeManager;
+    }
+
+    private static HttpRequest createRequest(String payload) {
+        HttpRequest request = HttpRequest.createTestRequest("http://dummyhostname:19020/reserved-for-internal-use/feedapi",
+                                                            com.yahoo.jdisc.http.HttpRequest.Method.POST,
+                                                            new ByteArrayInputStream(Utf8.toBytes(payload)));
+        request.getJDiscRequest().headers().add(Headers.VERSION, "3");
+        request.getJDiscRequest().headers().add(Headers.DATA_FORMAT, FeedParams.DataFormat.JSON_UTF8.name());
+        request.getJDiscRequest().headers().add(Headers.CLIENT_ID, "client");
+        request.getJDiscRequest().headers().add(Headers.DRAIN, "true");
+        return request;
+    }
+
+    private static String render(HttpResponse response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.render(out);
+        return Utf8.toString(out.toByteArray());
+    }
+
+}
@@ -1,9 +1,11 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.compress;
 
+import com.github.luben.zstd.Zstd;
 import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -18,6 +20,7 @@ public class Compressor {
     private final int level;
     private final double compressionThresholdFactor;
     private final int compressMinSizeBytes;
+    private final byte[] dictionary;
 
     private final LZ4Factory factory = LZ4Factory.fastestInstance();
 
@@ -35,16 +38,38 @@ public class Compressor {
      * Creates a compressor.
      *
      * @param type the type of compression to use to compress data
-     * @param level a number between 0 and 9 where a higher value means more compression
+     * @param level a number between 0 and 9 where a higher value means more compression.
+     *              With ZSTD this is the zstd compression level, where 0 means the zstd default level.
      * @param compressionThresholdFactor the compression factor we need to achieve to return the compressed data
      *                                   instead of raw data
      * @param compressMinSizeBytes the minimal input data size to perform compression
      */
     public Compressor(CompressionType type, int level, double compressionThresholdFactor, int compressMinSizeBytes) {
+        this(type, level, compressionThresholdFactor, compressMinSizeBytes, null);
+    }
+
+    /**
+     * Creates a compressor which compresses and decompresses ZSTD data using a dictionary.
+     * Data compressed with a dictionary can only be decompressed by a compressor having the same dictionary.
+     *
+     * @param type the type of compression to use to compress data
+     * @param level the zstd compression level, where 0 means the zstd default level
+     * @param compressionThresholdFactor the compression factor we need to achieve to return the compressed data
+     *                                   instead of raw data
+     * @param compressMinSizeBytes the minimal input data size to perform compression
+     * @param dictionary the dictionary to use with ZSTD, typically created by {@link #trainDictionary},
+     *                   or null to not use a dictionary
+     * @throws IllegalArgumentException if a dictionary is given with another compression type than ZSTD
+     */
+    public Compressor(CompressionType type, int level, double compressionThresholdFactor, int compressMinSizeBytes,
+                      byte[] dictionary) {
+        if (dictionary != null && type != CompressionType.ZSTD)
+            throw new IllegalArgumentException("A dictionary can only be used with ZSTD, not " + type);
         this.type = type;
         this.level = level;
         this.compressionThresholdFactor = compressionThresholdFactor;
         this.compressMinSizeBytes = compressMinSizeBytes;
+        this.dictionary = dictionary;
     }
 
     /** Returns the default compression type used by this */
@@ -59,6 +84,29 @@ public class Compressor {
     /** Returns the minimal data size required to perform compression */
     public int compressMinSizeBytes() { return compressMinSizeBytes; }
 
+    /** Returns the ZSTD dictionary used by this, if any */
+    public Optional<byte[]> dictionary() { return Optional.ofNullable(dictionary); }
+
+    /**
+     * Trains a ZSTD dictionary from samples of the data to compress. Dictionaries improve compression
+     * of small data items considerably when these are similar to each other.
+     *
+     * @param samples samples of the data to compress, typically a few thousand data items
+     * @param maxDictionarySize the max size of the dictionary in bytes, typically 100 times smaller than
+     *                          the total size of the samples
+     * @return the dictionary
+     * @throws IllegalArgumentException if a dictionary could not be trained from the samples,
+     *                                  which happens e.g. if there are too few samples
+     */
+    public static byte[] trainDictionary(List<byte[]> samples, int maxDictionarySize) {
+        byte[] dictionary = new byte[maxDictionarySize];
+        long size = Zstd.trainFromBuffer(samples.toArray(new byte[0][]), dictionary);
+        if (Zstd.isError(size))
+            throw new IllegalArgumentException("Could not train a dictionary from " + samples.size() + " samples: " +
+                                               Zstd.getErrorName(size));
+        return Arrays.copyOf(dictionary, (int)size);
+    }
+
     /**
      * Compresses some data
      *
@@ -84,6 +132,14 @@ public class Compressor {
                 if (compressedData.length + 8 >= dataSize * compressionThresholdFactor)
                     return new Compression(CompressionType.INCOMPRESSIBLE, dataSize, data);
                 return new Compression(CompressionType.LZ4, dataSize, compressedData);
+            case ZSTD:
+                int zstdDataSize = uncompressedSize.isPresent() ? uncompressedSize.get() : data.length;
+                if (zstdDataSize < compressMinSizeBytes) return new Compression(CompressionType.INCOMPRESSIBLE, zstdDataSize, data);
+                byte[] zstdCompressedData = new byte[maxZstdCompressedSize(zstdDataSize)];
+                int zstdCompressedSize = zstdCompress(data, 0, zstdDataSize, zstdCompressedData, 0);
+                if (zstdCompressedSize + 8 >= zstdDataSize * compressionThresholdFactor)
+                    return new Compression(CompressionType.INCOMPRESSIBLE, zstdDataSize, data);
+                return new Compression(CompressionType.ZSTD, zstdDataSize, Arrays.copyOf(zstdCompressedData, zstdCompressedSize));
             default:
                 throw new IllegalArgumentException(requestedCompression + " is not supported");
         }
@@ -95,6 +151,56 @@ public class Compressor {
     /** Compresses some data using the compression type of this compressor */
     public Compression compress(byte[] data) { return compress(type, data, Optional.empty()); }
 
+    /**
+     * Returns the max size of the data returned by {@link #compressInto} when compressing the given
+     * number of bytes using the compression type of this compressor.
+     */
+    public int maxCompressedSize(int uncompressedSize) {
+        switch (type) {
+            case NONE: return 0;
+            case LZ4: return factory.fastCompressor().maxCompressedLength(uncompressedSize);
+            case ZSTD: return maxZstdCompressedSize(uncompressedSize);
+            default: throw new IllegalArgumentException(type + " is not supported");
+        }
+    }
+
+    /**
+     * Compresses some data directly into the given array using the compression type of this compressor,
+     * without allocating intermediate buffers.
+     *
+     * @param data the data to compress. This array is only read by this method.
+     * @param offset the offset of the data to compress
+     * @param uncompressedSize the size in bytes of the data to compress
+     * @param destination the array to write the compressed data to, which must have room for
+     *                    {@link #maxCompressedSize} bytes from the destination offset
+     * @param destinationOffset the offset in the destination to write the compressed data at
+     * @return the size in bytes of the compressed data, or -1 if the data should be stored uncompressed because this
+     *         does not compress, the data is smaller than the min size, or the compression factor is not achieved.
+     *         The content of the destination is undefined in this case.
+     * @throws IllegalArgumentException if the compression type is not supported
+     */
+    public int compressInto(byte[] data, int offset, int uncompressedSize, byte[] destination, int destinationOffset) {
+        switch (type) {
+            case NONE:
+                return -1;
+            case LZ4:
+                if (uncompressedSize < compressMinSizeBytes) return -1;
+                LZ4Compressor compressor = level < 7 ? factory.fastCompressor() : factory.highCompressor();
+                int compressedSize = compressor.compress(data, offset, uncompressedSize,
+                                                         destination, destinationOffset,
+                                                         compressor.maxCompressedLength(uncompressedSize));
+                if (compressedSize + 8 >= uncompressedSize * compressionThresholdFactor) return -1;
+                return compressedSize;
+            case ZSTD:
+                if (uncompressedSize < compressMinSizeBytes) return -1;
+                int zstdCompressedSize = zstdCompress(data, offset, uncompressedSize, destination, destinationOffset);
+                if (zstdCompressedSize + 8 >= uncompressedSize * compressionThresholdFactor) return -1;
+                return zstdCompressedSize;
+            default:
+                throw new IllegalArgumentException(type + " is not supported");
+        }
+    }
+
     /**
      * Decompresses some data
      *
@@ -120,6 +226,20 @@ public class Compressor {
                 if (expectedCompressedSize.isPresent() && compressedSize != expectedCompressedSize.get())
                     throw new IllegalStateException("Compressed size mismatch. Expected " + compressedSize + ". Got " + expectedCompressedSize.get());
                 return uncompressedLZ4Data;
+            case ZSTD:
+                byte[] uncompressedZstdData = new byte[expectedUncompressedSize];
+                int zstdCompressedSize = expectedCompressedSize.orElse(compressedData.length - compressedDataOffset);
+                long zstdUncompressedSize = dictionary == null
+                        ? Zstd.decompressByteArray(uncompressedZstdData, 0, expectedUncompressedSize,
+                                                   compressedData, compressedDataOffset, zstdCompressedSize)
+                        : Zstd.decompressUsingDict(uncompressedZstdData, 0,
+                                                   compressedData, compressedDataOffset, zstdCompressedSize, dictionary);
+                if (Zstd.isError(zstdUncompressedSize))
+                    throw new IllegalArgumentException("Could not decompress ZSTD data: " + Zstd.getErrorName(zstdUncompressedSize));
+                if (zstdUncompressedSize != expectedUncompressedSize)
+                    throw new IllegalStateException("Uncompressed size mismatch. Expected " + expectedUncompressedSize +
+                                                    ". Got " + zstdUncompressedSize);
+                return uncompressedZstdData;
             default:
                 throw new IllegalArgumentException(compression + " is not supported");
         }
@@ -133,6 +253,22 @@ public class Compressor {
         return decompress(compression.type(), compression.data(), 0, compression.uncompressedSize(), Optional.empty());
     }
 
+    private int maxZstdCompressedSize(int uncompressedSize) {
+        return (int)Zstd.compressBound(uncompressedSize);
+    }
+
+    /** Compresses with ZSTD into the given destination, which must have room for the max compressed size */
+    private int zstdCompress(byte[] data, int offset, int uncompressedSize, byte[] destination, int destinationOffset) {
+        int zstdLevel = Math.min(level, Zstd.maxCompressionLevel());
+        long compressedSize = dictionary == null
+                ? Zstd.compressByteArray(destination, destinationOffset, maxZstdCompressedSize(uncompressedSize),
+                                         data, offset, uncompressedSize, zstdLevel)
+                : Zstd.compressUsingDict(destination, destinationOffset, data, offset, uncompressedSize, dictionary, zstdLevel);
+        if (Zstd.isError(compressedSize))
+            throw new IllegalArgumentException("Could not compress data with ZSTD: " + Zstd.getErrorName(compressedSize));
+        return (int)compressedSize;
+    }
+
     public static class Compression {
 
         private final CompressionType compressionType;
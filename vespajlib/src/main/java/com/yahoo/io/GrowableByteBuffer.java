@@ -81,6 +81,14 @@ public class GrowableByteBuffer implements Comparable<GrowableByteBuffer> {
         return buffer;
     }
 
+    /**
+     * Grows this buffer, if necessary, such that the given number of bytes can be put into it
+     * from its current position without growing it again.
+     */
+    public void ensureRemaining(int size) {
+        accomodate(size);
+    }
+
     //PRIVATE GROWTH METHODS
 
     //TODO: Implement more efficient buffer growth
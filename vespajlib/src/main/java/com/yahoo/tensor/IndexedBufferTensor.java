@@ -0,0 +1,62 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An indexed tensor implementation which reads its values on demand from a byte buffer,
+ * such as a memory mapped file, rather than holding them on the heap.
+ * The values are stored as doubles or floats, as given by the value type of the tensor type.
+ *
+ * @author agent
+ */
+class IndexedBufferTensor extends IndexedTensor {
+
+    /** A read-only buffer containing exactly the values of this, starting at position 0 */
+    private final ByteBuffer values;
+
+    private final boolean isFloat;
+
+    IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer values) {
+        super(type, dimensionSizes);
+        this.isFloat = type.valueType() == TensorType.Value.FLOAT;
+        long expectedBytes = dimensionSizes.totalSize() * (isFloat ? Float.BYTES : Double.BYTES);
+        if (values.remaining() != expectedBytes)
+            throw new IllegalArgumentException("Expected " + expectedBytes + " bytes of values for " + type +
+                                               ", but got " + values.remaining());
+        this.values = values.slice().asReadOnlyBuffer().order(values.order());
+    }
+
+    @Override
+    public long size() {
+        return dimensionSizes().totalSize();
+    }
+
+    @Override
+    public double get(long valueIndex) {
+        if (isFloat) return getFloat(valueIndex);
+        return values.getDouble((int)(valueIndex * Double.BYTES));
+    }
+
+    @Override
+    public float getFloat(long valueIndex) {
+        if ( ! isFloat) return (float)get(valueIndex);
+        return values.getFloat((int)(valueIndex * Float.BYTES));
+    }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedBufferTensor(type, dimensionSizes(), values);
+    }
+
+    /** Returns the same hash code as the corresponding tensor with values on the heap */
+    @Override
+    public int hashCode() {
+        int hashCode = 1;
+        for (long i = 0; i < size(); i++)
+            hashCode = 31 * hashCode + (isFloat ? Float.hashCode(getFloat(i)) : Double.hashCode(get(i)));
+        return hashCode;
+    }
+
+}
@@ -4,6 +4,7 @@ package com.yahoo.tensor;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -244,6 +245,21 @@ public abstract class IndexedTensor implements Tensor {
         return Tensor.equals(this, ((Tensor)other));
     }
 
+    /**
+     * Returns an indexed tensor which reads its values on demand from the given buffer instead of copying them.
+     * This allows large tensors to reside off the heap, e.g in a memory mapped file.
+     *
+     * @param type the type of the tensor
+     * @param sizes the sizes of the dimensions of the tensor
+     * @param values a buffer containing exactly the values of the tensor from its position to its limit,
+     *               in the <i>standard value order</i>, as doubles or floats as given by the value type of the type.
+     *               The content of the buffer must not be changed while the returned tensor is in use.
+     * @throws IllegalArgumentException if the number of remaining bytes in the buffer does not match the tensor size
+     */
+    public static IndexedTensor fromBuffer(TensorType type, DimensionSizes sizes, ByteBuffer values) {
+        return new IndexedBufferTensor(type, sizes, values);
+    }
+
     public abstract static class Builder implements Tensor.Builder {
 
         final TensorType type;
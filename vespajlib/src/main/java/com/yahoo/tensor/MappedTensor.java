@@ -3,13 +3,21 @@ package com.yahoo.tensor;
 
 import com.google.common.collect.ImmutableMap;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.function.DoubleBinaryOperator;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor backed by an open addressing hash table of cells to values.
+ *
+ * The labels are interned to label ids, such that the address of each cell is stored as one int per dimension,
+ * and the values are stored in a double array. Cells are returned in the order they were added to the builder.
  *
  * @author bratseth
  */
@@ -17,31 +25,56 @@ public class MappedTensor implements Tensor {
 
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    /** The distinct labels of this, indexed by label id */
+    private final String[] labels;
+
+    /** The label id of each dimension of each cell, cell by cell */
+    private final int[] labelIds;
+
+    /** The hash code of the address of each cell */
+    private final int[] hashes;
+
+    /** The value of each cell */
+    private final double[] values;
+
+    /** Cell index + 1 of the cell hashed to each slot, or 0 if the slot is empty. The length is a power of two. */
+    private final int[] slots;
 
     /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    private MappedTensor(TensorType type, String[] labels, int[] labelIds, int[] hashes, double[] values, int[] slots) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.labels = labels;
+        this.labelIds = labelIds;
+        this.hashes = hashes;
+        this.values = values;
+        this.slots = slots;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return values.length; }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, Double.NaN); }
+    public double get(TensorAddress address) {
+        int index = indexOf(address);
+        return index < 0 ? Double.NaN : values[index];
+    }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public Iterator<Double> valueIterator() { return new ValueIterator(); }
 
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() {
+        ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
+        for (int i = 0; i < values.length; i++)
+            builder.put(address(i), values[i]);
+        return builder.build();
+    }
 
     @Override
     public Tensor withType(TensorType other) {
@@ -49,7 +82,7 @@ public class MappedTensor implements Tensor {
             throw new IllegalArgumentException("MappedTensor.withType: types are not compatible. Current type: '" +
                     this.type.toString() + "', requested type: '" + type.toString() + "'");
         }
-        return new MappedTensor(other, cells);
+        return new MappedTensor(other, labels, labelIds, hashes, values, slots);
     }
 
     @Override
@@ -58,13 +91,13 @@ public class MappedTensor implements Tensor {
         // currently, underlying implementation disallows multiple entries with the same key
 
         Tensor.Builder builder = Tensor.Builder.of(type());
-        for (Map.Entry<TensorAddress, Double> cell  : cells.entrySet()) {
-            TensorAddress address = cell.getKey();
-            double value = cell.getValue();
-            builder.cell(address, addCells.containsKey(address) ? op.applyAsDouble(value, addCells.get(address)) : value);
+        for (int i = 0; i < values.length; i++) {
+            TensorAddress address = address(i);
+            Double addValue = addCells.get(address);
+            builder.cell(address, addValue != null ? op.applyAsDouble(values[i], addValue) : values[i]);
         }
         for (Map.Entry<TensorAddress, Double> addCell : addCells.entrySet()) {
-            if ( ! cells.containsKey(addCell.getKey())) {
+            if (indexOf(addCell.getKey()) < 0) {
                 builder.cell(addCell.getKey(), addCell.getValue());
             }
         }
@@ -84,8 +117,14 @@ public class MappedTensor implements Tensor {
         return builder.build();
     }
 
+    /** Returns the same hash code as the cells() map would */
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = 0; i < values.length; i++)
+            hashCode += hashes[i] ^ Double.hashCode(values[i]);
+        return hashCode;
+    }
 
     @Override
     public String toString() { return Tensor.toStandardString(this); }
@@ -96,15 +135,76 @@ public class MappedTensor implements Tensor {
         return Tensor.equals(this, ((Tensor)other));
     }
 
+    /** Returns the index of the cell having the given address, or -1 if there is no such cell */
+    private int indexOf(TensorAddress address) {
+        int rank = type.rank();
+        if (address.size() != rank) return -1;
+        int hash = address.hashCode();
+        for (int slot = slotOf(hash, slots.length); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+            int index = slots[slot] - 1;
+            if (hashes[index] == hash && hasAddress(index, address, rank))
+                return index;
+        }
+        return -1;
+    }
+
+    private boolean hasAddress(int index, TensorAddress address, int rank) {
+        for (int i = 0; i < rank; i++)
+            if ( ! labels[labelIds[index * rank + i]].equals(address.label(i)))
+                return false;
+        return true;
+    }
+
+    private TensorAddress address(int index) {
+        int rank = type.rank();
+        String[] addressLabels = new String[rank];
+        for (int i = 0; i < rank; i++)
+            addressLabels[i] = labels[labelIds[index * rank + i]];
+        return TensorAddress.of(addressLabels);
+    }
+
+    private static int slotOf(int hash, int slotCount) {
+        return (hash ^ (hash >>> 16)) & (slotCount - 1);
+    }
+
+    /** Inserts the cell at the given index into the slots of this. Only used while building. */
+    private void insert(int index) {
+        int rank = type.rank();
+        int slot = slotOf(hashes[index], slots.length);
+        for (; slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+            int other = slots[slot] - 1;
+            if (hashes[other] == hashes[index] && hasSameAddress(index, other, rank))
+                throw new IllegalArgumentException("Multiple entries with same key: " + address(index).toString(type));
+        }
+        slots[slot] = index + 1;
+    }
+
+    private boolean hasSameAddress(int index, int other, int rank) {
+        for (int i = 0; i < rank; i++)
+            if (labelIds[index * rank + i] != labelIds[other * rank + i])
+                return false;
+        return true;
+    }
+
     public static class Builder implements Tensor.Builder {
 
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private final int rank;
+
+        private final Map<String, Integer> labelIds = new HashMap<>();
+        private final List<String> labels = new ArrayList<>();
+
+        private int size = 0;
+        private int[] cellLabelIds;
+        private int[] hashes = new int[16];
+        private double[] values = new double[16];
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
         private Builder(TensorType type) {
             this.type = type;
+            this.rank = type.rank();
+            this.cellLabelIds = new int[16 * rank];
         }
 
         public CellBuilder cell() {
@@ -121,8 +221,12 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
-            return this;
+            if (address.size() != rank)
+                throw new IllegalArgumentException(address + " does not have a label for each dimension of " + type);
+            ensureCapacity();
+            for (int i = 0; i < rank; i++)
+                cellLabelIds[size * rank + i] = labelIdOf(address.label(i));
+            return add(address.hashCode(), value);
         }
 
         @Override
@@ -132,32 +236,108 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
+            return cell(TensorAddress.of(labels), value);
+        }
+
+        /**
+         * Adds a cell without creating an address object for it.
+         * This is the most efficient way to add cells when decoding tensors.
+         *
+         * @param labels the label of each dimension of the cell, in the order of the dimensions of the type.
+         *               This array is not retained by this builder and may be reused by the caller.
+         * @param value the value of the cell
+         * @return this for convenience
+         */
+        public Builder cell(String[] labels, double value) {
+            if (labels.length != rank)
+                throw new IllegalArgumentException("Expected " + rank + " labels for " + type + " but got " +
+                                                   Arrays.toString(labels));
+            ensureCapacity();
+            int hash = 1;
+            for (int i = 0; i < rank; i++) {
+                cellLabelIds[size * rank + i] = labelIdOf(labels[i]);
+                hash = 31 * hash + labels[i].hashCode(); // as in TensorAddress
+            }
+            return add(hash, value);
+        }
+
+        private Builder add(int hash, double value) {
+            hashes[size] = hash;
+            values[size] = value;
+            size++;
             return this;
         }
 
+        private int labelIdOf(String label) {
+            if (label == null)
+                throw new IllegalArgumentException("Labels of " + type + " can not be null");
+            Integer labelId = labelIds.get(label);
+            if (labelId == null) {
+                labelId = labels.size();
+                labelIds.put(label, labelId);
+                labels.add(label);
+            }
+            return labelId;
+        }
+
+        private void ensureCapacity() {
+            if (size < values.length) return;
+            int capacity = values.length * 2;
+            cellLabelIds = Arrays.copyOf(cellLabelIds, capacity * rank);
+            hashes = Arrays.copyOf(hashes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            MappedTensor tensor = new MappedTensor(type,
+                                                   labels.toArray(new String[0]),
+                                                   Arrays.copyOf(cellLabelIds, size * rank),
+                                                   Arrays.copyOf(hashes, size),
+                                                   Arrays.copyOf(values, size),
+                                                   new int[slotCountFor(size)]);
+            for (int i = 0; i < size; i++)
+                tensor.insert(i);
+            return tensor;
+        }
+
+        private static int slotCountFor(int size) {
+            int slotCount = 2;
+            while (slotCount < size * 2)
+                slotCount <<= 1;
+            return slotCount;
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
+    private class CellIterator implements Iterator<Cell> {
 
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
+        private int index = 0;
 
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
+        @Override
+        public boolean hasNext() { return index < values.length; }
+
+        @Override
+        public Cell next() {
+            if ( ! hasNext()) throw new NoSuchElementException("No more cells in " + MappedTensor.this);
+            Cell cell = new Cell(address(index), values[index]);
+            index++;
+            return cell;
         }
 
+    }
+
+    private class ValueIterator implements Iterator<Double> {
+
+        private int index = 0;
+
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public boolean hasNext() { return index < values.length; }
 
         @Override
-        public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
+        public Double next() {
+            if ( ! hasNext()) throw new NoSuchElementException("No more values in " + MappedTensor.this);
+            return values[index++];
         }
 
     }
@@ -198,11 +198,16 @@ public abstract class TensorAddress implements Comparable<TensorAddress> {
         }
 
         public TensorAddress build() {
+            return TensorAddress.of(labels());
+        }
+
+        /** Returns the labels of this without copying them, verifying that all dimensions have a label */
+        String[] labels() {
             for (int i = 0; i < labels.length; i++)
                 if (labels[i] == null)
                     throw new IllegalArgumentException("Missing a value for dimension " +
                                                        type.dimensions().get(i).name() + " for " + type);
-            return TensorAddress.of(labels);
+            return labels;
         }
 
         private void requireIdentifier(String s, String parameterName) {
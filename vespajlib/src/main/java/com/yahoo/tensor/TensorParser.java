@@ -166,21 +166,25 @@ class TensorParser {
                     throw new IllegalArgumentException("A tensor string must end by '}'");
             }
 
-            TensorAddress address = addressBuilder.build();
             TensorType.Value cellValueType = builder.type().valueType();
             String cellValueString = s.substring(index, valueEnd).trim();
+            double value;
             try {
                 if (cellValueType == TensorType.Value.DOUBLE)
-                    builder.cell(address, Double.parseDouble(cellValueString));
+                    value = Double.parseDouble(cellValueString);
                 else if (cellValueType == TensorType.Value.FLOAT)
-                    builder.cell(address, Float.parseFloat(cellValueString));
+                    value = Float.parseFloat(cellValueString);
                 else
                     throw new IllegalArgumentException(cellValueType + " is not supported");
             }
             catch (NumberFormatException e) {
-                throw new IllegalArgumentException("At " + address.toString(builder.type()) + ": '" +
+                throw new IllegalArgumentException("At " + addressBuilder.build().toString(builder.type()) + ": '" +
                                                    cellValueString + "' is not a valid " + cellValueType);
             }
+            if (builder instanceof MappedTensor.Builder) // avoid creating an address object
+                ((MappedTensor.Builder)builder).cell(addressBuilder.labels(), value);
+            else
+                builder.cell(addressBuilder.build(), value);
 
             index = valueEnd+1;
             index = skipSpace(index, s);
@@ -13,4 +13,11 @@ public interface EvaluationContext<NAMETYPE extends TypeContext.Name> extends Ty
     /** Returns the tensor bound to this name, or null if none */
     Tensor getTensor(String name);
 
+    /**
+     * Returns the minimal number of cells in the result of a dense tensor operation for it to be
+     * evaluated in parallel using the common fork-join pool.
+     * This default implementation returns Long.MAX_VALUE, i.e always evaluates in the calling thread.
+     */
+    default long parallelEvaluationThreshold() { return Long.MAX_VALUE; }
+
 }
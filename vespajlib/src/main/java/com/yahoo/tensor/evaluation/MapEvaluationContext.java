@@ -13,8 +13,13 @@ public class MapEvaluationContext implements EvaluationContext<TypeContext.Name>
 
     private final java.util.Map<String, Tensor> bindings = new HashMap<>();
 
+    private long parallelEvaluationThreshold = Long.MAX_VALUE;
+
     public void put(String name, Tensor tensor) { bindings.put(name, tensor); }
 
+    /** Sets the minimal number of cells in a dense result for it to be evaluated in parallel */
+    public void setParallelEvaluationThreshold(long cellCount) { this.parallelEvaluationThreshold = cellCount; }
+
     @Override
     public TensorType getType(String name) {
         return getType(new Name(name));
@@ -30,4 +35,7 @@ public class MapEvaluationContext implements EvaluationContext<TypeContext.Name>
     @Override
     public Tensor getTensor(String name) { return bindings.get(name); }
 
+    @Override
+    public long parallelEvaluationThreshold() { return parallelEvaluationThreshold; }
+
 }
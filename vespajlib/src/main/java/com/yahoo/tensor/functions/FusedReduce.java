@@ -0,0 +1,327 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.DimensionSizes;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.EvaluationContext;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * An optimization for tensor expressions where a reduce is applied to a tree of element-wise
+ * map and join functions. Evaluating this as one operation avoids creating an intermediate tensor
+ * for each map and join, as the value of each cell of the joined space is computed directly from
+ * the cell values of the arguments of the tree, and immediately aggregated.
+ *
+ * This generalizes {@link ReduceJoin} (without its special handling of vector and matrix products),
+ * to any number of nested maps and joins.
+ * The fused evaluation is done when all arguments of the tree are indexed tensors.
+ * Otherwise this is evaluated as the reduce of the tree.
+ * Note that intermediate values are not rounded to the value type of the intermediate tensors
+ * when the arguments are float tensors.
+ *
+ * @author agent
+ */
+public class FusedReduce extends CompositeTensorFunction {
+
+    /** The element-wise tree of maps and joins which is reduced */
+    private final TensorFunction argument;
+    private final Reduce.Aggregator aggregator;
+    private final List<String> dimensions;
+
+    /** The arguments of the element-wise tree, in the order they are encountered, without duplicates */
+    private final List<TensorFunction> leaves;
+
+    /** The computation of the value of a cell from the cell values of the leaves */
+    private final CellFunction cellFunction;
+
+    public FusedReduce(Reduce reduce) {
+        this(reduce.argument(), reduce.aggregator(), reduce.dimensions());
+    }
+
+    /**
+     * Creates a fused reduce.
+     *
+     * @param argument the tree of element-wise functions to reduce. Maps and joins in this tree are fused
+     *                 into this function, while any other function is an argument which is evaluated separately
+     * @param aggregator the aggregator function to use
+     * @param dimensions the list of dimensions to remove. If an empty list is given, all dimensions are reduced
+     */
+    public FusedReduce(TensorFunction argument, Reduce.Aggregator aggregator, List<String> dimensions) {
+        this.argument = argument;
+        this.aggregator = aggregator;
+        this.dimensions = ImmutableList.copyOf(dimensions);
+        List<TensorFunction> leaves = new ArrayList<>();
+        this.cellFunction = compile(argument, leaves);
+        this.leaves = ImmutableList.copyOf(leaves);
+    }
+
+    /**
+     * Returns this function as a fused reduce if the argument of the given reduce contains any maps or joins,
+     * and empty otherwise
+     */
+    public static Optional<FusedReduce> of(Reduce reduce) {
+        if ( ! isElementwise(reduce.argument())) return Optional.empty();
+        return Optional.of(new FusedReduce(reduce));
+    }
+
+    private static boolean isElementwise(TensorFunction function) {
+        return function instanceof Map || function instanceof Join;
+    }
+
+    /** Returns the arguments of the element-wise tree reduced by this */
+    @Override
+    public List<TensorFunction> arguments() { return leaves; }
+
+    @Override
+    public TensorFunction withArguments(List<TensorFunction> arguments) {
+        if ( arguments.size() != leaves.size())
+            throw new IllegalArgumentException("This fused reduce must have " + leaves.size() + " arguments, got " +
+                                               arguments.size());
+        return new FusedReduce(replaceLeaves(argument, arguments), aggregator, dimensions);
+    }
+
+    @Override
+    public PrimitiveTensorFunction toPrimitive() {
+        return new Reduce(argument.toPrimitive(), aggregator, dimensions);
+    }
+
+    @Override
+    public final <NAMETYPE extends TypeContext.Name> Tensor evaluate(EvaluationContext<NAMETYPE> context) {
+        Tensor[] arguments = new Tensor[leaves.size()];
+        for (int i = 0; i < arguments.length; i++)
+            arguments[i] = leaves.get(i).evaluate(context);
+
+        if (canOptimize(arguments))
+            return evaluate(toIndexed(arguments));
+
+        // Evaluate unfused, without evaluating the arguments again
+        List<TensorFunction> constantArguments = new ArrayList<>(arguments.length);
+        for (Tensor evaluatedArgument : arguments)
+            constantArguments.add(new ConstantTensor(evaluatedArgument));
+        return new Reduce(replaceLeaves(argument, constantArguments), aggregator, dimensions).toPrimitive().evaluate(context);
+    }
+
+    private boolean canOptimize(Tensor[] arguments) {
+        Set<String> joinedDimensions = new HashSet<>();
+        for (Tensor argument : arguments) {
+            if ( ! (argument instanceof IndexedTensor)) return false;
+            if (argument.size() == 0) return false;
+            joinedDimensions.addAll(argument.type().dimensionNames());
+        }
+        return joinedDimensions.containsAll(dimensions);
+    }
+
+    private IndexedTensor[] toIndexed(Tensor[] arguments) {
+        IndexedTensor[] indexedArguments = new IndexedTensor[arguments.length];
+        for (int i = 0; i < arguments.length; i++)
+            indexedArguments[i] = (IndexedTensor)arguments[i];
+        return indexedArguments;
+    }
+
+    private Tensor evaluate(IndexedTensor[] arguments) {
+        TensorType joinedType = joinedType(arguments);
+        TensorType reducedType = Reduce.outputType(joinedType, dimensions);
+
+        // Split the dimensions of the joined space into those we keep and those we reduce,
+        // and find the size of each and the stride of each in every argument
+        int keptRank = reducedType.dimensions().size();
+        int reducedRank = joinedType.dimensions().size() - keptRank;
+        long[] keptSizes = new long[keptRank];
+        long[][] keptStrides = new long[keptRank][];
+        long[] reducedSizes = new long[reducedRank];
+        long[][] reducedStrides = new long[reducedRank][];
+        long[][] argumentStrides = new long[arguments.length][];
+        for (int i = 0; i < arguments.length; i++)
+            argumentStrides[i] = Join.stridesIn(joinedType, arguments[i]);
+        DimensionSizes.Builder reducedSizesBuilder = new DimensionSizes.Builder(keptRank);
+        for (int d = 0, kept = 0, reduced = 0; d < joinedType.dimensions().size(); d++) {
+            long size = joinedSize(joinedType.dimensions().get(d).name(), arguments);
+            long[] strides = new long[arguments.length];
+            for (int i = 0; i < arguments.length; i++)
+                strides[i] = argumentStrides[i][d];
+            if (reducedType.dimensionNames().contains(joinedType.dimensions().get(d).name())) {
+                reducedSizesBuilder.set(kept, size);
+                keptSizes[kept] = size;
+                keptStrides[kept++] = strides;
+            }
+            else {
+                reducedSizes[reduced] = size;
+                reducedStrides[reduced++] = strides;
+            }
+        }
+
+        DimensionSizes reducedTensorSizes = reducedSizesBuilder.build();
+        double[] values = new double[(int)reducedTensorSizes.totalSize()];
+        Reduce.ValueAggregator valueAggregator = Reduce.ValueAggregator.ofType(aggregator);
+        long[] keptIndexes = new long[keptRank];
+        long[] reducedIndexes = new long[reducedRank];
+        long[] keptOffsets = new long[arguments.length];
+        long[] offsets = new long[arguments.length];
+        for (int valueIndex = 0; valueIndex < values.length; valueIndex++) {
+            valueAggregator.reset();
+            System.arraycopy(keptOffsets, 0, offsets, 0, offsets.length);
+            do {
+                valueAggregator.aggregate(cellFunction.apply(arguments, offsets));
+            } while (next(reducedIndexes, reducedSizes, reducedStrides, offsets));
+            values[valueIndex] = valueAggregator.aggregatedValue();
+            next(keptIndexes, keptSizes, keptStrides, keptOffsets);
+        }
+        return IndexedTensor.Builder.of(reducedType, reducedTensorSizes, values).build();
+    }
+
+    /**
+     * Increments the given indexes to the next in the space of the given sizes, and adjusts the given offsets
+     * of each argument by their stride in each dimension accordingly.
+     *
+     * @return true if the indexes were incremented, false if they wrapped around to all zeroes
+     */
+    private static boolean next(long[] indexes, long[] sizes, long[][] strides, long[] offsets) {
+        for (int d = indexes.length - 1; d >= 0; d--) {
+            for (int i = 0; i < offsets.length; i++)
+                offsets[i] += strides[d][i];
+            if (++indexes[d] < sizes[d]) return true;
+            for (int i = 0; i < offsets.length; i++)
+                offsets[i] -= strides[d][i] * sizes[d];
+            indexes[d] = 0;
+        }
+        return false;
+    }
+
+    private TensorType joinedType(IndexedTensor[] arguments) {
+        TensorType[] types = new TensorType[arguments.length];
+        for (int i = 0; i < arguments.length; i++)
+            types[i] = arguments[i].type();
+        return new TensorType.Builder(types).build();
+    }
+
+    /** Returns the size of the given dimension in the joined space, which is the smallest size in any argument */
+    private long joinedSize(String dimension, IndexedTensor[] arguments) {
+        long size = Long.MAX_VALUE;
+        for (IndexedTensor argument : arguments) {
+            Optional<Integer> index = argument.type().indexOfDimension(dimension);
+            if (index.isPresent())
+                size = Math.min(size, argument.dimensionSizes().size(index.get()));
+        }
+        return size;
+    }
+
+    /** Returns a cell function computing the given function, and adds the leaves of the function to the given list */
+    private static CellFunction compile(TensorFunction function, List<TensorFunction> leaves) {
+        if (function instanceof Map) {
+            Map map = (Map)function;
+            return new MapCellFunction(compile(map.argument(), leaves), map.mapper());
+        }
+        else if (function instanceof Join) {
+            Join join = (Join)function;
+            return new JoinCellFunction(compile(join.arguments().get(0), leaves),
+                                        compile(join.arguments().get(1), leaves),
+                                        join.combinator());
+        }
+        else {
+            int index = indexOf(function, leaves);
+            if (index < 0) {
+                index = leaves.size();
+                leaves.add(function);
+            }
+            return new ArgumentCellFunction(index);
+        }
+    }
+
+    /** Returns the given function with the leaves of this replaced by the given arguments */
+    private TensorFunction replaceLeaves(TensorFunction function, List<TensorFunction> arguments) {
+        if (function instanceof Map) {
+            Map map = (Map)function;
+            return new Map(replaceLeaves(map.argument(), arguments), map.mapper());
+        }
+        else if (function instanceof Join) {
+            Join join = (Join)function;
+            return new Join(replaceLeaves(join.arguments().get(0), arguments),
+                            replaceLeaves(join.arguments().get(1), arguments),
+                            join.combinator());
+        }
+        else {
+            return arguments.get(indexOf(function, leaves));
+        }
+    }
+
+    /** Returns the index of the given instance in the given list, or -1 if it is not present */
+    private static int indexOf(TensorFunction function, List<TensorFunction> functions) {
+        for (int i = 0; i < functions.size(); i++)
+            if (functions.get(i) == function) return i;
+        return -1;
+    }
+
+    @Override
+    public String toString(ToStringContext context) {
+        return "reduce(" + argument.toString(context) + ", " + aggregator + Reduce.commaSeparated(dimensions) + ")";
+    }
+
+    /** Computes the value of a cell in the joined space from the values of the arguments at the given offsets */
+    private static abstract class CellFunction {
+
+        abstract double apply(IndexedTensor[] arguments, long[] offsets);
+
+    }
+
+    private static class ArgumentCellFunction extends CellFunction {
+
+        private final int argumentIndex;
+
+        ArgumentCellFunction(int argumentIndex) {
+            this.argumentIndex = argumentIndex;
+        }
+
+        @Override
+        double apply(IndexedTensor[] arguments, long[] offsets) {
+            return arguments[argumentIndex].get(offsets[argumentIndex]);
+        }
+
+    }
+
+    private static class MapCellFunction extends CellFunction {
+
+        private final CellFunction argument;
+        private final DoubleUnaryOperator mapper;
+
+        MapCellFunction(CellFunction argument, DoubleUnaryOperator mapper) {
+            this.argument = argument;
+            this.mapper = mapper;
+        }
+
+        @Override
+        double apply(IndexedTensor[] arguments, long[] offsets) {
+            return mapper.applyAsDouble(argument.apply(arguments, offsets));
+        }
+
+    }
+
+    private static class JoinCellFunction extends CellFunction {
+
+        private final CellFunction argumentA, argumentB;
+        private final DoubleBinaryOperator combinator;
+
+        JoinCellFunction(CellFunction argumentA, CellFunction argumentB, DoubleBinaryOperator combinator) {
+            this.argumentA = argumentA;
+            this.argumentB = argumentB;
+            this.combinator = combinator;
+        }
+
+        @Override
+        double apply(IndexedTensor[] arguments, long[] offsets) {
+            return combinator.applyAsDouble(argumentA.apply(arguments, offsets), argumentB.apply(arguments, offsets));
+        }
+
+    }
+
+}
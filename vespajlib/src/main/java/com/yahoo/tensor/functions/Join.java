@@ -2,10 +2,8 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Sets;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
-import com.yahoo.tensor.PartialAddress;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
@@ -15,13 +13,11 @@ import com.yahoo.tensor.evaluation.TypeContext;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.DoubleBinaryOperator;
 
 /**
@@ -82,36 +78,113 @@ public class Join extends PrimitiveTensorFunction {
         Tensor a = argumentA.evaluate(context);
         Tensor b = argumentB.evaluate(context);
         TensorType joinedType = new TensorType.Builder(a.type(), b.type()).build();
-        return evaluate(a, b, joinedType, combinator);
+        return evaluate(a, b, joinedType, combinator, context.parallelEvaluationThreshold());
     }
 
     static Tensor evaluate(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
+        return evaluate(a, b, joinedType, combinator, Long.MAX_VALUE);
+    }
+
+    /**
+     * Joins two tensors
+     *
+     * @param parallelThreshold the minimal number of cells in a dense result for it to be computed in parallel
+     */
+    static Tensor evaluate(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator,
+                           long parallelThreshold) {
         // Choose join algorithm
-        if (hasSingleIndexedDimension(a) && hasSingleIndexedDimension(b) && a.type().dimensions().get(0).name().equals(b.type().dimensions().get(0).name()))
-            return indexedVectorJoin((IndexedTensor)a, (IndexedTensor)b, joinedType, combinator);
+        if (a instanceof IndexedTensor && b instanceof IndexedTensor)
+            return indexedJoin((IndexedTensor)a, (IndexedTensor)b, joinedType, combinator, parallelThreshold);
         else if (joinedType.dimensions().size() == a.type().dimensions().size() && joinedType.dimensions().size() == b.type().dimensions().size())
             return singleSpaceJoin(a, b, joinedType, combinator);
         else if (a.type().dimensions().containsAll(b.type().dimensions()))
-            return subspaceJoin(b, a, joinedType, true, combinator);
+            return generalSubspaceJoin(b, a, joinedType, true, combinator);
         else if (b.type().dimensions().containsAll(a.type().dimensions()))
-            return subspaceJoin(a, b, joinedType, false, combinator);
+            return generalSubspaceJoin(a, b, joinedType, false, combinator);
         else
-            return generalJoin(a, b, joinedType, combinator);
+            return mappedHashJoin(a, b, joinedType, combinator);
+    }
 
+    /**
+     * Joins two indexed tensors by walking the joined space in the <i>standard value order</i> while
+     * tracking the corresponding value index in each argument using strides, such that no cell addresses
+     * or iterators are created. Large results are computed in parallel over ranges of the outermost dimension.
+     */
+    private static Tensor indexedJoin(IndexedTensor a, IndexedTensor b, TensorType joinedType,
+                                      DoubleBinaryOperator combinator, long parallelThreshold) {
+        DimensionSizes joinedSize = joinedSize(joinedType, a, b);
+        double[] values = new double[(int)joinedSize.totalSize()];
+        if (values.length > 0) {
+            long[] aStrides = stridesIn(joinedType, a);
+            long[] bStrides = stridesIn(joinedType, b);
+            long outerSize = joinedSize.dimensions() == 0 ? 1 : joinedSize.size(0);
+            ParallelEvaluation.evaluate(outerSize, values.length, parallelThreshold,
+                                        (start, end) -> indexedJoin(a, b, combinator, joinedSize, aStrides, bStrides,
+                                                                    values, start, end));
+        }
+        return IndexedTensor.Builder.of(joinedType, joinedSize, values).build();
     }
 
-    private static boolean hasSingleIndexedDimension(Tensor tensor) {
-        return tensor.type().dimensions().size() == 1 && tensor.type().dimensions().get(0).isIndexed();
+    /** Computes the joined values having an index in the range [start, end) in the outermost dimension */
+    private static void indexedJoin(IndexedTensor a, IndexedTensor b, DoubleBinaryOperator combinator,
+                                    DimensionSizes joinedSize, long[] aStrides, long[] bStrides, double[] values,
+                                    long start, long end) {
+        int rank = joinedSize.dimensions();
+        if (rank < 2) { // the outermost dimension is also the innermost
+            long aIndex = rank == 0 ? 0 : start * aStrides[0];
+            long bIndex = rank == 0 ? 0 : start * bStrides[0];
+            long aStride = rank == 0 ? 0 : aStrides[0];
+            long bStride = rank == 0 ? 0 : bStrides[0];
+            for (long i = start; i < end; i++, aIndex += aStride, bIndex += bStride)
+                values[(int)i] = combinator.applyAsDouble(a.get(aIndex), b.get(bIndex));
+            return;
+        }
+
+        // The innermost dimension is iterated in a tight loop, the rest by incrementing indexes
+        long innerSize = joinedSize.size(rank - 1);
+        long aInnerStride = aStrides[rank - 1];
+        long bInnerStride = bStrides[rank - 1];
+        long[] outerIndexes = new long[rank - 1];
+        outerIndexes[0] = start;
+        long aOffset = start * aStrides[0];
+        long bOffset = start * bStrides[0];
+        long cellsPerOuterIndex = joinedSize.totalSize() / joinedSize.size(0);
+        for (int valueIndex = (int)(start * cellsPerOuterIndex); valueIndex < end * cellsPerOuterIndex; ) {
+            long aIndex = aOffset;
+            long bIndex = bOffset;
+            for (long i = 0; i < innerSize; i++, aIndex += aInnerStride, bIndex += bInnerStride)
+                values[valueIndex++] = combinator.applyAsDouble(a.get(aIndex), b.get(bIndex));
+
+            for (int d = outerIndexes.length - 1; d >= 0; d--) { // next outer address
+                aOffset += aStrides[d];
+                bOffset += bStrides[d];
+                if (++outerIndexes[d] < joinedSize.size(d)) break;
+                aOffset -= aStrides[d] * outerIndexes[d];
+                bOffset -= bStrides[d] * outerIndexes[d];
+                outerIndexes[d] = 0;
+            }
+        }
     }
 
-    private static Tensor indexedVectorJoin(IndexedTensor a, IndexedTensor b, TensorType type, DoubleBinaryOperator combinator) {
-        long joinedRank = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
-        Iterator<Double> aIterator = a.valueIterator();
-        Iterator<Double> bIterator = b.valueIterator();
-        IndexedTensor.Builder builder = IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build());
-        for (int i = 0; i < joinedRank; i++)
-            builder.cell(combinator.applyAsDouble(aIterator.next(), bIterator.next()), i);
-        return builder.build();
+    /**
+     * Returns the distance between consecutive values in the given tensor along each dimension of the given type,
+     * in the <i>standard value order</i> of the tensor. Dimensions of the type which are not present in the tensor
+     * have stride 0.
+     */
+    static long[] stridesIn(TensorType type, IndexedTensor tensor) {
+        DimensionSizes sizes = tensor.dimensionSizes();
+        long[] tensorStrides = new long[sizes.dimensions()];
+        long stride = 1;
+        for (int i = tensorStrides.length - 1; i >= 0; i--) {
+            tensorStrides[i] = stride;
+            stride *= sizes.size(i);
+        }
+
+        long[] strides = new long[type.dimensions().size()];
+        int[] toTensorIndexes = mapIndexes(type, tensor.type());
+        for (int i = 0; i < strides.length; i++)
+            strides[i] = toTensorIndexes[i] < 0 ? 0 : tensorStrides[toTensorIndexes[i]];
+        return strides;
     }
 
     /** When both tensors have the same dimensions, at most one cell matches a cell in the other tensor */
@@ -126,54 +199,6 @@ public class Join extends PrimitiveTensorFunction {
         return builder.build();
     }
 
-    /** Join a tensor into a superspace */
-    private static Tensor subspaceJoin(Tensor subspace, Tensor superspace, TensorType joinedType, boolean reversedArgumentOrder, DoubleBinaryOperator combinator) {
-        if (subspace instanceof IndexedTensor && superspace instanceof IndexedTensor)
-            return indexedSubspaceJoin((IndexedTensor) subspace, (IndexedTensor) superspace, joinedType, reversedArgumentOrder, combinator);
-        else
-            return generalSubspaceJoin(subspace, superspace, joinedType, reversedArgumentOrder, combinator);
-    }
-
-    private static Tensor indexedSubspaceJoin(IndexedTensor subspace, IndexedTensor superspace, TensorType joinedType, boolean reversedArgumentOrder, DoubleBinaryOperator combinator) {
-        if (subspace.size() == 0 || superspace.size() == 0) // special case empty here to avoid doing it when finding sizes
-            return Tensor.Builder.of(joinedType, new DimensionSizes.Builder(joinedType.dimensions().size()).build()).build();
-
-        DimensionSizes joinedSizes = joinedSize(joinedType, subspace, superspace);
-
-        IndexedTensor.Builder builder = (IndexedTensor.Builder)Tensor.Builder.of(joinedType, joinedSizes);
-
-        // Find dimensions which are only in the supertype
-        Set<String> superDimensionNames = new HashSet<>(superspace.type().dimensionNames());
-        superDimensionNames.removeAll(subspace.type().dimensionNames());
-
-        for (Iterator<IndexedTensor.SubspaceIterator> i = superspace.subspaceIterator(superDimensionNames, joinedSizes); i.hasNext(); ) {
-            IndexedTensor.SubspaceIterator subspaceInSuper = i.next();
-            joinSubspaces(subspace.valueIterator(), subspace.size(),
-                    subspaceInSuper, subspaceInSuper.size(),
-                    reversedArgumentOrder, builder, combinator);
-        }
-
-        return builder.build();
-    }
-
-    private static void joinSubspaces(Iterator<Double> subspace, long subspaceSize,
-                                      Iterator<Tensor.Cell> superspace, long superspaceSize,
-                                      boolean reversedArgumentOrder, IndexedTensor.Builder builder,
-                                      DoubleBinaryOperator combinator) {
-        long joinedLength = Math.min(subspaceSize, superspaceSize);
-        if (reversedArgumentOrder) {
-            for (int i = 0; i < joinedLength; i++) {
-                Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(supercell.getValue(), subspace.next()));
-            }
-        } else {
-            for (int i = 0; i < joinedLength; i++) {
-                Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(subspace.next(), supercell.getValue()));
-            }
-        }
-    }
-
     private static DimensionSizes joinedSize(TensorType joinedType, IndexedTensor a, IndexedTensor b) {
         DimensionSizes.Builder builder = new DimensionSizes.Builder(joinedType.dimensions().size());
         for (int i = 0; i < builder.dimensions(); i++) {
@@ -220,69 +245,6 @@ public class Join extends PrimitiveTensorFunction {
         return TensorAddress.of(subspaceLabels);
     }
 
-    /** Slow join which works for any two tensors */
-    private static Tensor generalJoin(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
-        if (a instanceof IndexedTensor && b instanceof IndexedTensor)
-            return indexedGeneralJoin((IndexedTensor) a, (IndexedTensor) b, joinedType, combinator);
-        else
-            return mappedHashJoin(a, b, joinedType, combinator);
-    }
-
-    private static Tensor indexedGeneralJoin(IndexedTensor a, IndexedTensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
-        DimensionSizes joinedSize = joinedSize(joinedType, a, b);
-        Tensor.Builder builder = Tensor.Builder.of(joinedType, joinedSize);
-        int[] aToIndexes = mapIndexes(a.type(), joinedType);
-        int[] bToIndexes = mapIndexes(b.type(), joinedType);
-        joinTo(a, b, joinedType, joinedSize, aToIndexes, bToIndexes, builder, combinator);
-        return builder.build();
-    }
-
-    private static void joinTo(IndexedTensor a, IndexedTensor b, TensorType joinedType, DimensionSizes joinedSize,
-                               int[] aToIndexes, int[] bToIndexes, Tensor.Builder builder,
-                               DoubleBinaryOperator combinator) {
-        Set<String> sharedDimensions = Sets.intersection(a.type().dimensionNames(), b.type().dimensionNames());
-        Set<String> dimensionsOnlyInA = Sets.difference(a.type().dimensionNames(), b.type().dimensionNames());
-
-        DimensionSizes aIterateSize = joinedSizeOf(a.type(), joinedType, joinedSize);
-        DimensionSizes bIterateSize = joinedSizeOf(b.type(), joinedType, joinedSize);
-
-        // for each combination of dimensions only in a
-        for (Iterator<IndexedTensor.SubspaceIterator> ia = a.subspaceIterator(dimensionsOnlyInA, aIterateSize); ia.hasNext(); ) {
-            IndexedTensor.SubspaceIterator aSubspace = ia.next();
-            // for each combination of dimensions in a which is also in b
-            while (aSubspace.hasNext()) {
-                Tensor.Cell aCell = aSubspace.next();
-                PartialAddress matchingBCells = partialAddress(a.type(), aSubspace.address(), sharedDimensions);
-                // for each matching combination of dimensions ony in b
-                for (IndexedTensor.SubspaceIterator bSubspace = b.cellIterator(matchingBCells, bIterateSize); bSubspace.hasNext(); ) {
-                    Tensor.Cell bCell = bSubspace.next();
-                    TensorAddress joinedAddress = joinAddresses(aCell.getKey(), aToIndexes, bCell.getKey(), bToIndexes, joinedType);
-                    double joinedValue = combinator.applyAsDouble(aCell.getValue(), bCell.getValue());
-                    builder.cell(joinedAddress, joinedValue);
-                }
-            }
-        }
-    }
-
-    private static PartialAddress partialAddress(TensorType addressType, TensorAddress address, Set<String> retainDimensions) {
-        PartialAddress.Builder builder = new PartialAddress.Builder(retainDimensions.size());
-        for (int i = 0; i < addressType.dimensions().size(); i++)
-            if (retainDimensions.contains(addressType.dimensions().get(i).name()))
-                builder.add(addressType.dimensions().get(i).name(), address.numericLabel(i));
-        return builder.build();
-    }
-
-    /** Returns the sizes from the joined sizes which are present in the type argument */
-    private static DimensionSizes joinedSizeOf(TensorType type, TensorType joinedType, DimensionSizes joinedSizes) {
-        DimensionSizes.Builder builder = new DimensionSizes.Builder(type.dimensions().size());
-        int dimensionIndex = 0;
-        for (int i = 0; i < joinedType.dimensions().size(); i++) {
-            if (type.dimensionNames().contains(joinedType.dimensions().get(i).name()))
-                builder.set(dimensionIndex++, joinedSizes.size(i));
-        }
-        return builder.build();
-    }
-
     private static Tensor mappedGeneralJoin(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
         int[] aToIndexes = mapIndexes(a.type(), joinedType);
         int[] bToIndexes = mapIndexes(b.type(), joinedType);
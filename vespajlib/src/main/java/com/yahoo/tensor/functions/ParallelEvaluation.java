@@ -0,0 +1,71 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the evaluation of a dense tensor function over the threads of the common fork-join pool
+ * by partitioning the outermost dimension of the output.
+ *
+ * @author agent
+ */
+class ParallelEvaluation {
+
+    /** The number of partitions to create per thread, to balance the load when some threads are busy */
+    private static final int partitionsPerThread = 4;
+
+    /** Evaluates the cells of a range [start, end) of the outermost dimension of some output */
+    interface RangeEvaluator {
+
+        void evaluate(long start, long end);
+
+    }
+
+    /**
+     * Evaluates the range [0, size) of the outermost output dimension by the given evaluator,
+     * in parallel if the output cell count is at least the given threshold, and in the calling thread otherwise.
+     *
+     * @param size the size of the outermost output dimension
+     * @param cellCount the total number of output cells
+     * @param threshold the minimal output cell count for evaluating in parallel
+     * @param evaluator the evaluator of a partition
+     */
+    static void evaluate(long size, long cellCount, long threshold, RangeEvaluator evaluator) {
+        if (cellCount < threshold || size < 2) {
+            evaluator.evaluate(0, size);
+            return;
+        }
+        long partitionSize = Math.max(1, size / ((long)ForkJoinPool.getCommonPoolParallelism() * partitionsPerThread));
+        ForkJoinPool.commonPool().invoke(new RangeTask(0, size, partitionSize, evaluator));
+    }
+
+    private static class RangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long start, end, partitionSize;
+        private final RangeEvaluator evaluator;
+
+        RangeTask(long start, long end, long partitionSize, RangeEvaluator evaluator) {
+            this.start = start;
+            this.end = end;
+            this.partitionSize = partitionSize;
+            this.evaluator = evaluator;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= partitionSize) {
+                evaluator.evaluate(start, end);
+            }
+            else {
+                long middle = start + (end - start) / 2;
+                invokeAll(new RangeTask(start, middle, partitionSize, evaluator),
+                          new RangeTask(middle, end, partitionSize, evaluator));
+            }
+        }
+
+    }
+
+}
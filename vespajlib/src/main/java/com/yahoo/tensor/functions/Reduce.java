@@ -2,6 +2,7 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -119,23 +120,35 @@ public class Reduce extends PrimitiveTensorFunction {
 
     @Override
     public <NAMETYPE extends TypeContext.Name> Tensor evaluate(EvaluationContext<NAMETYPE> context) {
-        return evaluate(this.argument.evaluate(context), dimensions, aggregator);
+        return evaluate(this.argument.evaluate(context), dimensions, aggregator, context.parallelEvaluationThreshold());
     }
 
     static Tensor evaluate(Tensor argument, List<String> dimensions, Aggregator aggregator) {
+        return evaluate(argument, dimensions, aggregator, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reduces a tensor
+     *
+     * @param parallelThreshold the minimal number of cells in a dense result for it to be computed in parallel
+     */
+    static Tensor evaluate(Tensor argument, List<String> dimensions, Aggregator aggregator, long parallelThreshold) {
         if ( ! dimensions.isEmpty() && ! argument.type().dimensionNames().containsAll(dimensions))
             throw new IllegalArgumentException("Cannot reduce " + argument + " over dimensions " +
                                                dimensions + ": Not all those dimensions are present in this tensor");
 
         // Special case: Reduce all
         if (dimensions.isEmpty() || dimensions.size() == argument.type().dimensions().size())
-            if (argument.type().dimensions().size() == 1 && argument instanceof IndexedTensor)
-                return reduceIndexedVector((IndexedTensor)argument, aggregator);
+            if (argument instanceof IndexedTensor)
+                return reduceAllIndexed((IndexedTensor)argument, aggregator);
             else
                 return reduceAllGeneral(argument, aggregator);
 
         TensorType reducedType = type(argument.type(), dimensions);
 
+        if (argument instanceof IndexedTensor && argument.size() > 0)
+            return reduceIndexed((IndexedTensor)argument, reducedType, dimensions, aggregator, parallelThreshold);
+
         // Reduce cells
         Map<TensorAddress, ValueAggregator> aggregatingCells = new HashMap<>();
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
@@ -172,13 +185,86 @@ public class Reduce extends PrimitiveTensorFunction {
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
 
-    private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
+    private static Tensor reduceAllIndexed(IndexedTensor argument, Aggregator aggregator) {
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
-        for (int i = 0; i < argument.dimensionSizes().size(0); i++)
+        for (long i = 0; i < argument.size(); i++)
             valueAggregator.aggregate(argument.get(i));
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
 
+    /**
+     * Reduces an indexed tensor by computing the value index of each cell using strides,
+     * such that no cell addresses or iterators are created.
+     * Large results are computed in parallel over ranges of the outermost dimension.
+     */
+    private static Tensor reduceIndexed(IndexedTensor argument, TensorType reducedType, List<String> dimensions,
+                                        Aggregator aggregator, long parallelThreshold) {
+        DimensionSizes argumentSizes = argument.dimensionSizes();
+        int reducedRank = argumentSizes.dimensions() - reducedType.dimensions().size();
+        long[] keptSizes = new long[reducedType.dimensions().size()];
+        long[] keptStrides = new long[keptSizes.length];
+        long[] reducedSizes = new long[reducedRank];
+        long[] reducedStrides = new long[reducedRank];
+        DimensionSizes.Builder reducedSizesBuilder = new DimensionSizes.Builder(keptSizes.length);
+        long stride = 1;
+        for (int i = argumentSizes.dimensions() - 1, kept = keptSizes.length - 1, reduced = reducedRank - 1; i >= 0; i--) {
+            if (dimensions.contains(argument.type().dimensions().get(i).name())) {
+                reducedSizes[reduced] = argumentSizes.size(i);
+                reducedStrides[reduced--] = stride;
+            }
+            else {
+                reducedSizesBuilder.set(kept, argumentSizes.size(i));
+                keptSizes[kept] = argumentSizes.size(i);
+                keptStrides[kept--] = stride;
+            }
+            stride *= argumentSizes.size(i);
+        }
+
+        DimensionSizes reducedTensorSizes = reducedSizesBuilder.build();
+        double[] values = new double[(int)reducedTensorSizes.totalSize()];
+        ParallelEvaluation.evaluate(keptSizes[0], values.length, parallelThreshold,
+                                    (start, end) -> reduceIndexed(argument, aggregator, keptSizes, keptStrides,
+                                                                  reducedSizes, reducedStrides, values, start, end));
+        return IndexedTensor.Builder.of(reducedType, reducedTensorSizes, values).build();
+    }
+
+    /** Computes the reduced values having an index in the range [start, end) in the outermost kept dimension */
+    private static void reduceIndexed(IndexedTensor argument, Aggregator aggregator,
+                                      long[] keptSizes, long[] keptStrides, long[] reducedSizes, long[] reducedStrides,
+                                      double[] values, long start, long end) {
+        ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
+        long[] keptIndexes = new long[keptSizes.length];
+        long[] reducedIndexes = new long[reducedSizes.length];
+        keptIndexes[0] = start;
+        long keptOffset = start * keptStrides[0];
+        long valuesPerOuterIndex = values.length / keptSizes[0];
+        for (int valueIndex = (int)(start * valuesPerOuterIndex); valueIndex < end * valuesPerOuterIndex; valueIndex++) {
+            valueAggregator.reset();
+            long offset = keptOffset;
+            do {
+                valueAggregator.aggregate(argument.get(offset));
+                offset = next(reducedIndexes, reducedSizes, reducedStrides, offset);
+            } while (offset != keptOffset);
+            values[valueIndex] = valueAggregator.aggregatedValue();
+            keptOffset = next(keptIndexes, keptSizes, keptStrides, keptOffset);
+        }
+    }
+
+    /**
+     * Increments the given indexes to the next in the space of the given sizes,
+     * and returns the value index given by adjusting the given offset by the given strides accordingly.
+     * Wraps around to all indexes 0 (and the start offset) after the last indexes.
+     */
+    private static long next(long[] indexes, long[] sizes, long[] strides, long offset) {
+        for (int i = indexes.length - 1; i >= 0; i--) {
+            offset += strides[i];
+            if (++indexes[i] < sizes[i]) return offset;
+            offset -= strides[i] * sizes[i];
+            indexes[i] = 0;
+        }
+        return offset;
+    }
+
     static abstract class ValueAggregator {
 
         static ValueAggregator ofType(Aggregator aggregator) {
@@ -76,7 +76,9 @@ public class ReduceJoin extends CompositeTensorFunction {
         if (canOptimize(a, b)) {
             return evaluate((IndexedTensor)a, (IndexedTensor)b, joinedType);
         }
-        return Reduce.evaluate(Join.evaluate(a, b, joinedType, combinator), dimensions, aggregator);
+        long parallelThreshold = context.parallelEvaluationThreshold();
+        return Reduce.evaluate(Join.evaluate(a, b, joinedType, combinator, parallelThreshold), dimensions, aggregator,
+                               parallelThreshold);
     }
 
     /**
@@ -7,6 +7,7 @@ import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -68,10 +69,35 @@ public class DenseBinaryFormat implements BinaryFormat {
 
     @Override
     public Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
-        TensorType type;
-        DimensionSizes sizes;
+        TensorType serializedType = decodeAndValidateType(optionalType, buffer);
+        DimensionSizes sizes = sizesFromType(serializedType);
+        Tensor.Builder builder = Tensor.Builder.of(optionalType.orElse(serializedType), sizes);
+        decodeCells(sizes, buffer, (IndexedTensor.BoundBuilder)builder);
+        return builder.build();
+    }
+
+    /**
+     * Decodes to a tensor which reads its cell values on demand from the given buffer instead of copying them.
+     * The buffer position is moved past the cells of the tensor, and the buffer content
+     * must not be changed while the returned tensor is in use.
+     */
+    Tensor decodeWithoutCopying(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        TensorType serializedType = decodeAndValidateType(optionalType, buffer);
+        DimensionSizes sizes = sizesFromType(serializedType);
+        long cellBytes = sizes.totalSize() * (serializationValueType == TensorType.Value.FLOAT ? Float.BYTES : Double.BYTES);
+        if (cellBytes > buffer.remaining())
+            throw new IllegalArgumentException("Expected " + cellBytes + " bytes of cell values for " + serializedType +
+                                               " but only " + buffer.remaining() + " bytes remain");
+        ByteBuffer cells = buffer.getByteBuffer().duplicate().order(buffer.order());
+        cells.limit(buffer.position() + (int)cellBytes);
+        buffer.position(buffer.position() + (int)cellBytes);
+        return IndexedTensor.fromBuffer(optionalType.orElse(serializedType), sizes, cells);
+    }
+
+    /** Decodes the serialized type and verifies that it is compatible with the given type, if any */
+    private TensorType decodeAndValidateType(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
         if (optionalType.isPresent()) {
-            type = optionalType.get();
+            TensorType type = optionalType.get();
             if (type.valueType() != this.serializationValueType) {
                 throw new IllegalArgumentException("Tensor value type mismatch. Value type " + type.valueType() +
                                                    " is not " + this.serializationValueType);
@@ -80,15 +106,11 @@ public class DenseBinaryFormat implements BinaryFormat {
             if ( ! serializedType.isAssignableTo(type))
                 throw new IllegalArgumentException("Type/instance mismatch: A tensor of type " + serializedType +
                                                    " cannot be assigned to type " + type);
-            sizes = sizesFromType(serializedType);
+            return serializedType;
         }
         else {
-            type = decodeType(buffer);
-            sizes = sizesFromType(type);
+            return decodeType(buffer);
         }
-        Tensor.Builder builder = Tensor.Builder.of(type, sizes);
-        decodeCells(sizes, buffer, (IndexedTensor.BoundBuilder)builder);
-        return builder.build();
     }
 
     private TensorType decodeType(GrowableByteBuffer buffer) {
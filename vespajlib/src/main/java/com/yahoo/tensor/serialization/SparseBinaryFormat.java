@@ -2,6 +2,7 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.MappedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
@@ -107,6 +108,10 @@ class SparseBinaryFormat implements BinaryFormat {
 
     private void decodeCells(GrowableByteBuffer buffer, Tensor.Builder builder, TensorType type, Supplier<Double> supplier) {
         long numCells = buffer.getInt1_4Bytes(); // XXX: Size truncation
+        if (builder instanceof MappedTensor.Builder) {
+            decodeCells(buffer, (MappedTensor.Builder)builder, type, supplier, numCells);
+            return;
+        }
         for (long i = 0; i < numCells; ++i) {
             Tensor.Builder.CellBuilder cellBuilder = builder.cell();
             decodeAddress(buffer, cellBuilder, type);
@@ -114,6 +119,21 @@ class SparseBinaryFormat implements BinaryFormat {
         }
     }
 
+    /** Decodes directly into the label arrays of a mapped tensor builder without creating address objects */
+    private void decodeCells(GrowableByteBuffer buffer, MappedTensor.Builder builder, TensorType type,
+                             Supplier<Double> supplier, long numCells) {
+        String[] labels = new String[type.dimensions().size()];
+        for (long i = 0; i < numCells; ++i) {
+            for (int j = 0; j < labels.length; j++) {
+                labels[j] = buffer.getUtf8String();
+                if (labels[j].isEmpty())
+                    throw new IllegalArgumentException("Missing a value for dimension " +
+                                                       type.dimensions().get(j).name() + " for " + type);
+            }
+            builder.cell(labels, supplier.get());
+        }
+    }
+
     private void decodeAddress(GrowableByteBuffer buffer, Tensor.Builder.CellBuilder builder, TensorType type) {
         for (TensorType.Dimension dimension : type.dimensions()) {
             String label = buffer.getUtf8String();
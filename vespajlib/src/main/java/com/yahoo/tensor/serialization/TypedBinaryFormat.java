@@ -50,6 +50,24 @@ public class TypedBinaryFormat {
         return decoder.decode(type, buffer);
     }
 
+    /**
+     * Decode some data to a tensor without copying the cell values of dense tensors:
+     * The values of dense tensors are instead read on demand from the given buffer, which must therefore
+     * not be changed while the returned tensor is in use. This is suitable for large tensors in
+     * read-only buffers, such as memory mapped files. Other tensors are decoded as by decode.
+     *
+     * @param type the type to decode and validate to, or empty to use the type given in the data
+     * @param buffer the buffer containing the data
+     * @return the resulting tensor
+     * @throws IllegalArgumentException if the tensor data was invalid
+     */
+    public static Tensor decodeWithoutCopying(Optional<TensorType> type, GrowableByteBuffer buffer) {
+        BinaryFormat decoder = getFormatDecoder(buffer);
+        if (decoder instanceof DenseBinaryFormat)
+            return ((DenseBinaryFormat)decoder).decodeWithoutCopying(type, buffer);
+        return decoder.decode(type, buffer);
+    }
+
     private static BinaryFormat getFormatEncoder(GrowableByteBuffer buffer, Tensor tensor) {
         if (tensor instanceof MixedTensor && tensor.type().valueType() == TensorType.Value.DOUBLE) {
             encodeFormatType(buffer, MIXED_BINARY_FORMAT_TYPE);
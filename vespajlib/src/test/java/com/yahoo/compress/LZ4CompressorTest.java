@@ -22,4 +22,24 @@ public class LZ4CompressorTest {
         assertTrue(Arrays.equals(decompressed, Arrays.copyOf(toCompress, compressBytes)));
     }
 
+    @Test
+    public void can_compress_into_buffer_and_decompress() {
+        byte[] toCompress = "xxaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes();
+        Compressor compressor = new Compressor(CompressionType.LZ4);
+        byte[] destination = new byte[3 + compressor.maxCompressedSize(40)];
+        int compressedSize = compressor.compressInto(toCompress, 2, 40, destination, 3);
+        assertTrue(compressedSize > 0 && compressedSize < 40);
+        byte[] decompressed = compressor.decompress(CompressionType.LZ4, destination, 3, 40, Optional.of(compressedSize));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(toCompress, 2, 42), decompressed));
+    }
+
+    @Test
+    public void compressing_into_buffer_returns_no_size_when_data_should_be_stored_uncompressed() {
+        byte[] toCompress = "abcdefghijklmnopqrstuvwxyz".getBytes();
+        Compressor compressor = new Compressor(CompressionType.LZ4);
+        byte[] destination = new byte[compressor.maxCompressedSize(toCompress.length)];
+        assertEquals(-1, compressor.compressInto(toCompress, 0, toCompress.length, destination, 0));
+        assertEquals(-1, new Compressor(CompressionType.NONE).compressInto(toCompress, 0, toCompress.length, destination, 0));
+    }
+
 }
@@ -0,0 +1,78 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ZstdCompressorTest {
+
+    @Test
+    public void can_compress_and_decompress_partial_buffer_range() {
+        byte[] toCompress = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes();
+        int compressBytes = 30;
+        Compressor compressor = new Compressor(CompressionType.ZSTD);
+        Compressor.Compression compressed = compressor.compress(toCompress, compressBytes);
+        assertEquals(CompressionType.ZSTD, compressed.type());
+        assertEquals(compressBytes, compressed.uncompressedSize());
+        byte[] decompressed = compressor.decompress(compressed);
+        assertTrue(Arrays.equals(Arrays.copyOf(toCompress, compressBytes), decompressed));
+    }
+
+    @Test
+    public void can_compress_into_buffer_and_decompress() {
+        byte[] toCompress = "xxaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes();
+        Compressor compressor = new Compressor(CompressionType.ZSTD);
+        byte[] destination = new byte[3 + compressor.maxCompressedSize(40) + 5];
+        int compressedSize = compressor.compressInto(toCompress, 2, 40, destination, 3);
+        assertTrue(compressedSize > 0 && compressedSize < 40);
+        byte[] decompressed = compressor.decompress(CompressionType.ZSTD, destination, 3, 40, Optional.of(compressedSize));
+        assertTrue(Arrays.equals(Arrays.copyOfRange(toCompress, 2, 42), decompressed));
+    }
+
+    @Test
+    public void incompressible_data_is_not_compressed() {
+        byte[] toCompress = "abcdefghijklmnopqrstuvwxyz".getBytes();
+        Compressor compressor = new Compressor(CompressionType.ZSTD);
+        assertEquals(CompressionType.INCOMPRESSIBLE, compressor.compress(toCompress, toCompress.length).type());
+        byte[] destination = new byte[compressor.maxCompressedSize(toCompress.length)];
+        assertEquals(-1, compressor.compressInto(toCompress, 0, toCompress.length, destination, 0));
+    }
+
+    @Test
+    public void can_compress_and_decompress_with_trained_dictionary() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            samples.add(("{\"id\":\"id:music:music::" + i + "\",\"title\":\"Song number " + (i * 7) +
+                         "\",\"artist\":\"Band " + (i % 13) + "\",\"year\":" + (1950 + i % 70) + "}").getBytes());
+        byte[] dictionary = Compressor.trainDictionary(samples, 2048);
+        assertTrue(dictionary.length > 0 && dictionary.length <= 2048);
+
+        byte[] toCompress = "{\"id\":\"id:music:music::4242\",\"title\":\"Song number 9\",\"artist\":\"Band 3\",\"year\":1977}".getBytes();
+        Compressor plain = new Compressor(CompressionType.ZSTD, 0, 0.95, 0);
+        Compressor withDictionary = new Compressor(CompressionType.ZSTD, 0, 0.95, 0, dictionary);
+        Compressor.Compression compressed = withDictionary.compress(toCompress, toCompress.length);
+        assertEquals(CompressionType.ZSTD, compressed.type());
+        assertEquals(CompressionType.INCOMPRESSIBLE, plain.compress(toCompress, toCompress.length).type());
+        assertTrue(Arrays.equals(toCompress, withDictionary.decompress(compressed)));
+    }
+
+    @Test
+    public void dictionary_requires_zstd() {
+        try {
+            new Compressor(CompressionType.LZ4, 9, 0.95, 0, new byte[16]);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("A dictionary can only be used with ZSTD, not LZ4", e.getMessage());
+        }
+    }
+
+}
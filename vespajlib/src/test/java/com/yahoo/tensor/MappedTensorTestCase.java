@@ -48,4 +48,49 @@ public class MappedTensorTestCase {
         assertEquals("tensor(x{},y{}):{{x:0,y:0}:1.0,{x:1,y:0}:2.0}", tensor.toString());
     }
 
+    @Test
+    public void testLookup() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        MappedTensor.Builder builder = MappedTensor.Builder.of(type);
+        String[] labels = new String[2];
+        for (int i = 0; i < 1000; i++) {
+            labels[0] = "x" + i;
+            labels[1] = "y" + (i % 7);
+            builder.cell(labels, i);
+        }
+        Tensor tensor = builder.build();
+        assertEquals(1000, tensor.size());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, tensor.get(address("x" + i, "y" + (i % 7))), 0);
+        assertTrue(Double.isNaN(tensor.get(address("x1", "y2"))));
+        assertTrue(Double.isNaN(tensor.get(address("x1"))));
+
+        Tensor fromAddresses = Tensor.Builder.of(type).cell(address("x1", "y1"), 1.0)
+                                                      .cell(address("x0", "y0"), 0.0).build();
+        Tensor fromLabels = MappedTensor.Builder.of(type).cell(new String[] { "x0", "y0" }, 0.0)
+                                                         .cell(new String[] { "x1", "y1" }, 1.0).build();
+        assertEquals(fromAddresses, fromLabels);
+        assertEquals(fromAddresses.hashCode(), fromLabels.hashCode());
+        assertEquals(fromAddresses.cells().hashCode(), fromLabels.hashCode());
+        assertEquals(fromAddresses.cells(), fromLabels.cells());
+    }
+
+    @Test
+    public void testNumericLabels() {
+        TensorType type = new TensorType.Builder().mapped("x").build();
+        Tensor tensor = Tensor.Builder.of(type).cell(2.0, 1).cell(3.0, 10).build();
+        assertEquals(3.0, tensor.get(address("10")), 0);
+        assertEquals(2.0, tensor.get(TensorAddress.of(1)), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateCells() {
+        TensorType type = new TensorType.Builder().mapped("x").build();
+        Tensor.Builder.of(type).cell(address("a"), 1.0).cell(address("a"), 2.0).build();
+    }
+
+    private static TensorAddress address(String ... labels) {
+        return TensorAddress.of(labels);
+    }
+
 }
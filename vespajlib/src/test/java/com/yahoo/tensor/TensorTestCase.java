@@ -149,6 +149,24 @@ public class TensorTestCase {
         assertEquals("Generic computation implementation", 42, (int)dotProduct(vectorInJSpace, Collections.singletonList(matrixInKSpace)));
     }
 
+    /** Test that the dense reduce of indexed tensors produces the same values as the general one */
+    @Test
+    public void testIndexedReduce() {
+        Tensor indexed = Tensor.from("tensor(x[2],y[3],z[2]):[[[1, 2], [3, 4], [5, 6]], [[7, 8], [9, 10], [11, 12]]]");
+        Tensor.Builder mappedBuilder = Tensor.Builder.of(TensorType.fromSpec("tensor(x{},y{},z{})"));
+        indexed.cellIterator().forEachRemaining(cell -> mappedBuilder.cell(cell.getKey(), cell.getValue()));
+        Tensor mapped = mappedBuilder.build();
+        for (Reduce.Aggregator aggregator : Reduce.Aggregator.values()) {
+            for (List<String> dimensions : List.of(List.of("x"), List.of("y"), List.of("z"), List.of("x", "z"),
+                                                   List.of("y", "z"), List.of("x", "y", "z"))) {
+                Tensor reduced = indexed.reduce(aggregator, dimensions);
+                assertEquals(aggregator + " over " + dimensions,
+                             mapped.reduce(aggregator, dimensions).cells(), reduced.cells());
+            }
+        }
+        assertEquals(Tensor.from("tensor(x[2],z[2]):[[9, 12], [27, 30]]"), indexed.reduce(Reduce.Aggregator.sum, "y"));
+    }
+
     @Test
     public void testTensorModify() {
         assertTensorModify((left, right) -> right,
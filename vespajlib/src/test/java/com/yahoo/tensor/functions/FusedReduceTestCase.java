@@ -0,0 +1,80 @@
+// Copyright 2019 Oath Inc. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class FusedReduceTestCase {
+
+    @Test
+    public void testFusedReduce() {
+        Tensor a = Tensor.from("tensor(x[2],y[3]):[[1, 2, 3], [4, 5, 6]]");
+        Tensor b = Tensor.from("tensor(y[3],z[2]):[[1, -1], [2, -2], [3, -3]]");
+        Tensor c = Tensor.from("tensor(z[3]):[10, 20, 30]");
+        Tensor mappedA = Tensor.from("tensor(x{},y{}):{{x:0,y:0}:1, {x:0,y:1}:2, {x:0,y:2}:3, {x:1,y:0}:4, {x:1,y:1}:5, {x:1,y:2}:6}");
+
+        // join(map(a, relu), join(b, c, multiply), add)
+        TensorFunction tree = new Join(new Map(new VariableTensor("a"), ScalarFunctions.relu()),
+                                       new Join(new VariableTensor("b"), new VariableTensor("c"), ScalarFunctions.multiply()),
+                                       ScalarFunctions.add());
+        for (Reduce.Aggregator aggregator : Reduce.Aggregator.values()) {
+            for (List<String> dimensions : List.<List<String>>of(List.of(), List.of("x"), List.of("y"), List.of("z"), List.of("x", "z"),
+                                                   List.of("x", "y", "z"))) {
+                assertFusedEqualsUnfused(new Reduce(tree, aggregator, dimensions), a, b, c);
+                assertFusedEqualsUnfused(new Reduce(tree, aggregator, dimensions), mappedA, b, c);
+            }
+        }
+    }
+
+    @Test
+    public void testRepeatedArgument() {
+        Tensor a = Tensor.from("tensor(x[3]):[1, 2, 3]");
+        TensorFunction square = new Join(new VariableTensor("a"), new VariableTensor("a"), ScalarFunctions.multiply());
+        Reduce sumOfSquares = new Reduce(square, Reduce.Aggregator.sum);
+        FusedReduce fused = FusedReduce.of(sumOfSquares).get();
+        assertEquals(2, fused.arguments().size());
+
+        VariableTensor argument = new VariableTensor("a");
+        Reduce sumOfSquaresOfOneArgument = new Reduce(new Join(argument, argument, ScalarFunctions.multiply()),
+                                                      Reduce.Aggregator.sum);
+        fused = FusedReduce.of(sumOfSquaresOfOneArgument).get();
+        assertEquals(1, fused.arguments().size());
+        assertEquals(Tensor.from("14.0"), fused.evaluate(context(a, a, a)));
+
+        fused = (FusedReduce)fused.withArguments(List.of(new ConstantTensor(Tensor.from("tensor(x[2]):[2, 3]"))));
+        assertEquals(Tensor.from("13.0"), fused.evaluate());
+        assertEquals("reduce(join(tensor(x[2]):[2.0, 3.0], tensor(x[2]):[2.0, 3.0], f(a,b)(a * b)), sum)", fused.toString());
+    }
+
+    @Test
+    public void testOnlyFusesElementwiseFunctions() {
+        assertFalse(FusedReduce.of(new Reduce(new VariableTensor("a"), Reduce.Aggregator.sum)).isPresent());
+        assertTrue(FusedReduce.of(new Reduce(new Map(new VariableTensor("a"), ScalarFunctions.exp()),
+                                             Reduce.Aggregator.sum)).isPresent());
+    }
+
+    private void assertFusedEqualsUnfused(Reduce reduce, Tensor a, Tensor b, Tensor c) {
+        MapEvaluationContext context = context(a, b, c);
+        assertEquals(reduce.toString(), reduce.evaluate(context), FusedReduce.of(reduce).get().evaluate(context));
+    }
+
+    private MapEvaluationContext context(Tensor a, Tensor b, Tensor c) {
+        MapEvaluationContext context = new MapEvaluationContext();
+        context.put("a", a);
+        context.put("b", b);
+        context.put("c", c);
+        return context;
+    }
+
+}
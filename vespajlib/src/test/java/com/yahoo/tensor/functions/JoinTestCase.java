@@ -46,4 +46,14 @@ public class JoinTestCase {
                              .divide(Tensor.from("tensor(y[],z[]):{ {y:0,z:0}:2, {y:1,z:0}:4, {y:2,z:0}:6 }")));
     }
 
+    @Test
+    public void testIndexedJoinOfDifferentSizes() {
+        assertEquals(Tensor.from("tensor(x[2],y[2],z[2]):[[[3, 4], [6, 8]], [[15, 20], [24, 32]]]"),
+                     Tensor.from("tensor(x[2],y[3]):[[1, 2, 3], [5, 8, 13]]")
+                           .multiply(Tensor.from("tensor(y[2],z[2]):[[3, 4], [3, 4]]")));
+        assertEquals(Tensor.from("tensor(x[2],y[2],z[2]):[[[3, 4], [6, 8]], [[15, 20], [24, 32]]]"),
+                     Tensor.from("tensor(y[2],z[2]):[[3, 4], [3, 4]]")
+                           .multiply(Tensor.from("tensor(x[2],y[3]):[[1, 2, 3], [5, 8, 13]]")));
+    }
+
 }
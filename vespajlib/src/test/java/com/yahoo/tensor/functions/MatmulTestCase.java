@@ -4,8 +4,12 @@ package com.yahoo.tensor.functions;
 import com.google.common.collect.ImmutableList;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.VariableTensor;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -95,4 +99,25 @@ public class MatmulTestCase {
         assertEquals(r, result);
     }
 
+    @Test
+    public void testParallelMatmul() {
+        Tensor a = Tensor.random(TensorType.fromSpec("tensor(x[37],y[16])"));
+        Tensor b = Tensor.random(TensorType.fromSpec("tensor(y[16],z[23])"));
+        Tensor c = Tensor.random(TensorType.fromSpec("tensor(x[1],z[23])"));
+        MapEvaluationContext context = new MapEvaluationContext();
+        context.put("a", a);
+        context.put("b", b);
+        context.put("c", c);
+
+        for (TensorFunction function : List.of(new Matmul(new VariableTensor("a"), new VariableTensor("b"), "y"),
+                                               new Join(new VariableTensor("a"), new VariableTensor("c"), ScalarFunctions.add()),
+                                               new Reduce(new VariableTensor("a"), Reduce.Aggregator.max, "y"),
+                                               new Reduce(new VariableTensor("c"), Reduce.Aggregator.avg, "z"))) {
+            context.setParallelEvaluationThreshold(Long.MAX_VALUE);
+            Tensor serialResult = function.evaluate(context);
+            context.setParallelEvaluationThreshold(0);
+            assertEquals(function.toString(), serialResult, function.evaluate(context));
+        }
+    }
+
 }
@@ -6,6 +6,7 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Optional;
 
@@ -73,6 +74,30 @@ public class DenseBinaryFormatTestCase {
         assertSerialization("tensor<float>(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
     }
 
+    @Test
+    public void testDecodingWithoutCopying() {
+        Tensor tensor = Tensor.from("tensor<float>(x[2],y[3]):[[1, 2, 3], [4, 5, 6]]");
+        byte[] encodedTensor = TypedBinaryFormat.encode(tensor);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encodedTensor.length + 4);
+        buffer.put(encodedTensor).putInt(7).flip();
+
+        GrowableByteBuffer growableBuffer = new GrowableByteBuffer(buffer.asReadOnlyBuffer());
+        Tensor decodedTensor = TypedBinaryFormat.decodeWithoutCopying(Optional.empty(), growableBuffer);
+        assertEquals(tensor, decodedTensor);
+        assertEquals(21.0, decodedTensor.sum().asDouble(), 0);
+        assertEquals(7, growableBuffer.getInt());
+
+        try {
+            TypedBinaryFormat.decodeWithoutCopying(Optional.empty(),
+                                                   GrowableByteBuffer.wrap(Arrays.copyOf(encodedTensor, encodedTensor.length - 1)));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+            assertEquals("Expected 24 bytes of cell values for tensor<float>(x[2],y[3]) but only 23 bytes remain",
+                         expected.getMessage());
+        }
+    }
+
     private void assertSerialization(String tensorString) {
         assertSerialization(Tensor.from(tensorString));
     }
@@ -85,6 +110,10 @@ public class DenseBinaryFormatTestCase {
         byte[] encodedTensor = TypedBinaryFormat.encode(tensor);
         Tensor decodedTensor = TypedBinaryFormat.decode(Optional.of(expectedType), GrowableByteBuffer.wrap(encodedTensor));
         assertEquals(tensor, decodedTensor);
+
+        Tensor uncopiedTensor = TypedBinaryFormat.decodeWithoutCopying(Optional.of(expectedType), GrowableByteBuffer.wrap(encodedTensor));
+        assertEquals(tensor, uncopiedTensor);
+        assertEquals(decodedTensor.hashCode(), uncopiedTensor.hashCode());
     }
 
 }